@@ -5,19 +5,12 @@
 
 package com.jmex.bui;
 
-import java.nio.IntBuffer;
-
 import java.util.ArrayList;
 import java.util.HashMap;
 
-import org.lwjgl.opengl.GL11;
-
 import com.jme.input.KeyInput;
 import com.jme.renderer.ColorRGBA;
-import com.jme.renderer.RenderContext;
 import com.jme.renderer.Renderer;
-import com.jme.system.DisplaySystem;
-import com.jme.util.geom.BufferUtils;
 
 import com.jmex.bui.background.BBackground;
 import com.jmex.bui.border.BBorder;
@@ -25,6 +18,7 @@ import com.jmex.bui.event.BEvent;
 import com.jmex.bui.event.ComponentListener;
 import com.jmex.bui.event.KeyEvent;
 import com.jmex.bui.event.MouseEvent;
+import com.jmex.bui.layout.BLayoutManager;
 import com.jmex.bui.text.HTMLView;
 import com.jmex.bui.util.Dimension;
 import com.jmex.bui.util.Insets;
@@ -48,15 +42,39 @@ public class BComponent
      * component's style pseudoclass among other things. */
     public static final int DISABLED = 2;
 
+    /**
+     * Flushes any pending batched quads and restores the default render states. This must be
+     * called prior to rendering directly with OpenGL.
+     */
     public static void applyDefaultStates ()
     {
-        RenderContext ctx = DisplaySystem.getDisplaySystem().getCurrentContext();
-        for (int ii = 0; ii < Renderer.defaultStateList.length; ii++) {
-            if (Renderer.defaultStateList[ii] != null &&
-                Renderer.defaultStateList[ii] != ctx.getCurrentState(ii)) {
-                Renderer.defaultStateList[ii].apply();
-            }
-        }
+        getQuadBatch().flush();
+        resetStates();
+    }
+
+    /**
+     * Restores the default render states without flushing the quad batch.
+     */
+    protected static void resetStates ()
+    {
+        _batch.getBackend().resetStates();
+    }
+
+    /**
+     * Returns the batch into which images are rendered and via which the rendering origin is
+     * translated.
+     */
+    public static QuadBatch getQuadBatch ()
+    {
+        return _batch;
+    }
+
+    /**
+     * Returns the backend used to render the interface.
+     */
+    public static RenderBackend getRenderBackend ()
+    {
+        return _batch.getBackend();
     }
 
     /**
@@ -113,8 +131,64 @@ public class BComponent
      * component to inform it of restrictions in one of the two dimensions. Not all components will
      * make use of the hints, but layout managers should provide them if they know the component
      * will be forced to a particular width or height regardless of what it prefers.
+     *
+     * <p> Preferred sizes are cached by hint until the component is next invalidated. The returned
+     * dimension is a copy which the caller is free to modify.
      */
     public Dimension getPreferredSize (int whint, int hhint)
+    {
+        Dimension ps = getCachedPreferredSize(whint, hhint);
+        if (ps != null) {
+            _psizeHits++;
+            return new Dimension(ps);
+        }
+        _psizeMisses++;
+        ps = computeTotalPreferredSize(whint, hhint);
+        cachePreferredSize(whint, hhint, ps);
+        return new Dimension(ps);
+    }
+
+    /**
+     * Returns the number of calls to {@link #getPreferredSize} (across all components) that were
+     * satisfied from the preferred size cache since the statistics were last reset.
+     */
+    public static int getPreferredSizeHits ()
+    {
+        return _psizeHits;
+    }
+
+    /**
+     * Returns the number of calls to {@link #getPreferredSize} (across all components) that
+     * required the preferred size to be computed since the statistics were last reset.
+     */
+    public static int getPreferredSizeMisses ()
+    {
+        return _psizeMisses;
+    }
+
+    /**
+     * Resets the preferred size cache statistics.
+     */
+    public static void resetPreferredSizeStats ()
+    {
+        _psizeHits = _psizeMisses = 0;
+    }
+
+    /**
+     * Returns a counter that is incremented every time a component is moved, resized, shown,
+     * hidden, added or removed, any of which may change the component hit by a particular mouse
+     * coordinate.
+     */
+    public static int getHitModCount ()
+    {
+        return _hitModCount;
+    }
+
+    /**
+     * Computes our preferred size, accounting for our insets, background and any user supplied
+     * preferred size.
+     */
+    protected Dimension computeTotalPreferredSize (int whint, int hhint)
     {
         Dimension ps;
         // if we have a fully specified preferred size, just use it
@@ -170,6 +244,53 @@ public class BComponent
         return ps;
     }
 
+    /**
+     * Returns our cached preferred size for the supplied hints or null if we have none.
+     */
+    protected Dimension getCachedPreferredSize (int whint, int hhint)
+    {
+        for (int ii = 0; ii < _pscount; ii++) {
+            if (_pshints[2*ii] == whint && _pshints[2*ii+1] == hhint) {
+                return _pssizes[ii];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Caches a computed preferred size, replacing the oldest cached size if our cache is full.
+     */
+    protected void cachePreferredSize (int whint, int hhint, Dimension size)
+    {
+        if (_pssizes == null) {
+            _pssizes = new Dimension[PSIZE_CACHE_SIZE];
+            _pshints = new int[PSIZE_CACHE_SIZE*2];
+        }
+        int idx = _psnext;
+        _psnext = (_psnext + 1) % PSIZE_CACHE_SIZE;
+        _pscount = Math.max(_pscount, idx+1);
+        _pssizes[idx] = new Dimension(size);
+        _pshints[2*idx] = whint;
+        _pshints[2*idx+1] = hhint;
+    }
+
+    /**
+     * Clears our cached preferred sizes.
+     *
+     * @return true if we had any cached sizes, false if not.
+     */
+    protected boolean clearPreferredSizes ()
+    {
+        if (_pscount == 0) {
+            return false;
+        }
+        for (int ii = 0; ii < _pscount; ii++) {
+            _pssizes[ii] = null;
+        }
+        _pscount = _psnext = 0;
+        return true;
+    }
+
     /**
      * Configures the preferred size of this component. This will override any information provided
      * by derived classes that have opinions about their preferred size. Either the width or the
@@ -179,6 +300,11 @@ public class BComponent
     public void setPreferredSize (Dimension preferredSize)
     {
         _preferredSize = preferredSize;
+        invalidate();
+        // our preferred size affects our parent's layout even if we are (now) a relayout boundary
+        if (_parent != null) {
+            _parent.invalidate();
+        }
     }
 
     /**
@@ -290,6 +416,7 @@ public class BComponent
             }
         }
         _backgrounds[state] = background;
+        repaint();
     }
 
     /**
@@ -315,7 +442,10 @@ public class BComponent
      */
     public void setAlpha (float alpha)
     {
-        _alpha = alpha;
+        if (_alpha != alpha) {
+            _alpha = alpha;
+            repaint();
+        }
     }
 
     /**
@@ -354,7 +484,12 @@ public class BComponent
     {
         if (visible != _visible) {
             _visible = visible;
+            _hitModCount++;
             invalidate();
+            // our visibility affects our parent's layout even if we are a relayout boundary
+            if (_parent != null) {
+                _parent.invalidate();
+            }
         }
     }
 
@@ -479,15 +614,21 @@ public class BComponent
      */
     public void setBounds (int x, int y, int width, int height)
     {
+        boolean moved = false;
         if (_x != x || _y != y) {
             _x = x;
             _y = y;
+            moved = true;
         }
         if (_width != width || _height != height) {
             _width = width;
             _height = height;
+            moved = true;
             invalidate();
         }
+        if (moved) {
+            hitGeometryChanged();
+        }
     }
 
     /**
@@ -595,17 +736,73 @@ public class BComponent
     }
 
     /**
-     * Marks this component as invalid and needing a relayout. If the component is valid, its
-     * parent will also be marked as invalid.
+     * Marks this component as invalid and needing a relayout and clears its cached preferred
+     * sizes. If the component is valid (or our parent may have cached a preferred size computed
+     * from ours), its parent will also be marked as invalid, unless this component is a relayout
+     * boundary (see {@link #isLayoutBoundary}) in which case it will be revalidated on its own.
      */
     public void invalidate ()
     {
-        if (_valid) {
+        boolean cached = clearPreferredSizes();
+        if (_valid || cached) {
             _valid = false;
-            if (_parent != null) {
-                _parent.invalidate();
+            if (_parent != null && !(isLayoutBoundary() && queueValidation())) {
+                _parent.invalidate(); // which will repaint
+                return;
             }
         }
+        repaint();
+    }
+
+    /**
+     * Notes that this component's appearance has changed and that it needs to be redrawn. This
+     * matters only to windows that retain their rendering between frames (see {@link
+     * BWindow#setRetained}). It is called automatically when a component is invalidated (which
+     * includes changes to its state), moved or has its alpha or background changed; components
+     * whose appearance changes in other ways must call it themselves.
+     */
+    public void repaint ()
+    {
+        if (_parent != null) {
+            _parent.repaint();
+        }
+    }
+
+    /**
+     * Returns true if changes to this component cannot affect the layout of its parent, in which
+     * case invalidating this component need not invalidate its parent (and in turn the entire
+     * window). This is the case for components with a fully specified preferred size and for
+     * those whose size is fixed by their parent's layout manager.
+     */
+    public boolean isLayoutBoundary ()
+    {
+        if (_preferredSize != null && _preferredSize.width != -1 && _preferredSize.height != -1) {
+            return true;
+        }
+        BLayoutManager layout = (_parent == null) ? null : _parent.getLayoutManager();
+        return (layout != null && layout.isFixedSize(this));
+    }
+
+    /**
+     * Called when this relayout boundary is invalidated to arrange for it to be validated
+     * independently of its parent.
+     *
+     * @return true if validation was arranged, false if we are not attached to a root node and
+     * must instead invalidate our parent.
+     */
+    protected boolean queueValidation ()
+    {
+        // if our parent is invalid, we will be validated along with it
+        if (!_parent.isValid()) {
+            return true;
+        }
+        BWindow window = getWindow();
+        BRootNode root = (window == null) ? null : window.getRootNode();
+        if (root == null) {
+            return false;
+        }
+        root.rootInvalidated(this);
+        return true;
     }
 
     /**
@@ -617,7 +814,12 @@ public class BComponent
         if (!_visible) {
             return;
         }
-        GL11.glTranslatef(_x, _y, 0);
+        // skip rendering entirely if we're outside the visible region
+        QuadBatch batch = getQuadBatch();
+        if (batch.cull(_x, _y, _width, _height)) {
+            return;
+        }
+        batch.translate(_x, _y);
 
         try {
             // render our background
@@ -630,7 +832,19 @@ public class BComponent
             renderBorder(renderer);
 
         } finally {
-            GL11.glTranslatef(-_x, -_y, 0);
+            batch.translate(-_x, -_y);
+        }
+    }
+
+    /**
+     * Called when our bounds change, which may affect the component hit by a particular mouse
+     * coordinate.
+     */
+    protected void hitGeometryChanged ()
+    {
+        _hitModCount++;
+        if (_parent != null) {
+            _parent.childMoved(this);
         }
     }
 
@@ -746,6 +960,9 @@ public class BComponent
     {
         configureStyle(getWindow().getStyleSheet());
 
+        // our style may affect our preferred size
+        clearPreferredSizes();
+
         // let our backgrounds and borders know we're added
         for (int ii = 0; ii < _backgrounds.length; ii++) {
             if (_backgrounds[ii] != null) {
@@ -794,6 +1011,7 @@ public class BComponent
         // mark ourselves as invalid so that if this component is again added to an interface
         // heirarchy it will revalidate at that time
         _valid = false;
+        clearPreferredSizes();
 
         // let our backgrounds and borders know we're removed
         for (int ii = 0; ii < _backgrounds.length; ii++) {
@@ -988,22 +1206,20 @@ public class BComponent
      *
      * @param store a rectangle to hold the previous scissor region for later restoration
      * @return <code>true</code> if scissoring was already enabled, false if it was not.
+     *
+     * @deprecated clip via {@link QuadBatch#pushClip} (with coordinates relative to the current
+     * translation) and {@link QuadBatch#popClip} so that batched quads are clipped correctly.
      */
+    @Deprecated
     protected static boolean intersectScissorBox (
         Rectangle store, int x, int y, int width, int height)
     {
-        boolean enabled = GL11.glIsEnabled(GL11.GL_SCISSOR_TEST);
+        boolean enabled = _batch.isClipped();
         if (enabled) {
-            GL11.glGetInteger(GL11.GL_SCISSOR_BOX, _bbuf);
-            store.set(_bbuf.get(0), _bbuf.get(1), _bbuf.get(2), _bbuf.get(3));
-            int x1 = Math.max(x, store.x), y1 = Math.max(y, store.y),
-                x2 = Math.min(x + width, store.x + store.width),
-                y2 = Math.min(y + height, store.y + store.height);
-            GL11.glScissor(x, y, Math.max(0, x2 - x1), Math.max(0, y2 - y1));
-        } else {
-            GL11.glEnable(GL11.GL_SCISSOR_TEST);
-            GL11.glScissor(x, y, width, height);
+            _batch.getClip(store);
         }
+        _batch.pushClip(x - _batch.getTranslationX(), y - _batch.getTranslationY(),
+                        width, height);
         return enabled;
     }
 
@@ -1013,19 +1229,23 @@ public class BComponent
      * @param enabled the value returned by {@link #intersectScissorBox}, indicating whether or not
      * scissoring was enabled
      * @param rect the scissor box to restore
+     *
+     * @deprecated see {@link #intersectScissorBox}.
      */
+    @Deprecated
     protected static void restoreScissorState (boolean enabled, Rectangle rect)
     {
-        if (enabled) {
-            GL11.glScissor(rect.x, rect.y, rect.width, rect.height);
-        } else {
-            GL11.glDisable(GL11.GL_SCISSOR_TEST);
-        }
+        _batch.popClip();
     }
 
     protected BContainer _parent;
     protected String _styleClass;
     protected Dimension _preferredSize;
+
+    /** Our cached preferred sizes and the hints for which they were computed. */
+    protected Dimension[] _pssizes;
+    protected int[] _pshints;
+    protected int _pscount, _psnext;
     protected int _x, _y, _width, _height;
     protected ArrayList<ComponentListener> _listeners;
     protected HashMap<String, Object> _properties;
@@ -1042,8 +1262,17 @@ public class BComponent
     protected BBackground[] _backgrounds = new BBackground[getStateCount()];
     protected BCursor _cursor;
 
-    /** Temporary storage for scissor box queries. */
-    protected static IntBuffer _bbuf = BufferUtils.createIntBuffer(16);
+    /** Accumulates our rendered quads so that they can be drawn in as few calls as possible. */
+    protected static QuadBatch _batch = new QuadBatch();
+
+    /** Preferred size cache statistics. */
+    protected static int _psizeHits, _psizeMisses;
+
+    /** Incremented every time the hit geometry of any component changes. */
+    protected static int _hitModCount;
+
+    /** The number of distinct hint pairs for which we cache preferred sizes. */
+    protected static final int PSIZE_CACHE_SIZE = 4;
 
     protected static final int STATE_COUNT = 3;
     protected static final String[] STATE_PCLASSES = { null, "hover", "disabled" };
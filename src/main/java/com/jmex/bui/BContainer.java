@@ -98,7 +98,9 @@ public class BContainer extends BComponent
             child.wasAdded();
         }
 
-        // we need to be relayed out
+        // we need to be relayed out and our hit index rebuilt
+        childMoved(child);
+        _hitModCount++;
         invalidate();
     }
 
@@ -120,7 +122,9 @@ public class BContainer extends BComponent
             child.wasRemoved();
         }
 
-        // we need to be relayed out
+        // we need to be relayed out and our hit index rebuilt
+        childMoved(child);
+        _hitModCount++;
         invalidate();
     }
 
@@ -160,7 +164,9 @@ public class BContainer extends BComponent
             child.wasRemoved();
         }
 
-        // we need to be relayed out
+        // we need to be relayed out and our hit index rebuilt
+        childMoved(child);
+        _hitModCount++;
         invalidate();
     }
 
@@ -244,9 +250,16 @@ public class BContainer extends BComponent
         mx -= _x;
         my -= _y;
 
+        // (re)build our hit index if our children have changed or moved since we last needed it
+        if (_hitIndex == null) {
+            _hitIndex = new HitIndex(this);
+        }
+
+        // check only those children whose bounds overlap the grid cell containing the mouse
         BComponent hit = null;
-        for (int ii = getComponentCount() - 1; ii >= 0; ii--) {
-            BComponent child = getComponent(ii);
+        int[] cell = _hitIndex.getCandidates(mx, my);
+        for (int ii = cell.length - 1; ii >= 0; ii--) {
+            BComponent child = getComponent(cell[ii]);
             if ((hit = child.getHitComponent(mx, my)) != null) {
                 return hit;
             }
@@ -254,6 +267,16 @@ public class BContainer extends BComponent
         return this;
     }
 
+    /**
+     * Returns true if the bounds of none of our children overlap one another (which means that
+     * the hit component for any coordinate within one of our children is found by searching
+     * only that child). Returns false if they do or if that is not currently known.
+     */
+    public boolean hasDisjointChildren ()
+    {
+        return _hitIndex != null && !_hitIndex.overlapping;
+    }
+
     // documentation inherited
     public void validate ()
     {
@@ -381,6 +404,23 @@ public class BContainer extends BComponent
         return getPreviousFocus();
     }
 
+    @Override // from BComponent
+    protected void hitGeometryChanged ()
+    {
+        super.hitGeometryChanged();
+        // our index covers our own bounds as well as those of our children
+        _hitIndex = null;
+    }
+
+    /**
+     * Called when a child is added, removed or has its bounds changed.
+     */
+    protected void childMoved (BComponent child)
+    {
+        _hitIndex = null;
+        repaint();
+    }
+
     /**
      * Applies an operation to all of our children.
      */
@@ -403,6 +443,126 @@ public class BContainer extends BComponent
         public void apply (BComponent child);
     }
 
+    /**
+     * A uniform grid over the bounds of a container's children that limits the children checked
+     * by {@link #getHitComponent} to those overlapping the cell that contains the mouse.
+     */
+    protected static class HitIndex
+    {
+        /** Whether the bounds of any of the children overlap. */
+        public boolean overlapping;
+
+        public HitIndex (BContainer cont) {
+            int count = cont.getComponentCount();
+            _width = Math.max(cont.getWidth(), 1);
+            _height = Math.max(cont.getHeight(), 1);
+
+            // small containers are searched linearly, larger ones get roughly one cell per child
+            if (count >= INDEX_THRESHOLD) {
+                double side = Math.sqrt(_width * (double)_height / count);
+                _cols = Math.max(1, Math.min(MAX_CELLS, (int)Math.ceil(_width / side)));
+                _rows = Math.max(1, Math.min(MAX_CELLS, (int)Math.ceil(_height / side)));
+            } else {
+                _cols = _rows = 1;
+            }
+
+            // note the range of cells covered by each child (in container coordinates)
+            int[] ranges = new int[count*4];
+            int[] counts = new int[_cols*_rows];
+            for (int ii = 0; ii < count; ii++) {
+                BComponent child = cont.getComponent(ii);
+                int x1 = Math.max(child.getX(), 0), y1 = Math.max(child.getY(), 0);
+                int x2 = Math.min(child.getX() + child.getWidth(), _width) - 1;
+                int y2 = Math.min(child.getY() + child.getHeight(), _height) - 1;
+                int idx = ii*4;
+                if (x2 < x1 || y2 < y1) {
+                    // the child can never be hit; give it an empty range
+                    ranges[idx] = ranges[idx+1] = 0;
+                    ranges[idx+2] = ranges[idx+3] = -1;
+                    continue;
+                }
+                ranges[idx] = getColumn(x1);
+                ranges[idx+1] = getRow(y1);
+                ranges[idx+2] = getColumn(x2);
+                ranges[idx+3] = getRow(y2);
+                for (int rr = ranges[idx+1]; rr <= ranges[idx+3]; rr++) {
+                    for (int cc = ranges[idx]; cc <= ranges[idx+2]; cc++) {
+                        counts[rr*_cols + cc]++;
+                    }
+                }
+            }
+
+            // fill in the cells; children are added in order so each cell remains sorted
+            _cells = new int[counts.length][];
+            for (int ii = 0; ii < counts.length; ii++) {
+                _cells[ii] = (counts[ii] == 0) ? EMPTY : new int[counts[ii]];
+                counts[ii] = 0;
+            }
+            for (int ii = 0; ii < count; ii++) {
+                int idx = ii*4;
+                for (int rr = ranges[idx+1]; rr <= ranges[idx+3]; rr++) {
+                    for (int cc = ranges[idx]; cc <= ranges[idx+2]; cc++) {
+                        int cidx = rr*_cols + cc;
+                        _cells[cidx][counts[cidx]++] = ii;
+                    }
+                }
+            }
+
+            // children can only overlap if they share a cell
+            for (int ii = 0; ii < _cells.length && !overlapping; ii++) {
+                int[] cell = _cells[ii];
+                for (int jj = 0; jj < cell.length && !overlapping; jj++) {
+                    BComponent c1 = cont.getComponent(cell[jj]);
+                    for (int kk = jj+1; kk < cell.length; kk++) {
+                        if (intersects(c1, cont.getComponent(cell[kk]))) {
+                            overlapping = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the (ascending) indices of the children that may contain the specified
+         * coordinate, which is in the coordinate system of the container.
+         */
+        public int[] getCandidates (int x, int y) {
+            if (x < 0 || y < 0 || x >= _width || y >= _height) {
+                return EMPTY;
+            }
+            return _cells[getRow(y)*_cols + getColumn(x)];
+        }
+
+        protected int getColumn (int x) {
+            return (int)((long)x * _cols / _width);
+        }
+
+        protected int getRow (int y) {
+            return (int)((long)y * _rows / _height);
+        }
+
+        protected static boolean intersects (BComponent c1, BComponent c2) {
+            return c1.getX() < c2.getX() + c2.getWidth() && c2.getX() < c1.getX() + c1.getWidth() &&
+                c1.getY() < c2.getY() + c2.getHeight() && c2.getY() < c1.getY() + c1.getHeight();
+        }
+
+        protected int _width, _height, _cols, _rows;
+        protected int[][] _cells;
+
+        protected static final int[] EMPTY = new int[0];
+    }
+
     protected ArrayList<BComponent> _children = new ArrayList<BComponent>();
     protected BLayoutManager _layout;
+
+    /** Used to quickly find the children that contain a particular coordinate. Cleared when our
+     * children change or move and rebuilt on the next hit test. */
+    protected HitIndex _hitIndex;
+
+    /** Containers with fewer children than this are searched linearly. */
+    protected static final int INDEX_THRESHOLD = 16;
+
+    /** The maximum number of rows or columns in a hit index. */
+    protected static final int MAX_CELLS = 64;
 }
@@ -14,7 +14,6 @@ import com.jme.scene.Spatial;
 import com.jme.system.DisplaySystem;
 
 import com.jmex.bui.util.Insets;
-import com.jmex.bui.util.Rectangle;
 
 /**
  * Displays 3D geometry (a {@link Spatial}) inside a normal user interface.
@@ -123,7 +122,9 @@ public class BGeomView extends BComponent
 
                 // set up our camera viewport if it has changed
                 Insets insets = getInsets();
-                int ax = getAbsoluteX() + insets.left, ay = getAbsoluteY() + insets.bottom;
+                QuadBatch batch = getQuadBatch();
+                int ax = batch.getTranslationX() + insets.left;
+                int ay = batch.getTranslationY() + insets.bottom;
                 int width = _width - insets.getHorizontal(), height = _height - insets.getVertical();
                 if (updateDisplay || _cx != ax || _cy != ay ||
                     _cwidth != width || _cheight != height) {
@@ -139,9 +140,9 @@ public class BGeomView extends BComponent
                 }
 
                 // clear the z buffer over the area to which we will be drawing
-                boolean scissored = intersectScissorBox(_srect, ax, ay, width, height);
+                batch.pushClip(insets.left, insets.bottom, width, height);
                 GL11.glClear(GL11.GL_DEPTH_BUFFER_BIT);
-                restoreScissorState(scissored, _srect);
+                batch.popClip();
 
                 // now set up the custom camera and render our geometry
                 renderer.setCamera(_camera);
@@ -160,7 +161,8 @@ public class BGeomView extends BComponent
 
                 // we need to restore the GL translation as that got wiped out when we left and
                 // re-entered ortho mode
-                GL11.glTranslatef(getAbsoluteX(), getAbsoluteY(), 0);
+                QuadBatch batch = getQuadBatch();
+                GL11.glTranslatef(batch.getTranslationX(), batch.getTranslationY(), 0);
             }
         }
     }
@@ -190,5 +192,4 @@ public class BGeomView extends BComponent
     protected int _swidth, _sheight;
     protected float _cx, _cy, _cwidth, _cheight;
 
-    protected Rectangle _srect = new Rectangle();
 }
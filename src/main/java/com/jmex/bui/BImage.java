@@ -10,12 +10,21 @@ import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.imageio.ImageIO;
 
 import java.awt.Graphics2D;
-import java.awt.geom.AffineTransform;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
 
+import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GLContext;
 
 import com.jme.image.Image;
@@ -29,6 +38,7 @@ import com.jme.scene.state.RenderState;
 import com.jme.scene.state.TextureState;
 import com.jme.system.DisplaySystem;
 import com.jme.util.TextureManager;
+import com.jme.util.geom.BufferUtils;
 
 /**
  * Contains a texture, its dimensions and a texture state.
@@ -49,9 +59,47 @@ public class BImage extends Quad
         public void releaseTextures (TextureState tstate);
     }
 
-    /** An alpha state that blends the source plus one minus destination. */
+    /** A usage class for images of text, which are drawn at (or near) their natural size. */
+    public static final int USAGE_TEXT = 0;
+
+    /** A usage class for icons, which are drawn at their natural size. */
+    public static final int USAGE_ICON = 1;
+
+    /** A usage class for backgrounds, which are generally stretched (the default). */
+    public static final int USAGE_BACKGROUND = 2;
+
+    /** A usage class for images that are drawn smaller than their natural size. */
+    public static final int USAGE_SCALED = 3;
+
+    /** The number of bytes of texture data kept resident by the default texture pool. */
+    public static final long DEFAULT_TEXTURE_BUDGET = 16 * 1024 * 1024;
+
+    /**
+     * An alpha state that blends the source plus one minus destination.
+     *
+     * @deprecated this is created lazily (once a display is available) and is null until then.
+     * Use {@link #getBlendState}.
+     */
+    @Deprecated
     public static AlphaState blendState;
 
+    /**
+     * Returns an alpha state that blends the source plus one minus destination, creating it if
+     * necessary. This is the accessor for the shared blend state; the display must have been
+     * created before it is first called.
+     */
+    public static AlphaState getBlendState ()
+    {
+        if (blendState == null) {
+            blendState = DisplaySystem.getDisplaySystem().getRenderer().createAlphaState();
+            blendState.setBlendEnabled(true);
+            blendState.setSrcFunction(AlphaState.SB_SRC_ALPHA);
+            blendState.setDstFunction(AlphaState.DB_ONE_MINUS_SRC_ALPHA);
+            blendState.setEnabled(true);
+        }
+        return blendState;
+    }
+
     /**
      * Configures the supplied spatial with transparency in the standard user interface sense which
      * is that transparent pixels show through to the background but non-transparent pixels are not
@@ -59,13 +107,14 @@ public class BImage extends Quad
      */
     public static void makeTransparent (Spatial target)
     {
-        target.setRenderState(blendState);
+        target.setRenderState(getBlendState());
     }
 
     /**
      * Sets the texture pool from which to acquire and release OpenGL texture objects.
      * Applications can provide a pool in order to avoid the rapid creation and destruction of
-     * OpenGL textures.  The default pool always creates new textures and deletes released ones.
+     * OpenGL textures.  The default pool is an {@link LRUTexturePool} that keeps up to {@link
+     * #DEFAULT_TEXTURE_BUDGET} bytes of textures resident.
      */
     public static void setTexturePool (TexturePool pool)
     {
@@ -80,6 +129,103 @@ public class BImage extends Quad
         return _texturePool;
     }
 
+    /**
+     * Configures a queue via which to spread texture uploads over multiple frames, or null to
+     * upload textures as soon as images are referenced (the default). Any images awaiting upload
+     * in a previously configured queue are uploaded immediately, so this must be called on the
+     * rendering thread.
+     */
+    public static void setUploadQueue (UploadQueue queue)
+    {
+        if (_uploadQueue != null) {
+            while (_uploadQueue.size() > 0) {
+                _uploadQueue.process();
+            }
+        }
+        _uploadQueue = queue;
+    }
+
+    /**
+     * Returns the configured upload queue, or null if textures are uploaded immediately.
+     */
+    public static UploadQueue getUploadQueue ()
+    {
+        return _uploadQueue;
+    }
+
+    /**
+     * Configures the color with which images whose textures are not yet available (because they
+     * are awaiting upload or their contents are still being loaded) are rendered, or null if such
+     * images should not be rendered at all (the default).
+     */
+    public static void setPlaceholderColor (ColorRGBA color)
+    {
+        _placeholder = color;
+    }
+
+    /**
+     * Returns the color with which images whose textures are not yet available are rendered.
+     */
+    public static ColorRGBA getPlaceholderColor ()
+    {
+        return _placeholder;
+    }
+
+    /**
+     * Installs the contents of all images whose contents have been published (see {@link
+     * #publishContents}) since the last call. This is called once per frame by the root node.
+     *
+     * @return the number of images whose contents were installed.
+     */
+    public static int installPublished ()
+    {
+        int installed = 0;
+        for (BImage image; (image = _published.poll()) != null; installed++) {
+            image.installContents();
+        }
+        return installed;
+    }
+
+    /**
+     * Returns the number of bytes of texture data (including mipmaps) uploaded for images of
+     * the specified usage class (see {@link #setUsage}) since the statistics were last reset.
+     */
+    public static long getUploadedBytes (int usage)
+    {
+        return _uploadedBytes[usage];
+    }
+
+    /**
+     * Returns the number of bytes of texture data that would have been uploaded for images of
+     * the specified usage class had they all been uploaded as RGBA with mipmaps, for comparison
+     * with {@link #getUploadedBytes}.
+     */
+    public static long getUnoptimizedBytes (int usage)
+    {
+        return _unoptimizedBytes[usage];
+    }
+
+    /**
+     * Resets the upload statistics for all usage classes.
+     */
+    public static void resetUploadStats ()
+    {
+        java.util.Arrays.fill(_uploadedBytes, 0L);
+        java.util.Arrays.fill(_unoptimizedBytes, 0L);
+    }
+
+    /**
+     * Creates an image into which to render data for a {@link BImage}. The image stores its
+     * pixels in the byte order expected by OpenGL, which allows them to be copied directly into
+     * texture memory without being redrawn or reordered.
+     */
+    public static BufferedImage createCompatibleImage (int width, int height, boolean alpha)
+    {
+        ColorModel cmodel = alpha ? RGBA_MODEL : RGB_MODEL;
+        return new BufferedImage(
+            cmodel, cmodel.createCompatibleWritableRaster(width, height), false, null);
+    }
+
     /**
      * Creates an image from the supplied source URL.
      */
@@ -98,46 +244,31 @@ public class BImage extends Quad
     }
 
     /**
-     * Creates an image from the supplied source AWT image.
+     * Creates an image from the supplied source AWT image. If the source is an image created by
+     * {@link #createCompatibleImage} it is used as is, otherwise it is first converted to that
+     * format. The texture data is only copied into graphics-ready form (flipped and padded as
+     * necessary) when the texture is uploaded.
      */
     public BImage (java.awt.Image image, boolean flip)
     {
         this(image.getWidth(null), image.getHeight(null));
+        setSource(toCompatible(image), flip);
 
-        // expand the texture data to a power of two if necessary
-        int twidth = _width, theight = _height;
-        if (!_supportsNonPowerOfTwo) {
-            twidth = nextPOT(twidth);
-            theight = nextPOT(theight);
-        }
-
-        // render the image into a raster of the proper format
-        boolean hasAlpha = TextureManager.hasAlpha(image);
-        int type = hasAlpha ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR;
-        BufferedImage tex = new BufferedImage(twidth, theight, type);
-        AffineTransform tx = null;
-        if (flip) {
-            tx = AffineTransform.getScaleInstance(1, -1);
-            tx.translate(0, -_height);
-        }
-        Graphics2D gfx = (Graphics2D) tex.getGraphics();
-        gfx.drawImage(image, tx, null);
-        gfx.dispose();
-
-        // grab the image memory and stuff it into a direct byte buffer
-        ByteBuffer scratch = ByteBuffer.allocateDirect(
-            (hasAlpha ? 4 : 3) * twidth * theight).order(ByteOrder.nativeOrder());
-        byte data[] = (byte[])tex.getRaster().getDataElements(0, 0, twidth, theight, null);
-        scratch.clear();
-        scratch.put(data);
-        scratch.flip();
-        Image textureImage = new Image();
-        textureImage.setType(hasAlpha ? Image.RGBA8888 : Image.RGB888);
-        textureImage.setWidth(twidth);
-        textureImage.setHeight(theight);
-        textureImage.setData(scratch);
+        // make sure we have a unique default color object
+        getBatch(0).getDefaultColor().set(ColorRGBA.white);
+    }
 
-        setImage(textureImage);
+    /**
+     * Creates an image of the specified size whose contents are not yet available, for example
+     * because they are being decoded on another thread. The image may be referenced and rendered
+     * as usual, but renders as a placeholder (see {@link #setPlaceholderColor}) until its contents
+     * are supplied via {@link #publishContents}.
+     */
+    public BImage (int width, int height, boolean flip)
+    {
+        this(width, height);
+        _loading = true;
+        _flip = flip;
 
         // make sure we have a unique default color object
         getBatch(0).getDefaultColor().set(ColorRGBA.white);
@@ -173,13 +304,37 @@ public class BImage extends Quad
         return _height;
     }
 
+    /**
+     * Configures the way in which this image is used, which determines how its texture is
+     * filtered and whether it is mipmapped: {@link #USAGE_TEXT}, {@link #USAGE_ICON}, {@link
+     * #USAGE_BACKGROUND} (the default) or {@link #USAGE_SCALED}. This should be called before
+     * the image is first referenced.
+     */
+    public void setUsage (int usage)
+    {
+        _usage = usage;
+        Texture texture = (_tstate == null) ? null : _tstate.getTexture();
+        if (texture != null) {
+            applyUsage(texture);
+        }
+    }
+
+    /**
+     * Returns the usage class of this image.
+     */
+    public int getUsage ()
+    {
+        return _usage;
+    }
+
     /**
      * Configures this image to use transparency or not (true by default).
      */
     public void setTransparent (boolean transparent)
     {
+        _transparent = transparent;
         if (transparent) {
-            setRenderState(blendState);
+            setRenderState(getBlendState());
         } else {
             clearRenderState(RenderState.RS_ALPHA);
         }
@@ -190,6 +345,16 @@ public class BImage extends Quad
      * Configures the image data to be used by this image.
      */
     public void setImage (Image image)
+    {
+        _source = null;
+        configureImage(image);
+    }
+
+    /**
+     * Configures a texture with the supplied image data, releasing our old texture and acquiring
+     * the new one if we're referenced.
+     */
+    protected void configureImage (Image image)
     {
         // free our old texture as appropriate
         if (_referents > 0) {
@@ -202,8 +367,7 @@ public class BImage extends Quad
         _twidth = image.getWidth();
         _theight = image.getHeight();
 
-        texture.setFilter(Texture.FM_LINEAR);
-        texture.setMipmapState(Texture.MM_LINEAR);
+        applyUsage(texture);
         _tstate.setTexture(texture);
         _tstate.setEnabled(true);
         _tstate.setCorrection(TextureState.CM_AFFINE);
@@ -266,6 +430,16 @@ public class BImage extends Quad
      */
     public void render (Renderer renderer, int sx, int sy, int swidth, int sheight,
                         int tx, int ty, int twidth, int theight, float alpha)
+    {
+        render(renderer, sx, sy, swidth, sheight, tx, ty, twidth, theight, null, alpha);
+    }
+
+    /**
+     * Renders a region of this image at the specified coordinates, scaled to the specified size
+     * and modulated by the specified color (which may be null to render the image untinted).
+     */
+    public void render (Renderer renderer, int sx, int sy, int swidth, int sheight,
+                        int tx, int ty, int twidth, int theight, ColorRGBA color, float alpha)
     {
         if (_referents == 0) {
             Log.log.warning("Unreferenced image rendered " + this + "!");
@@ -273,15 +447,20 @@ public class BImage extends Quad
             return;
         }
 
-        setTextureCoords(sx, sy, swidth, sheight);
-
-        resize(twidth, theight);
-        localTranslation.x = tx + twidth/2f;
-        localTranslation.y = ty + theight/2f;
-        updateGeometricState(0, true);
+        // if our texture has yet to be loaded or uploaded, render a placeholder (if desired)
+        if (_pending || _loading) {
+            renderPlaceholder(tx, ty, twidth, theight, alpha);
+            return;
+        }
 
-        getBatch(0).getDefaultColor().a = alpha;
-        draw(renderer);
+        float lx = sx / (float)_twidth;
+        float ly = sy / (float)_theight;
+        float ux = (sx+swidth) / (float)_twidth;
+        float uy = (sy+sheight) / (float)_theight;
+        BComponent.getQuadBatch().add(
+            _tstate, _tstate.getTexture(), _transparent, tx, ty, twidth, theight, lx, ly, ux, uy,
+            (color == null) ? 1f : color.r, (color == null) ? 1f : color.g,
+            (color == null) ? 1f : color.b, (color == null) ? alpha : color.a * alpha);
     }
 
     /**
@@ -311,32 +490,503 @@ public class BImage extends Quad
         }
     }
 
+    /**
+     * Returns true if this image is referenced and its texture is resident in graphics memory
+     * (as opposed to awaiting upload or still loading).
+     */
+    public boolean isResident ()
+    {
+        return _referents > 0 && !_pending && !_loading;
+    }
+
+    /**
+     * Returns true if this image was created without contents and they have yet to be installed.
+     */
+    public boolean isLoading ()
+    {
+        return _loading;
+    }
+
+    /**
+     * Supplies the contents of an image created without them. This may be called from any
+     * thread: the contents are converted to the format needed for upload on the calling thread
+     * and installed on the rendering thread during the next frame.
+     */
+    public void publishContents (java.awt.Image image)
+    {
+        _contents = toCompatible(image);
+        _published.offer(this);
+    }
+
+    /**
+     * Uploads this image's texture immediately if it is awaiting upload. Images whose textures
+     * must be available as soon as they are referenced can call this after {@link #reference}.
+     */
+    public void ensureResident ()
+    {
+        if (_pending) {
+            _uploadQueue.remove(this);
+            upload();
+        }
+    }
+
+    /**
+     * Notes that the specified rows of the source image with which this image was created have
+     * been drawn into. If our texture is resident, the rows are copied into it in place (rather
+     * than the whole texture being uploaded again); otherwise they are picked up when it is
+     * next uploaded. This must be called on the rendering thread.
+     *
+     * @param y the first modified row (with y increasing downward, as in the source image).
+     * @param height the number of modified rows.
+     */
+    public void updateRows (int y, int height)
+    {
+        if (_source == null) {
+            return;
+        }
+        int first = Math.max(y, 0), last = Math.min(y + height, _height);
+        if (first >= last) {
+            return;
+        }
+
+        // if our texture cannot represent the new pixels or has mipmaps that would need to be
+        // regenerated, we have to start afresh
+        if (!canRepresent(_format, chooseFormat(_source, first, last - first)) ||
+            _usage == USAGE_BACKGROUND || _usage == USAGE_SCALED) {
+            setSource(_source, _flip);
+            return;
+        }
+        if (_pending || _tstate.getNumberOfSetTextures() == 0 || !isTextureResident()) {
+            return;
+        }
+
+        // our texture rows are flipped relative to the source if we flip
+        int tfirst = _flip ? (_height - last) : first, rows = last - first;
+        int bytes = rows * _twidth * _bpp;
+        ByteBuffer data = acquireBuffer(bytes);
+        try {
+            data.clear();
+            copyRows(data, tfirst, tfirst + rows);
+            data.flip();
+            uploadRows(tfirst, rows, data);
+            _uploadedBytes[_usage] += bytes;
+            _unoptimizedBytes[_usage] += rows * _twidth * 4L;
+        } finally {
+            releaseBuffer(data);
+        }
+    }
+
     /**
      * Helper constructor.
      */
     protected BImage (int width, int height)
     {
-        super("name", width, height);
-        _width = width;
-        _height = height;
+        this("name", width, height);
         _tstate = DisplaySystem.getDisplaySystem().getRenderer().createTextureState();
         setTransparent(true);
     }
 
+    /**
+     * Creates an image with no texture of its own, for images that render (part of) the texture
+     * of another image, like the regions of an {@link ImageAtlas}.
+     */
+    protected BImage (String name, int width, int height)
+    {
+        super(name, width, height);
+        _width = width;
+        _height = height;
+    }
+
     protected void acquireTexture ()
     {
-        if (_tstate.getNumberOfSetTextures() > 0) {
-            _texturePool.acquireTextures(_tstate);
+        if (_tstate == null || _tstate.getNumberOfSetTextures() == 0) {
+            return;
         }
+        // only actual uploads are queued: a texture that is still resident (because the pool has
+        // yet to evict it) is simply reacquired
+        if (_uploadQueue != null && !isTextureResident()) {
+            _pending = true;
+            _uploadQueue.add(this);
+        } else {
+            acquirePooledTexture();
+        }
+    }
+
+    /**
+     * Returns true if our texture has been uploaded and not since evicted from the texture pool,
+     * in which case acquiring it requires no upload.
+     */
+    protected boolean isTextureResident ()
+    {
+        return _tstate.getTexture().getTextureId() != 0;
     }
 
     protected void releaseTexture ()
     {
-        if (_tstate.getNumberOfSetTextures() > 0) {
+        if (_pending) {
+            _uploadQueue.remove(this);
+            _pending = false;
+        } else if (_tstate != null && _tstate.getNumberOfSetTextures() > 0) {
             _texturePool.releaseTextures(_tstate);
         }
     }
 
+    /**
+     * Renders the placeholder for an image that is not yet available (if one is configured).
+     */
+    protected static void renderPlaceholder (int tx, int ty, int twidth, int theight, float alpha)
+    {
+        ColorRGBA pcolor = _placeholder;
+        if (pcolor != null) {
+            BComponent.applyDefaultStates();
+            RenderBackend backend = BComponent.getRenderBackend();
+            backend.setBlending(true);
+            backend.drawQuad(tx, ty, twidth, theight, pcolor.r, pcolor.g, pcolor.b,
+                             pcolor.a * alpha);
+        }
+    }
+
+    /**
+     * Configures this image to upload its texture data from the supplied image, which must have
+     * been created via {@link #createCompatibleImage}.
+     */
+    protected void setSource (BufferedImage source, boolean flip)
+    {
+        _width = source.getWidth();
+        _height = source.getHeight();
+
+        // choose the most compact format that represents the image exactly
+        _format = chooseFormat(source);
+        _bpp = getBytesPerPixel(_format);
+
+        // expand the texture data to a power of two if necessary
+        int twidth = _width, theight = _height;
+        if (!supportsNonPowerOfTwo()) {
+            twidth = nextPOT(twidth);
+            theight = nextPOT(theight);
+        }
+        // keep rows of narrow formats a multiple of four bytes (the default unpack alignment)
+        if (_bpp < 4) {
+            twidth = Math.max(4, (twidth + 3) & ~3);
+        }
+
+        // the texture data itself is filled in when we upload
+        Image textureImage = new Image();
+        textureImage.setType(_format);
+        textureImage.setWidth(twidth);
+        textureImage.setHeight(theight);
+
+        _source = source;
+        _flip = flip;
+        configureImage(textureImage);
+    }
+
+    /**
+     * Installs our published contents (on the rendering thread).
+     */
+    protected void installContents ()
+    {
+        BufferedImage contents = _contents;
+        _contents = null;
+        _loading = false;
+        // this will acquire our new texture if we're referenced
+        setSource(contents, _flip);
+    }
+
+    /**
+     * Uploads our texture (called by the {@link UploadQueue} when it is our turn).
+     */
+    protected void upload ()
+    {
+        _pending = false;
+        acquirePooledTexture();
+    }
+
+    /**
+     * Acquires our texture from the texture pool, supplying it with texture data for the duration
+     * of the upload if the texture is not already resident.
+     */
+    protected void acquirePooledTexture ()
+    {
+        Texture texture = _tstate.getTexture();
+        if (_source == null || texture.getTextureId() != 0) {
+            _texturePool.acquireTextures(_tstate);
+            return;
+        }
+
+        int bytes = getTextureBytes();
+        ByteBuffer data = acquireBuffer(bytes);
+        try {
+            copyPixels(data);
+            texture.getImage().setData(data);
+            _texturePool.acquireTextures(_tstate);
+            boolean mipmapped = (_usage == USAGE_BACKGROUND || _usage == USAGE_SCALED);
+            _uploadedBytes[_usage] += mipmapped ? bytes * 4L / 3 : bytes;
+            _unoptimizedBytes[_usage] += _twidth * _theight * 4L * 4 / 3;
+        } finally {
+            texture.getImage().setData(null);
+            releaseBuffer(data);
+        }
+    }
+
+    /**
+     * Copies the pixels of our source image into the supplied buffer, flipping them vertically
+     * if requested and padding them out to our texture size.
+     */
+    protected void copyPixels (ByteBuffer data)
+    {
+        data.clear();
+        copyRows(data, 0, _height);
+        fill(data, (_theight - _height) * _twidth * _bpp);
+        data.flip();
+    }
+
+    /**
+     * Copies the specified rows of our texture from our source image into the supplied buffer,
+     * padding each out to our texture width.
+     */
+    protected void copyRows (ByteBuffer data, int first, int last)
+    {
+        int sbpp = _source.getColorModel().getNumComponents(), bpp = _bpp;
+        int srowBytes = _width * sbpp, rowBytes = _width * bpp;
+        int padBytes = (_twidth - _width) * bpp;
+        byte[] pixels = ((DataBufferByte)_source.getRaster().getDataBuffer()).getData();
+        byte[] row = (sbpp == bpp) ? null : getRowBuffer(rowBytes);
+        for (int yy = first; yy < last; yy++) {
+            int sy = _flip ? (_height - 1 - yy) : yy;
+            if (row == null) {
+                data.put(pixels, sy * srowBytes, rowBytes);
+            } else {
+                // extract the channels we need from the RGBA source
+                for (int xx = 0, ss = sy * srowBytes, dd = 0; xx < _width; xx++, ss += sbpp) {
+                    if (bpp == 1) {
+                        row[dd++] = pixels[ss+3];
+                    } else if (bpp == 2) {
+                        row[dd++] = pixels[ss];
+                        row[dd++] = pixels[ss+3];
+                    } else {
+                        row[dd++] = pixels[ss];
+                        row[dd++] = pixels[ss+1];
+                        row[dd++] = pixels[ss+2];
+                    }
+                }
+                data.put(row, 0, rowBytes);
+            }
+            fill(data, padBytes);
+        }
+    }
+
+    /**
+     * Replaces the specified rows of our resident texture with the supplied data.
+     */
+    protected void uploadRows (int y, int height, ByteBuffer data)
+    {
+        Texture texture = _tstate.getTexture();
+        GL11.glGetInteger(GL11.GL_TEXTURE_BINDING_2D, _qbuf);
+        int obinding = _qbuf.get(0);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture.getTextureId());
+        GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, y, _twidth, height,
+                             LRUTexturePool.getFormat(texture.getImage()),
+                             GL11.GL_UNSIGNED_BYTE, data);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, obinding);
+    }
+
+    /**
+     * Configures the supplied texture's filtering and mipmapping for our usage class.
+     */
+    protected void applyUsage (Texture texture)
+    {
+        texture.setFilter(Texture.FM_LINEAR);
+        switch (_usage) {
+        case USAGE_TEXT:
+        case USAGE_ICON:
+            // these are drawn at their natural size so they need no mipmaps
+            texture.setMipmapState(Texture.MM_NONE);
+            break;
+        case USAGE_SCALED:
+            texture.setMipmapState(Texture.MM_LINEAR_LINEAR);
+            break;
+        default:
+            texture.setMipmapState(Texture.MM_LINEAR);
+            break;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of texture data that will be uploaded for this image.
+     */
+    protected int getTextureBytes ()
+    {
+        if (_source != null) {
+            return _twidth * _theight * _bpp;
+        }
+        int bytes = 0;
+        for (int ii = 0, nn = (_tstate == null) ? 0 : _tstate.getNumberOfSetTextures();
+             ii < nn; ii++) {
+            Texture texture = _tstate.getTexture(ii);
+            Image image = (texture == null) ? null : texture.getImage();
+            if (image != null && image.getData() != null) {
+                bytes += image.getData().limit();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the supplied image if it was created by {@link #createCompatibleImage}, otherwise
+     * draws it into such an image.
+     */
+    protected static BufferedImage toCompatible (java.awt.Image image)
+    {
+        if (image instanceof BufferedImage && isCompatible((BufferedImage)image)) {
+            return (BufferedImage)image;
+        }
+        BufferedImage source = createCompatibleImage(
+            image.getWidth(null), image.getHeight(null), TextureManager.hasAlpha(image));
+        Graphics2D gfx = source.createGraphics();
+        gfx.drawImage(image, 0, 0, null);
+        gfx.dispose();
+        return source;
+    }
+
+    /**
+     * Chooses the most compact texture format that exactly represents the supplied image (which
+     * must have been created via {@link #createCompatibleImage}) when drawn untinted: alpha only
+     * if all of its visible pixels are white (as is the case for text rendered for tinting),
+     * luminance and alpha if they are all gray, RGB if they are all opaque, RGBA otherwise.
+     */
+    protected static int chooseFormat (BufferedImage source)
+    {
+        return chooseFormat(source, 0, source.getHeight());
+    }
+
+    /**
+     * Chooses the most compact texture format that exactly represents the specified rows of the
+     * supplied image (see {@link #chooseFormat(BufferedImage)}).
+     */
+    protected static int chooseFormat (BufferedImage source, int y, int height)
+    {
+        if (!source.getColorModel().hasAlpha()) {
+            return Image.RGB888;
+        }
+        byte[] pixels = ((DataBufferByte)source.getRaster().getDataBuffer()).getData();
+        boolean white = true, gray = true, opaque = true;
+        int rowBytes = source.getWidth() * 4;
+        for (int ii = y * rowBytes, ll = (y + height) * rowBytes; ii < ll && (gray || opaque);
+             ii += 4) {
+            byte r = pixels[ii], g = pixels[ii+1], b = pixels[ii+2], a = pixels[ii+3];
+            if (a != (byte)0xFF) {
+                opaque = false;
+            }
+            // the color of fully transparent pixels is immaterial
+            if (a != 0) {
+                gray = gray && (r == g) && (g == b);
+                white = white && gray && (r == (byte)0xFF);
+            }
+        }
+        return (gray && white) ? Image.A8 : (gray ? Image.RA88 :
+                                            (opaque ? Image.RGB888 : Image.RGBA8888));
+    }
+
+    /**
+     * Returns true if every image that can be represented in the specified format (see {@link
+     * #chooseFormat}) can also be represented in the target format.
+     */
+    protected static boolean canRepresent (int target, int format)
+    {
+        return target == format || target == Image.RGBA8888 ||
+            (target == Image.RA88 && format == Image.A8);
+    }
+
+    /**
+     * Returns the number of bytes per pixel used by the specified image format.
+     */
+    protected static int getBytesPerPixel (int format)
+    {
+        switch (format) {
+        case Image.A8: return 1;
+        case Image.RA88: return 2;
+        case Image.RGB888: return 3;
+        default: return 4;
+        }
+    }
+
+    /**
+     * Returns a scratch buffer of at least the specified size for converting rows of pixels.
+     */
+    protected static byte[] getRowBuffer (int size)
+    {
+        if (_row.length < size) {
+            _row = new byte[size];
+        }
+        return _row;
+    }
+
+    /**
+     * Returns true if the supplied image was created by {@link #createCompatibleImage} (and is
+     * not a subimage of such an image).
+     */
+    protected static boolean isCompatible (BufferedImage image)
+    {
+        ColorModel cmodel = image.getColorModel();
+        return (cmodel == RGBA_MODEL || cmodel == RGB_MODEL) &&
+            image.getRaster().getParent() == null;
+    }
+
+    /**
+     * Obtains a direct buffer with (at least) the specified capacity and the specified limit,
+     * reusing a pooled buffer if possible.
+     */
+    protected static ByteBuffer acquireBuffer (int size)
+    {
+        for (int ii = _buffers.size() - 1; ii >= 0; ii--) {
+            ByteBuffer buf = _buffers.get(ii);
+            if (buf.capacity() >= size && buf.capacity() <= size * 2) {
+                _buffers.remove(ii);
+                _pooledBytes -= buf.capacity();
+                buf.clear();
+                buf.limit(size);
+                return buf;
+            }
+        }
+        ByteBuffer buf = ByteBuffer.allocateDirect(nextPOT(size)).order(ByteOrder.nativeOrder());
+        buf.limit(size);
+        return buf;
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquireBuffer} to the pool.
+     */
+    protected static void releaseBuffer (ByteBuffer buf)
+    {
+        if (_pooledBytes + buf.capacity() <= MAX_POOLED_BYTES) {
+            _buffers.add(buf);
+            _pooledBytes += buf.capacity();
+        }
+    }
+
+    /**
+     * Writes the specified number of zeros into the supplied buffer.
+     */
+    protected static void fill (ByteBuffer data, int count)
+    {
+        while (count > 0) {
+            int length = Math.min(count, ZEROS.length);
+            data.put(ZEROS, 0, length);
+            count -= length;
+        }
+    }
+
+    /** Returns true if OpenGL supports non-power-of-two textures. */
+    protected static boolean supportsNonPowerOfTwo ()
+    {
+        if (_supportsNonPowerOfTwo == null) {
+            _supportsNonPowerOfTwo =
+                GLContext.getCapabilities().GL_ARB_texture_non_power_of_two;
+        }
+        return _supportsNonPowerOfTwo;
+    }
+
     /** Rounds the supplied value up to a power of two. */
     protected static int nextPOT (int value)
     {
@@ -347,24 +997,63 @@ public class BImage extends Quad
     protected int _width, _height;
     protected int _twidth, _theight;
     protected int _referents;
+    protected boolean _transparent;
 
-    protected static boolean _supportsNonPowerOfTwo;
+    /** Our usage class. */
+    protected int _usage = USAGE_BACKGROUND;
 
-    protected static TexturePool _texturePool = new TexturePool() {
-        public void acquireTextures (TextureState tstate) {
-            tstate.apply(); // preload
-        }
-        public void releaseTextures (TextureState tstate) {
-            tstate.deleteAll();
-        }
-    };
+    /** The format of our texture and its bytes per pixel (when created from an AWT image). */
+    protected int _format, _bpp;
 
-    static {
-        blendState = DisplaySystem.getDisplaySystem().getRenderer().createAlphaState();
-        blendState.setBlendEnabled(true);
-        blendState.setSrcFunction(AlphaState.SB_SRC_ALPHA);
-        blendState.setDstFunction(AlphaState.DB_ONE_MINUS_SRC_ALPHA);
-        blendState.setEnabled(true);
-        _supportsNonPowerOfTwo = GLContext.getCapabilities().GL_ARB_texture_non_power_of_two;
-    }
+    /** The image from which our texture data is copied on upload (if we were created from an
+     * AWT image) and whether to flip it vertically. */
+    protected BufferedImage _source;
+    protected boolean _flip;
+
+    /** Whether we are waiting for our contents to be installed and our published contents. */
+    protected boolean _loading;
+    protected volatile BufferedImage _contents;
+
+    /** Whether our texture is awaiting upload and when it was queued. */
+    protected boolean _pending;
+    protected long _queuedStamp;
+
+    /** Whether OpenGL supports non-power-of-two textures, or null if not yet determined. */
+    protected static Boolean _supportsNonPowerOfTwo;
+
+    protected static TexturePool _texturePool = new LRUTexturePool(DEFAULT_TEXTURE_BUDGET);
+    protected static UploadQueue _uploadQueue;
+    protected static ColorRGBA _placeholder;
+
+    /** Images whose contents have been published but not yet installed. */
+    protected static ConcurrentLinkedQueue<BImage> _published =
+        new ConcurrentLinkedQueue<BImage>();
+
+    /** Direct buffers used to upload texture data. */
+    protected static ArrayList<ByteBuffer> _buffers = new ArrayList<ByteBuffer>();
+    protected static int _pooledBytes;
+
+    /** The color models used by images created with {@link #createCompatibleImage}. */
+    protected static final ColorModel RGBA_MODEL = new ComponentColorModel(
+        ColorSpace.getInstance(ColorSpace.CS_sRGB), new int[] { 8, 8, 8, 8 }, true, false,
+        Transparency.TRANSLUCENT, DataBuffer.TYPE_BYTE);
+    protected static final ColorModel RGB_MODEL = new ComponentColorModel(
+        ColorSpace.getInstance(ColorSpace.CS_sRGB), new int[] { 8, 8, 8 }, false, false,
+        Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+
+    /** The maximum number of bytes of direct buffers we keep around for reuse. */
+    protected static final int MAX_POOLED_BYTES = 4 * 1024 * 1024;
+
+    /** Upload statistics for each usage class. */
+    protected static long[] _uploadedBytes = new long[USAGE_SCALED+1];
+    protected static long[] _unoptimizedBytes = new long[USAGE_SCALED+1];
+
+    /** Used to convert rows of pixels. */
+    protected static byte[] _row = new byte[1024];
+
+    /** Used to query OpenGL state. */
+    protected static IntBuffer _qbuf = BufferUtils.createIntBuffer(16);
+
+    /** Used to pad texture data. */
+    protected static final byte[] ZEROS = new byte[4096];
 }
@@ -9,8 +9,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.logging.Level;
 
-import org.lwjgl.opengl.GL11;
-
 import com.jme.intersection.CollisionResults;
 import com.jme.renderer.ColorRGBA;
 import com.jme.renderer.Renderer;
@@ -226,6 +224,15 @@ public abstract class BRootNode extends Geometry
      */
     public abstract void rootInvalidated (BComponent root);
 
+    /**
+     * Returns the queue used to validate invalid roots (for root nodes that defer validation).
+     * This can be inspected to obtain per-frame validation statistics.
+     */
+    public ValidationQueue getValidationQueue ()
+    {
+        return _validationQueue;
+    }
+
     /**
      * Configures a component to receive all events that are not sent to some other component. When
      * an event is not consumed during normal processing, it is sent to the default event targets,
@@ -379,6 +386,24 @@ public abstract class BRootNode extends Geometry
     public void draw (Renderer renderer)
     {
         super.draw(renderer);
+
+        // install the contents of any images loaded in the background and upload (some of) any
+        // textures awaiting upload; retained windows may have rendered placeholders in their
+        // stead, so they must be repainted
+        int changed = BImage.installPublished();
+        UploadQueue uploads = BImage.getUploadQueue();
+        if (uploads != null) {
+            changed += uploads.process();
+        }
+        if (changed > 0) {
+            for (int ii = 0, ll = _windows.size(); ii < ll; ii++) {
+                _windows.get(ii).repaint();
+            }
+        }
+
+        QuadBatch batch = BComponent.getQuadBatch();
+        batch.begin();
+
         BWindow modalWin = null;
         if (_modalShade != null) {
             for (int ii = _windows.size() - 1; ii >= 0; ii--) {
@@ -402,6 +427,9 @@ public abstract class BRootNode extends Geometry
                 Log.log.log(Level.WARNING, win + " failed in render()", t);
             }
         }
+
+        // draw anything still pending in the batch
+        batch.end();
     }
 
     // documentation inherited
@@ -492,10 +520,12 @@ public abstract class BRootNode extends Geometry
         if (_focus != focus) {
             if (_focus != null) {
                 _focus.dispatchEvent(new FocusEvent(this, getTickStamp(), FocusEvent.FOCUS_LOST));
+                _focus.repaint();
             }
             _focus = focus;
             if (_focus != null) {
                 _focus.dispatchEvent(new FocusEvent(this, getTickStamp(), FocusEvent.FOCUS_GAINED));
+                _focus.repaint();
             }
         }
     }
@@ -547,6 +577,14 @@ public abstract class BRootNode extends Geometry
      */
     protected void updateHoverComponent (int mx, int my)
     {
+        // if nothing has moved since we last searched and the mouse is still over our hover
+        // component, we need not search again
+        int modcount = BComponent.getHitModCount();
+        if (_hcomponent != null && _hitModCount == modcount && isStillHit(_hcomponent, mx, my)) {
+            return;
+        }
+        _hitModCount = modcount;
+
         // check for a new hover component starting with each of our root components
         BComponent nhcomponent = null;
         for (int ii = _windows.size()-1; ii >= 0; ii--) {
@@ -583,6 +621,48 @@ public abstract class BRootNode extends Geometry
         }
     }
 
+    /**
+     * Returns true if the specified component, which was previously hit, is known to still be the
+     * component that would be hit by the specified coordinates: it must be a leaf, it and all of
+     * its ancestors must contain the coordinates, none of its ancestors may have overlapping
+     * children and no window above its own may contain the coordinates. The component hierarchy
+     * must not have changed since it was hit.
+     */
+    protected boolean isStillHit (BComponent comp, int mx, int my)
+    {
+        if (comp instanceof BContainer && ((BContainer)comp).getComponentCount() > 0) {
+            return false;
+        }
+        BWindow window = comp.getWindow();
+        if (window == null || window == _tipwin) {
+            return false;
+        }
+        for (BComponent cc = comp; cc != null; cc = cc.getParent()) {
+            BContainer parent = cc.getParent();
+            if (parent != null && !parent.hasDisjointChildren()) {
+                return false;
+            }
+            int ax = cc.getAbsoluteX(), ay = cc.getAbsoluteY();
+            if (!cc.isVisible() || mx < ax || my < ay ||
+                mx >= ax + cc.getWidth() || my >= ay + cc.getHeight()) {
+                return false;
+            }
+        }
+        for (int ii = _windows.size()-1; ii >= 0; ii--) {
+            BWindow win = _windows.get(ii);
+            if (win == window) {
+                return true;
+            } else if (win == _tipwin) {
+                continue;
+            }
+            // a modal window or one that contains the mouse may change the hit component
+            if (win.isModal() || win.getHitComponent(mx, my) != null) {
+                return false;
+            }
+        }
+        return false;
+    }
+
     protected void clearTipWindow ()
     {
         _lastMoveTime = 0;
@@ -597,23 +677,21 @@ public abstract class BRootNode extends Geometry
     protected void renderModalShade ()
     {
         BComponent.applyDefaultStates();
-        BImage.blendState.apply();
+        RenderBackend backend = BComponent.getRenderBackend();
+        backend.setBlending(true);
 
         int width = DisplaySystem.getDisplaySystem().getWidth();
         int height = DisplaySystem.getDisplaySystem().getHeight();
-
-        GL11.glColor4f(_modalShade.r, _modalShade.g, _modalShade.b, _modalShade.a);
-        GL11.glBegin(GL11.GL_QUADS);
-        GL11.glVertex2f(0, 0);
-        GL11.glVertex2f(width, 0);
-        GL11.glVertex2f(width, height);
-        GL11.glVertex2f(0, height);
-        GL11.glEnd();
+        backend.drawQuad(0, 0, width, height,
+                         _modalShade.r, _modalShade.g, _modalShade.b, _modalShade.a);
     }
 
     protected int _modifiers;
     protected int _mouseX, _mouseY;
 
+    /** The value of {@link BComponent#getHitModCount} when we last searched for a hit. */
+    protected int _hitModCount;
+
     protected BWindow _tipwin;
     protected float _lastMoveTime, _tipTime = 1f, _lastTipTime;
     protected int _tipWidth = -1;
@@ -625,6 +703,7 @@ public abstract class BRootNode extends Geometry
     protected ArrayList<BComponent> _defaults = new ArrayList<BComponent>();
     protected ArrayList<BGeomView> _geomviews = new ArrayList<BGeomView>();
     protected ArrayList<EventListener> _globals = new ArrayList<EventListener>();
+    protected ValidationQueue _validationQueue = new ValidationQueue();
 
     protected static final float TIP_MODE_RESET = 0.6f;
 }
@@ -5,14 +5,13 @@
 
 package com.jmex.bui;
 
-import org.lwjgl.opengl.GL11;
-
 import com.jme.renderer.Renderer;
+import com.jmex.bui.event.ChangeEvent;
+import com.jmex.bui.event.ChangeListener;
 import com.jmex.bui.event.MouseWheelListener;
 import com.jmex.bui.layout.BorderLayout;
 import com.jmex.bui.util.Dimension;
 import com.jmex.bui.util.Insets;
-import com.jmex.bui.util.Rectangle;
 
 /**
  * Provides a scrollable clipped view on a sub-heirarchy of components.
@@ -151,6 +150,7 @@ public class BScrollPane extends BContainer
 
     /** Does all the heavy lifting for the {@link BScrollPane}. */
     protected static class BViewport extends BContainer
+        implements ChangeListener
     {
         public BViewport (
             BComponent target, boolean vert, boolean horiz, int snap)
@@ -170,6 +170,20 @@ public class BScrollPane extends BContainer
                 }
             }
             add(_target = target);
+
+            // scrolling moves our target without changing any bounds, so we must note it
+            if (_vmodel != null) {
+                _vmodel.addChangeListener(this);
+            }
+            if (_hmodel != null) {
+                _hmodel.addChangeListener(this);
+            }
+        }
+
+        // from interface ChangeListener
+        public void stateChanged (ChangeEvent event)
+        {
+            repaint();
         }
 
         /**
@@ -198,19 +212,12 @@ public class BScrollPane extends BContainer
             return _hmodel;
         }
 
-        // documentation inherited
-        public void invalidate ()
+        @Override // from BComponent
+        public boolean isLayoutBoundary ()
         {
-            // if we're not attached, don't worry about it
-            BWindow window;
-            BRootNode root;
-            if (!_valid || (window = getWindow()) == null ||
-                (root = window.getRootNode()) == null) {
-                return;
-            }
-
-            _valid = false;
-            root.rootInvalidated(this);
+            // our size is dictated by our scroll pane, not by what we're viewing, so changes to
+            // our target need not relayout anything above us
+            return true;
         }
 
         // documentation inherited
@@ -319,18 +326,16 @@ public class BScrollPane extends BContainer
             Insets insets = getInsets();
             int yoffset = getYOffset();
             int xoffset = getXOffset();
-            GL11.glTranslatef(xoffset, yoffset, 0);
-            boolean scissored = intersectScissorBox(_srect,
-                (getAbsoluteX() + insets.left) - xoffset,
-                (getAbsoluteY() + insets.bottom) - yoffset,
-                _width - insets.getHorizontal(),
-                _height - insets.getVertical());
+            QuadBatch batch = BComponent.getQuadBatch();
+            batch.pushClip(insets.left, insets.bottom,
+                           _width - insets.getHorizontal(), _height - insets.getVertical());
+            batch.translate(xoffset, yoffset);
             try {
                 // and then render our target component
                 _target.render(renderer);
             } finally {
-                restoreScissorState(scissored, _srect);
-                GL11.glTranslatef(-xoffset, -yoffset, 0);
+                batch.translate(-xoffset, -yoffset);
+                batch.popClip();
             }
         }
 
@@ -348,7 +353,6 @@ public class BScrollPane extends BContainer
         protected BoundedRangeModel _vmodel, _hmodel;
         protected BComponent _target;
         protected MouseWheelListener _wheelListener;
-        protected Rectangle _srect = new Rectangle();
     }
 
     protected BViewport _vport;
@@ -5,8 +5,6 @@
 
 package com.jmex.bui;
 
-import org.lwjgl.opengl.GL11;
-
 import java.util.Collection;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,7 +15,6 @@ import com.jmex.bui.event.ChangeListener;
 import com.jmex.bui.event.ChangeEvent;
 import com.jmex.bui.layout.BorderLayout;
 import com.jmex.bui.util.Insets;
-import com.jmex.bui.util.Rectangle;
 import com.jmex.bui.layout.GroupLayout;
 
 /**
@@ -167,18 +164,11 @@ public abstract class BScrollingList<V, C extends BComponent> extends BContainer
         }
 
         @Override // from BComponent
-        public void invalidate ()
+        public boolean isLayoutBoundary ()
         {
-            // if we're not attached, don't worry about it
-            BWindow window;
-            BRootNode root;
-            if (!_valid || (window = getWindow()) == null ||
-                (root = window.getRootNode()) == null) {
-                return;
-            }
-
-            _valid = false;
-            root.rootInvalidated(this);
+            // our size is dictated by our scroll pane, not by what we're viewing, so changes to
+            // our target need not relayout anything above us
+            return true;
         }
 
         @Override // from BComponent
@@ -286,20 +276,18 @@ public abstract class BScrollingList<V, C extends BComponent> extends BContainer
         protected void renderComponent (Renderer renderer)
         {
             Insets insets = getInsets();
-            GL11.glTranslatef(0, _offset, 0);
-            boolean scissored = intersectScissorBox(_srect,
-                getAbsoluteX() + insets.left,
-                getAbsoluteY() + insets.bottom,
-                _width - insets.getHorizontal(),
-                _height - insets.getVertical());
+            QuadBatch batch = BComponent.getQuadBatch();
+            batch.pushClip(insets.left, insets.bottom,
+                           _width - insets.getHorizontal(), _height - insets.getVertical());
+            batch.translate(0, _offset);
             try {
                 // render our children
                 for (int ii = 0, ll = getComponentCount(); ii < ll; ii++) {
                     getComponent(ii).render(renderer);
                 }
             } finally {
-                restoreScissorState(scissored, _srect);
-                GL11.glTranslatef(0, -_offset, 0);
+                batch.translate(0, -_offset);
+                batch.popClip();
             }
         }
 
@@ -330,7 +318,6 @@ public abstract class BScrollingList<V, C extends BComponent> extends BContainer
 
         protected int _offset;
         protected boolean _snap;
-        protected Rectangle _srect = new Rectangle();
     }
 
     /** Used to track the total height of our entries. */
@@ -10,6 +10,7 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StreamTokenizer;
@@ -17,10 +18,18 @@ import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import com.jme.renderer.ColorRGBA;
 
@@ -38,6 +47,7 @@ import com.jmex.bui.text.AWTTextFactory;
 import com.jmex.bui.text.BKeyMap;
 import com.jmex.bui.text.BTextFactory;
 import com.jmex.bui.text.DefaultKeyMap;
+import com.jmex.bui.text.SharedTextFactory;
 import com.jmex.bui.util.Dimension;
 import com.jmex.bui.util.Insets;
 
@@ -126,9 +136,144 @@ public class BStyleSheet
         public BCursor loadCursor (String name) throws IOException;
     }
 
-    /** A default implementation of the stylesheet resource provider. */
+    /**
+     * A default implementation of the stylesheet resource provider. Images can optionally be
+     * decoded on a pool of background threads, in which case {@link #loadImage} returns an image
+     * of the appropriate size immediately that renders as a placeholder (see {@link
+     * BImage#setPlaceholderColor}) until it has been decoded.
+     */
     public static class DefaultResourceProvider implements ResourceProvider
     {
+        /** Records the time taken to load an image (in {@link System#nanoTime} units). */
+        public static class LoadTiming
+        {
+            /** When the image was requested and when its decoding started and finished (or zero
+             * if it has not). */
+            public volatile long requested, started, finished;
+
+            /** Whether the image failed to decode (in which case it is rendered as blank). */
+            public volatile boolean failed;
+
+            /**
+             * Returns true if the image has been decoded (or failed to decode).
+             */
+            public boolean isFinished () {
+                return finished != 0L;
+            }
+
+            /**
+             * Returns the number of milliseconds spent decoding the image, or -1 if it has not yet
+             * been decoded.
+             */
+            public float getDecodeTime () {
+                return isFinished() ? (finished - started) / 1000000f : -1f;
+            }
+
+            /**
+             * Returns the number of milliseconds between the image being requested and its being
+             * decoded, or -1 if it has not yet been decoded.
+             */
+            public float getLoadTime () {
+                return isFinished() ? (finished - requested) / 1000000f : -1f;
+            }
+        }
+
+        /**
+         * Creates a resource provider that decodes images synchronously.
+         */
+        public DefaultResourceProvider ()
+        {
+            this(0);
+        }
+
+        /**
+         * Creates a resource provider that decodes images on the specified number of background
+         * threads (or synchronously if zero).
+         */
+        public DefaultResourceProvider (int decoders)
+        {
+            if (decoders > 0) {
+                _decoders = Executors.newFixedThreadPool(decoders, new ThreadFactory() {
+                    public Thread newThread (Runnable runnable) {
+                        Thread thread = new Thread(runnable, "BUI image decoder");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+        }
+
+        /**
+         * Configures an atlas into which to pack images that are small enough, or null if every
+         * image should have its own texture (the default).
+         */
+        public void setAtlas (ImageAtlas atlas)
+        {
+            _atlas = atlas;
+        }
+
+        /**
+         * Returns the atlas into which we pack small images, if any.
+         */
+        public ImageAtlas getAtlas ()
+        {
+            return _atlas;
+        }
+
+        /**
+         * Returns true if this provider decodes images on background threads.
+         */
+        public boolean decodesInBackground ()
+        {
+            return _decoders != null;
+        }
+
+        /**
+         * Starts decoding the specified image in the background (if it is not already loaded)
+         * and retains it until it is first requested so that it is ready by then. This does
+         * nothing if we decode images synchronously, as the image would then be decoded on the
+         * calling thread, possibly long before it is needed (if it is ever needed).
+         */
+        public void prefetchImage (String path)
+        {
+            if (_decoders == null) {
+                return;
+            }
+            try {
+                _prefetched.put(normalize(path), loadImage(path));
+            } catch (IOException ioe) {
+                Log.log.warning("Failed to prefetch image '" + path + "': " + ioe);
+            }
+        }
+
+        /**
+         * Returns the timing information recorded for the specified image, or null if it has not
+         * been loaded.
+         */
+        public LoadTiming getTiming (String path)
+        {
+            return _timings.get(normalize(path));
+        }
+
+        /**
+         * Returns the number of images waiting to be (or being) decoded in the background.
+         */
+        public int getPendingDecodes ()
+        {
+            return _pending.get();
+        }
+
+        /**
+         * Stops our background decoding threads (if any) once they have finished their current
+         * work.
+         */
+        public void shutdown ()
+        {
+            if (_decoders != null) {
+                _decoders.shutdown();
+            }
+        }
+
         public BTextFactory createTextFactory (
             String family, String style, int size) {
             int nstyle = Font.PLAIN;
@@ -139,19 +284,27 @@ public class BStyleSheet
             } else if (style.equals(BOLD_ITALIC)) {
                 nstyle = Font.ITALIC|Font.BOLD;
             }
-            return new AWTTextFactory(new Font(family, nstyle, size), true);
+            // share the texts created for identical strings among all components using this
+            // font, whichever style rules specify it
+            Font font = new Font(family, nstyle, size);
+            BTextFactory factory = _factories.get(font);
+            if (factory == null) {
+                factory = new SharedTextFactory(new AWTTextFactory(font, true), IDLE_TEXTS);
+                _factories.put(font, factory);
+            }
+            return factory;
         }
 
         public BImage loadImage (String path) throws IOException {
             // normalize the image path
-            if (!path.startsWith("/")) {
-                path = "/" + path;
-            }
+            path = normalize(path);
 
             // first check the cache
             WeakReference<BImage> iref = _cache.get(path);
             BImage image;
             if (iref != null && (image = iref.get()) != null) {
+                // once a prefetched image has been requested, its users keep it around
+                _prefetched.remove(path);
                 return image;
             }
 
@@ -160,7 +313,22 @@ public class BStyleSheet
             if (url == null) {
                 throw new IOException("Can't locate image '" + path + "'.");
             }
-            image = new BImage(url);
+            LoadTiming timing = new LoadTiming();
+            timing.requested = System.nanoTime();
+            _timings.put(path, timing);
+            image = (_decoders == null) ? null : loadImageAsync(url, timing);
+            if (image == null) {
+                timing.started = System.nanoTime();
+                BufferedImage decoded = ImageIO.read(url);
+                if (decoded == null) {
+                    throw new IOException("Unsupported format for image '" + path + "'.");
+                }
+                image = (_atlas == null) ? null : _atlas.add(decoded);
+                if (image == null) {
+                    image = new BImage(decoded);
+                }
+                timing.finished = System.nanoTime();
+            }
             _cache.put(path, new WeakReference<BImage>(image));
             return image;
         }
@@ -196,6 +364,110 @@ public class BStyleSheet
             return cursor;
         }
 
+        /**
+         * Creates an image for the specified URL and queues it to be decoded in the background.
+         *
+         * @return the image or null if its size could not be determined up front, in which case
+         * it should be loaded synchronously.
+         */
+        protected BImage loadImageAsync (final URL url, final LoadTiming timing)
+            throws IOException
+        {
+            // determine the image's size now so that components can be laid out properly while
+            // it is decoding
+            final Dimension size = readSize(url);
+            if (size == null) {
+                return null;
+            }
+
+            BImage reserved = (_atlas == null) ? null : _atlas.reserve(size.width, size.height);
+            final BImage image = (reserved == null) ?
+                new BImage(size.width, size.height, true) : reserved;
+            _pending.incrementAndGet();
+            _decoders.execute(new Runnable() {
+                public void run () {
+                    timing.started = System.nanoTime();
+                    BufferedImage decoded = null;
+                    try {
+                        decoded = ImageIO.read(url);
+                        if (decoded == null) {
+                            throw new IOException("Unsupported image format");
+                        }
+                    } catch (Exception e) {
+                        Log.log.warning("Failed to decode image '" + url + "': " + e);
+                        // publish a blank image of the advertised size so that the image
+                        // doesn't remain loading (and rendering as a placeholder) forever
+                        decoded = BImage.createCompatibleImage(size.width, size.height, true);
+                        timing.failed = true;
+                    }
+                    try {
+                        image.publishContents(decoded);
+                    } finally {
+                        timing.finished = System.nanoTime();
+                        _pending.decrementAndGet();
+                    }
+                }
+            });
+            return image;
+        }
+
+        /**
+         * Reads the dimensions of the image at the specified URL from its header.
+         *
+         * @return the dimensions or null if no reader is available for the image.
+         */
+        protected static Dimension readSize (URL url)
+            throws IOException
+        {
+            InputStream in = url.openStream();
+            try {
+                ImageInputStream iin = ImageIO.createImageInputStream(in);
+                if (iin == null) {
+                    return null;
+                }
+                try {
+                    Iterator<ImageReader> iter = ImageIO.getImageReaders(iin);
+                    if (!iter.hasNext()) {
+                        return null;
+                    }
+                    ImageReader reader = iter.next();
+                    try {
+                        reader.setInput(iin, true, true);
+                        return new Dimension(reader.getWidth(0), reader.getHeight(0));
+                    } finally {
+                        reader.dispose();
+                    }
+                } finally {
+                    iin.close();
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        /**
+         * Normalizes the supplied resource path.
+         */
+        protected static String normalize (String path)
+        {
+            return path.startsWith("/") ? path : ("/" + path);
+        }
+
+        /** The atlas into which we pack small images, or null. */
+        protected ImageAtlas _atlas;
+
+        /** Decodes images in the background, or null if we decode synchronously. */
+        protected ExecutorService _decoders;
+
+        /** The number of images waiting to be decoded. */
+        protected AtomicInteger _pending = new AtomicInteger();
+
+        /** Timing information for every image we have loaded. */
+        protected HashMap<String, LoadTiming> _timings = new HashMap<String, LoadTiming>();
+
+        /** Prefetched images, which we retain until they are first requested. */
+        protected HashMap<String, BImage> _prefetched = new HashMap<String, BImage>();
+
         /** A cache of {@link BImage} instances. */
         protected HashMap<String,WeakReference<BImage>> _cache =
             new HashMap<String,WeakReference<BImage>>();
@@ -203,6 +475,12 @@ public class BStyleSheet
         /** A cache of {@link BCursor} instances. */
         protected HashMap<String, WeakReference<BCursor>> _ccache =
             new HashMap<String, WeakReference<BCursor>>();
+
+        /** The text factories we have created, one per font. */
+        protected HashMap<Font, BTextFactory> _factories = new HashMap<Font, BTextFactory>();
+
+        /** The number of unused texts retained by each of our text factories. */
+        protected static final int IDLE_TEXTS = 256;
     }
 
     /** A font style constant. */
@@ -245,6 +523,31 @@ public class BStyleSheet
         tok.wordChars('#', '#');
         tok.wordChars('_', '_');
         parse(tok);
+        prefetchImages();
+    }
+
+    /**
+     * Returns the number of milliseconds between this stylesheet being parsed and all of the
+     * images it references being decoded, or -1 if some are still decoding or our resource
+     * provider does not prefetch images (only a {@link DefaultResourceProvider} that decodes
+     * images in the background does).
+     */
+    public float getImageLoadTime ()
+    {
+        if (!(_rsrcprov instanceof DefaultResourceProvider) ||
+            !((DefaultResourceProvider)_rsrcprov).decodesInBackground()) {
+            return -1f;
+        }
+        long finished = _prefetchStart;
+        for (String ipath : _prefetched) {
+            DefaultResourceProvider.LoadTiming timing =
+                ((DefaultResourceProvider)_rsrcprov).getTiming(ipath);
+            if (timing == null || !timing.isFinished()) {
+                return -1f;
+            }
+            finished = Math.max(finished, timing.finished);
+        }
+        return (finished - _prefetchStart) / 1000000f;
     }
 
     public ColorRGBA getColor (BComponent component, String pseudoClass)
@@ -647,6 +950,36 @@ public class BStyleSheet
         throw new IOException(err + "'");
     }
 
+    /**
+     * If our resource provider is a {@link DefaultResourceProvider} that decodes images in the
+     * background, starts decoding all of the images referenced by this stylesheet so that they
+     * are ready (or at least decoding) by the time components are configured.
+     */
+    protected void prefetchImages ()
+    {
+        _prefetchStart = System.nanoTime();
+        if (!(_rsrcprov instanceof DefaultResourceProvider) ||
+            !((DefaultResourceProvider)_rsrcprov).decodesInBackground()) {
+            return;
+        }
+        for (Rule rule : _rules.values()) {
+            for (Object prop : rule.properties.values()) {
+                String ipath = null;
+                if (prop instanceof BackgroundProperty) {
+                    BackgroundProperty bprop = (BackgroundProperty)prop;
+                    ipath = "image".equals(bprop.type) ? bprop.ipath : null;
+                } else if (prop instanceof IconProperty) {
+                    IconProperty iprop = (IconProperty)prop;
+                    ipath = "image".equals(iprop.type) ? iprop.ipath : null;
+                }
+                if (ipath != null && !_prefetched.contains(ipath)) {
+                    _prefetched.add(ipath);
+                    ((DefaultResourceProvider)_rsrcprov).prefetchImage(ipath);
+                }
+            }
+        }
+    }
+
     protected ColorRGBA parseColor (String hex)
     {
         if (!hex.startsWith("#") || (hex.length() != 7 && hex.length() != 9)) {
@@ -790,6 +1123,10 @@ public class BStyleSheet
     protected ResourceProvider _rsrcprov;
     protected HashMap<String, Rule> _rules = new HashMap<String, Rule>();
 
+    /** The paths of the images we prefetched and when we started doing so. */
+    protected HashSet<String> _prefetched = new HashSet<String>();
+    protected long _prefetchStart;
+
     protected static HashMap<String, Integer> _taconsts = new HashMap<String, Integer>();
     protected static HashMap<String, Integer> _vaconsts = new HashMap<String, Integer>();
     protected static HashMap<String, Integer> _teconsts = new HashMap<String, Integer>();
@@ -86,6 +86,28 @@ public class BTextArea extends BContainer
         _prefWidth = width;
     }
 
+    /**
+     * Configures the maximum number of lines retained by this text area, or zero (the default)
+     * to retain all lines. When more lines than this have been appended, the oldest lines (and
+     * the text they contain) are discarded. This is useful for chat and other logs to which text
+     * is continually appended.
+     */
+    public void setMaxLines (int maxLines)
+    {
+        _maxLines = maxLines;
+        _reflow = true;
+        invalidate();
+    }
+
+    /**
+     * Returns the maximum number of lines retained by this text area, or zero if all lines are
+     * retained.
+     */
+    public int getMaxLines ()
+    {
+        return _maxLines;
+    }
+
     /**
      * Returns a model that can be wired to a scroll bar to allow scrolling up and down through the
      * lines in this text area.
@@ -142,7 +164,7 @@ public class BTextArea extends BContainer
         if (offset < text.length()) {
             _runs.add(new Run(text.substring(offset), color, style, false));
         }
-        // TODO: optimize appending
+        // the new runs will be wrapped onto the end of our existing lines when we're laid out
         invalidate();
     }
 
@@ -152,6 +174,7 @@ public class BTextArea extends BContainer
     public void clearText ()
     {
         _runs.clear();
+        _reflow = true;
         invalidate();
     }
 
@@ -171,6 +194,15 @@ public class BTextArea extends BContainer
         return _lines.size();
     }
 
+    /**
+     * Returns the number of lines for which glyphs have been created. Only the lines that are
+     * visible (and a few lines to either side) have glyphs; the rest have only been measured.
+     */
+    public int getRealizedLineCount ()
+    {
+        return _rend - _rstart;
+    }
+
     /**
      * Returns a text factory suitable for creating text in the style defined by the component's
      * current state.
@@ -238,9 +270,7 @@ public class BTextArea extends BContainer
     {
         super.wasAdded();
 
-        for (int ii = 0, ll = _lines.size(); ii < ll; ii++) {
-            _lines.get(ii).wasAdded();
-        }
+        updateRealized();
     }
 
     // documentation inherited
@@ -248,15 +278,14 @@ public class BTextArea extends BContainer
     {
         super.wasRemoved();
 
-        for (int ii = 0, ll = _lines.size(); ii < ll; ii++) {
-            _lines.get(ii).wasRemoved();
-        }
+        releaseRealized();
     }
 
     // documentation inherited
     protected void configureStyle (BStyleSheet style)
     {
         super.configureStyle(style);
+        _reflow = true;
 
         int[] haligns = new int[getStateCount()];
         for (int ii = 0; ii < getStateCount(); ii++) {
@@ -298,6 +327,21 @@ public class BTextArea extends BContainer
         }
     }
 
+    @Override // from BComponent
+    protected void stateDidChange ()
+    {
+        // our text style may depend on our state, but our text need only be rewrapped if the
+        // style in which it was measured changed (and not, say, merely its hover color)
+        if (getTextFactory() != _flowFactory || getTextEffect() != _flowEffect ||
+            getEffectSize() != _flowEffectSize) {
+            _reflow = true;
+        } else if (!colorsEqual(getColor(), _flowColor) ||
+                   !colorsEqual(getEffectColor(), _flowEffectColor)) {
+            recolorContents();
+        }
+        super.stateDidChange();
+    }
+
     protected int[] checkNonDefault (int[] styles, int defval)
     {
         for (int ii = 0; ii < styles.length; ii++) {
@@ -342,6 +386,9 @@ public class BTextArea extends BContainer
         // render the lines
         for (int ii = start; ii < stop; ii++) {
             Line line = _lines.get(ii);
+            if (!line.realized) {
+                continue;
+            }
             y -= line.height;
             if (halign == BConstants.RIGHT) {
                 x = _width - line.getWidth() - insets.right;
@@ -355,7 +402,8 @@ public class BTextArea extends BContainer
     // documentation inherited
     protected Dimension computePreferredSize (int whint, int hhint)
     {
-        // lay out our text if we have not yet done so
+        // if we have not yet laid out our text, measure it; it will be rendered when we are
+        // laid out
         if (_lines.size() == 0) {
             if (_prefWidth > 0) {
                 // our preferred width overrides any hint
@@ -364,7 +412,7 @@ public class BTextArea extends BContainer
                 // if we have no hints and no preferred width, allow arbitrarily wide lines
                 whint = Short.MAX_VALUE;
             }
-            refigureContents(whint);
+            return measureContents(whint);
         }
 
         // compute our dimensions based on the dimensions of our text
@@ -379,27 +427,93 @@ public class BTextArea extends BContainer
     }
 
     /**
-     * Reflows the entirety of our text.
+     * Computes the size of our text when flowed into the specified width without creating any
+     * glyphs. This mirrors the flow performed by {@link #refigureContents}.
      */
-    protected void refigureContents (int width)
+    protected Dimension measureContents (int width)
     {
+        Dimension d = new Dimension();
         // if we're not yet added to the heirarchy, we can stop now
         if (!isAdded()) {
-            return;
+            return d;
         }
 
-        // remove and recreate our existing lines
-        for (int ii = 0, ll = _lines.size(); ii < ll; ii++) {
-            _lines.get(ii).wasRemoved();
+        int maxWidth = width - getInsets().getHorizontal();
+        BTextFactory tfact = getTextFactory();
+        int effect = getTextEffect(), effectSize = getEffectSize();
+        int dx = 0, height = 0;
+        boolean open = false;
+        for (int ii = 0, ll = _runs.size(); ii < ll; ii++) {
+            Run run = _runs.get(ii);
+            open = true;
+            int offset = 0;
+            while (true) {
+                String rtext = run.text.substring(offset);
+                BTextFactory.WrappedLine line =
+                    tfact.measureWrapped(rtext, effect, effectSize, maxWidth-dx)[0];
+                dx += line.size.width;
+                height = Math.max(height, line.size.height);
+                int remainder = rtext.length() - line.length;
+                if (remainder <= 0) {
+                    break;
+                }
+                // the remainder of the run wraps onto the next line
+                d.width = Math.max(d.width, dx);
+                d.height += height;
+                dx = height = 0;
+                offset = run.text.length() - remainder;
+            }
+            if (run.endsLine) {
+                d.width = Math.max(d.width, dx);
+                d.height += height;
+                dx = height = 0;
+                open = false;
+            }
+        }
+        if (open) {
+            d.width = Math.max(d.width, dx);
+            d.height += height;
+        }
+        return d;
+    }
+
+    /**
+     * Wraps any text appended since we were last laid out onto the end of our lines, or reflows
+     * the entirety of our text if our width or text style has changed.
+     */
+    protected void refigureContents (int width)
+    {
+        // if we're not yet added to the heirarchy, we can stop now
+        if (!isAdded()) {
+            return;
         }
-        _lines.clear();
 
         int insets = getInsets().getHorizontal();
         int maxWidth = (width - insets);
 
-        // wrap our text into lines
         Line current = null;
-        for (int ii = 0, ll = _runs.size(); ii < ll; ii++) {
+        if (_reflow || maxWidth != _flowWidth) {
+            // remove and recreate our existing lines
+            releaseRealized();
+            _lines.clear();
+            _flowed = 0;
+            _flowWidth = maxWidth;
+            _flowFactory = getTextFactory();
+            _flowEffect = getTextEffect();
+            _flowEffectSize = getEffectSize();
+            _flowColor = getColor();
+            _flowEffectColor = getEffectColor();
+            _reflow = false;
+        } else if (_flowed > 0 && !_runs.get(_flowed-1).endsLine) {
+            // continue our last line
+            current = _lines.get(_lines.size()-1);
+        }
+
+        // wrap our (new) text into lines; we only measure the text here, glyphs are created for
+        // the lines that are visible when our model is updated
+        BTextFactory tfact = getTextFactory();
+        int effect = getTextEffect(), effectSize = getEffectSize();
+        for (int ii = _flowed, ll = _runs.size(); ii < ll; ii++) {
             Run run = _runs.get(ii);
             if (current == null) {
                 _lines.add(current = new Line());
@@ -407,14 +521,15 @@ public class BTextArea extends BContainer
             int offset = 0;
             ColorRGBA color = (run.color == null) ? getColor() : run.color;
             while ((offset = current.addRun(
-                        getTextFactory(), run, color, getTextEffect(),
-                        getEffectSize(), getEffectColor(), maxWidth, offset)) > 0) {
+                        tfact, run, color, effect, effectSize, maxWidth, offset)) > 0) {
                 _lines.add(current = new Line());
             }
             if (run.endsLine) {
                 current = null;
             }
         }
+        _flowed = _runs.size();
+        trimLines();
 
         // determine how many lines we can display in total
         insets = getInsets().getVertical();
@@ -433,17 +548,123 @@ public class BTextArea extends BContainer
         int sline = Math.max(0, _lines.size() - lines);
         if (!_model.setRange(0, sline, lines, _lines.size())) {
             // we need to force adjustment of the text even if we didn't change anything because we
-            // wiped out and recreated all of our lines
+            // may have recreated or extended our lines
             modelDidChange();
         }
     }
 
+    /**
+     * Applies our current text colors to our lines without rewrapping them, recoloring the
+     * glyphs of realized lines where possible and recreating them where not.
+     */
+    protected void recolorContents ()
+    {
+        _flowColor = getColor();
+        _flowEffectColor = getEffectColor();
+        for (int ii = 0, ll = _lines.size(); ii < ll; ii++) {
+            Line line = _lines.get(ii);
+            for (int ss = 0, sl = line.segments.size(); ss < sl; ss++) {
+                Segment seg = line.segments.get(ss);
+                if (seg.run.color == null) {
+                    seg.color = _flowColor;
+                }
+                if (seg.glyphs != null && !seg.glyphs.setColors(seg.color, _flowEffectColor)) {
+                    seg.glyphs.wasRemoved();
+                    seg.glyphs = null;
+                }
+            }
+        }
+        // recreate the glyphs that could not be recolored
+        for (int ii = _rstart; ii < _rend; ii++) {
+            _lines.get(ii).realize(getTextFactory(), _flowEffect, _flowEffectSize,
+                                   _flowEffectColor);
+        }
+    }
+
+    /**
+     * Discards our oldest lines (and the runs they contain) if we have more than our maximum.
+     */
+    protected void trimLines ()
+    {
+        if (_maxLines <= 0 || _lines.size() <= _maxLines) {
+            return;
+        }
+        int count = _lines.size() - _maxLines;
+        for (int ii = 0; ii < count; ii++) {
+            _lines.removeFirst().release();
+        }
+        _rstart = Math.max(0, _rstart - count);
+        _rend = Math.max(0, _rend - count);
+
+        // discard the runs that precede the first remaining line
+        Run first = _lines.get(0).start;
+        while (_runs.get(0) != first) {
+            _runs.removeFirst();
+            _flowed--;
+        }
+    }
+
+    /**
+     * Creates glyphs for the lines that are visible (and those within a few lines of being
+     * visible) and releases the glyphs of all other lines.
+     */
+    protected void updateRealized ()
+    {
+        int start = 0, end = 0;
+        if (isAdded()) {
+            start = Math.max(0, _model.getValue() - REALIZE_MARGIN);
+            end = Math.min(_lines.size(),
+                           _model.getValue() + _model.getExtent() + REALIZE_MARGIN);
+        }
+        for (int ii = _rstart; ii < _rend; ii++) {
+            if (ii < start || ii >= end) {
+                _lines.get(ii).release();
+            }
+        }
+        if (start < end) {
+            BTextFactory tfact = getTextFactory();
+            int effect = getTextEffect(), effectSize = getEffectSize();
+            ColorRGBA effectColor = getEffectColor();
+            for (int ii = start; ii < end; ii++) {
+                _lines.get(ii).realize(tfact, effect, effectSize, effectColor);
+            }
+        }
+        if (start != _rstart || end != _rend) {
+            // we have glyphs for different lines than when we were last drawn
+            repaint();
+        }
+        _rstart = start;
+        _rend = end;
+    }
+
+    /**
+     * Releases the glyphs of all of our lines.
+     */
+    protected void releaseRealized ()
+    {
+        for (int ii = _rstart; ii < _rend; ii++) {
+            _lines.get(ii).release();
+        }
+        _rstart = _rend = 0;
+    }
+
     /**
      * Called when our model has changed (due to scrolling by a scroll bar or a call to {@link
      * #scrollToLine}, etc.).
      */
     protected void modelDidChange ()
     {
+        updateRealized();
+        // different lines may be visible even if the same lines are realized
+        repaint();
+    }
+
+    /**
+     * Returns true if the supplied colors are both null or are equal.
+     */
+    protected static boolean colorsEqual (ColorRGBA c1, ColorRGBA c2)
+    {
+        return (c1 == null) ? (c2 == null) : c1.equals(c2);
     }
 
     /** Used to associate a style with a run of text. */
@@ -462,6 +683,29 @@ public class BTextArea extends BContainer
         }
     }
 
+    /** A portion of a run of text that is displayed on a single line. */
+    protected static class Segment
+    {
+        /** The run that contains this segment's text. */
+        public Run run;
+
+        /** The offset and length of the segment's text in the run. */
+        public int offset, length;
+
+        /** The color in which the segment is rendered. */
+        public ColorRGBA color;
+
+        /** The measured size of the segment. */
+        public Dimension size;
+
+        /** The segment's glyphs, or null if the segment's line is not realized. */
+        public BText glyphs;
+
+        public String getText () {
+            return run.text.substring(offset, Math.min(run.text.length(), offset + length));
+        }
+    }
+
     /** Contains the segments of text on a single line. */
     protected static class Line
     {
@@ -477,71 +721,140 @@ public class BTextArea extends BContainer
         /** The height of this line. */
         public int height;
 
-        /** A list of {@link BText} instances for the text on this line. */
-        public ArrayList<BText> segments = new ArrayList<BText>();
+        /** The segments of text on this line. */
+        public ArrayList<Segment> segments = new ArrayList<Segment>();
+
+        /** Whether glyphs have been created for our segments. */
+        public boolean realized;
 
         /**
          * Adds the supplied run to the line using the supplied text factory, returns the offset
          * into the run that must be appeneded to a new line or -1 if the entire run was appended.
          */
         public int addRun (BTextFactory tfact, Run run, ColorRGBA color, int effect,
-                           int effectSize, ColorRGBA effectColor, int maxWidth, int offset)
+                           int effectSize, int maxWidth, int offset)
         {
-            if (dx == 0) {
+            if (segments.isEmpty()) {
                 start = run;
             }
+            end = run;
             String rtext = run.text.substring(offset);
-            // TODO: this could perhaps be done more efficiently now that the text factory breaks
-            // things down into multiple lines for us
-            BText[] text = tfact.wrapText(
-                rtext, color, effect, effectSize, effectColor, maxWidth-dx);
-            segments.add(text[0]);
-            // we only ever add runs when we're added
-            text[0].wasAdded();
-            int remainder = rtext.length() - text[0].getLength();
-            height = Math.max(height, text[0].getSize().height);
-            dx += text[0].getSize().width;
-            return (remainder == 0) ? -1 : run.text.length() - remainder;
+            BTextFactory.WrappedLine line =
+                tfact.measureWrapped(rtext, effect, effectSize, maxWidth-dx)[0];
+            Segment seg = new Segment();
+            seg.run = run;
+            seg.offset = offset;
+            seg.length = line.length;
+            seg.color = color;
+            seg.size = line.size;
+            segments.add(seg);
+            int remainder = rtext.length() - line.length;
+            height = Math.max(height, line.size.height);
+            dx += line.size.width;
+            return (remainder <= 0) ? -1 : run.text.length() - remainder;
         }
 
         /**
-         * Renders this line of text.
+         * Creates the glyphs for any of this line's segments that do not yet have them.
          */
-        public void render (Renderer renderer, int x, int y, float alpha)
+        public void realize (BTextFactory tfact, int effect, int effectSize,
+                             ColorRGBA effectColor)
         {
-            int dx = x;
             for (int ii = 0, ll = segments.size(); ii < ll; ii++) {
-                BText text = segments.get(ii);
-                text.render(renderer, dx, y, alpha);
-                dx += text.getSize().width;
+                Segment seg = segments.get(ii);
+                if (seg.glyphs != null) {
+                    continue;
+                }
+                seg.glyphs = tfact.createText(
+                    seg.getText(), seg.color, effect, effectSize, effectColor, true);
+                // we only ever realize lines when we're added
+                seg.glyphs.wasAdded();
             }
+            realized = true;
         }
 
         /**
-         * Returns the width of this line.
+         * Releases the glyphs for this line's segments, if they have been created.
          */
-        public int getWidth ()
+        public void release ()
         {
-            int width = 0;
+            if (!realized) {
+                return;
+            }
             for (int ii = 0, ll = segments.size(); ii < ll; ii++) {
-                width += segments.get(ii).getSize().width;
+                Segment seg = segments.get(ii);
+                if (seg.glyphs != null) {
+                    seg.glyphs.wasRemoved();
+                    seg.glyphs = null;
+                }
             }
-            return width;
+            realized = false;
         }
 
-        public void wasAdded ()
+        /**
+         * Renders this line of text.
+         */
+        public void render (Renderer renderer, int x, int y, float alpha)
         {
+            int dx = x;
             for (int ii = 0, ll = segments.size(); ii < ll; ii++) {
-                segments.get(ii).wasAdded();
+                Segment seg = segments.get(ii);
+                seg.glyphs.render(renderer, dx, y, alpha);
+                dx += seg.size.width;
             }
         }
 
-        public void wasRemoved ()
+        /**
+         * Returns the width of this line.
+         */
+        public int getWidth ()
         {
-            for (int ii = 0, ll = segments.size(); ii < ll; ii++) {
-                segments.get(ii).wasRemoved();
+            return dx;
+        }
+    }
+
+    /** A list from which elements can be removed from the front in constant time. */
+    protected static class RingList<T>
+    {
+        public int size () {
+            return _size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get (int index) {
+            if (index < 0 || index >= _size) {
+                throw new IndexOutOfBoundsException("" + index);
+            }
+            return (T)_elements[(_head + index) % _elements.length];
+        }
+
+        public void add (T element) {
+            if (_size == _elements.length) {
+                Object[] elements = new Object[_elements.length*2];
+                for (int ii = 0; ii < _size; ii++) {
+                    elements[ii] = _elements[(_head + ii) % _elements.length];
+                }
+                _elements = elements;
+                _head = 0;
             }
+            _elements[(_head + _size++) % _elements.length] = element;
+        }
+
+        public T removeFirst () {
+            T element = get(0);
+            _elements[_head] = null;
+            _head = (_head + 1) % _elements.length;
+            _size--;
+            return element;
+        }
+
+        public void clear () {
+            java.util.Arrays.fill(_elements, null);
+            _head = _size = 0;
         }
+
+        protected Object[] _elements = new Object[16];
+        protected int _head, _size;
     }
 
     protected int[] _haligns, _valigns;
@@ -552,6 +865,25 @@ public class BTextArea extends BContainer
     protected BoundedRangeModel _model = new BoundedRangeModel(0, 0, 0, 0);
     protected int _prefWidth = -1;
 
-    protected ArrayList<Run> _runs = new ArrayList<Run>();
-    protected ArrayList<Line> _lines = new ArrayList<Line>();
+    protected int _maxLines;
+
+    protected RingList<Run> _runs = new RingList<Run>();
+    protected RingList<Line> _lines = new RingList<Line>();
+
+    /** The width into which our text was last wrapped and the number of runs wrapped. */
+    protected int _flowWidth = -1, _flowed;
+
+    /** Set when our text must be rewrapped in its entirety. */
+    protected boolean _reflow = true;
+
+    /** The text style with which our text was last wrapped (or recolored). */
+    protected BTextFactory _flowFactory;
+    protected int _flowEffect, _flowEffectSize;
+    protected ColorRGBA _flowColor, _flowEffectColor;
+
+    /** The range of lines for which glyphs have been created. */
+    protected int _rstart, _rend;
+
+    /** The number of lines above and below the visible lines for which we create glyphs. */
+    protected static final int REALIZE_MARGIN = 4;
 }
@@ -5,8 +5,6 @@
 
 package com.jmex.bui;
 
-import org.lwjgl.opengl.GL11;
-
 import com.jme.renderer.ColorRGBA;
 import com.jme.renderer.Renderer;
 
@@ -17,13 +15,13 @@ import com.jmex.bui.event.KeyEvent;
 import com.jmex.bui.event.MouseEvent;
 import com.jmex.bui.event.TextEvent;
 import com.jmex.bui.text.BKeyMap;
-import com.jmex.bui.text.BText;
+import com.jmex.bui.text.BTextFactory;
 import com.jmex.bui.text.Document;
 import com.jmex.bui.text.EditCommands;
 import com.jmex.bui.text.LengthLimitedDocument;
+import com.jmex.bui.text.SegmentedText;
 import com.jmex.bui.util.Dimension;
 import com.jmex.bui.util.Insets;
-import com.jmex.bui.util.Rectangle;
 
 /**
  * Displays and allows for the editing of a single line of text.
@@ -135,9 +133,9 @@ public class BTextField extends BTextComponent
     // documentation inherited from interface Document.Listener
     public void textInserted (Document document, int offset, int length)
     {
-        // if we're already part of the hierarchy, recreate our glyps
+        // if we're already part of the hierarchy, update our glyphs
         if (isAdded()) {
-            recreateGlyphs();
+            updateGlyphs();
         }
 
         // let anyone who is around to hear know that a tree fell in the woods
@@ -152,9 +150,9 @@ public class BTextField extends BTextComponent
             setCursorPos(_text.getLength());
         }
 
-        // if we're already part of the hierarchy, recreate our glyps
+        // if we're already part of the hierarchy, update our glyphs
         if (isAdded()) {
-            recreateGlyphs();
+            updateGlyphs();
         }
 
         // let anyone who is around to hear know that a tree fell in the woods
@@ -297,6 +295,7 @@ public class BTextField extends BTextComponent
         if (_glyphs != null) {
             _glyphs.wasRemoved();
             _glyphs = null;
+            _gfact = null;
         }
     }
 
@@ -306,14 +305,22 @@ public class BTextField extends BTextComponent
         super.layout();
 
         // cope with becoming smaller or larger
-        recreateGlyphs();
+        setCursorPos(_cursp);
     }
 
     // documentation inherited
     protected void stateDidChange ()
     {
         super.stateDidChange();
-        recreateGlyphs();
+
+        // our glyphs need only be recreated if our text factory changed, otherwise we can
+        // recolor them (recreating only those segments that can't be recolored)
+        if (_glyphs != null && _gfact == getTextFactory()) {
+            _glyphs.setColors(getColor(), null);
+            setCursorPos(_cursp);
+        } else if (isAdded()) {
+            recreateGlyphs();
+        }
     }
 
     // documentation inherited
@@ -326,16 +333,14 @@ public class BTextField extends BTextComponent
         // render our text
         if (_glyphs != null) {
             // clip the text to our visible text region
-            boolean scissored = intersectScissorBox(_srect,
-                getAbsoluteX() + insets.left,
-                getAbsoluteY() + insets.bottom,
-                _width - insets.getHorizontal(),
-                _height - insets.getVertical());
+            QuadBatch batch = getQuadBatch();
+            batch.pushClip(insets.left, insets.bottom,
+                           _width - insets.getHorizontal(), _height - insets.getVertical());
             try {
                 _glyphs.render(renderer, insets.left - _txoff,
                                insets.bottom, _alpha);
             } finally {
-                restoreScissorState(scissored, _srect);
+                batch.popClip();
             }
         }
 
@@ -344,19 +349,19 @@ public class BTextField extends BTextComponent
             int cx = insets.left - _txoff + _cursx;
             BComponent.applyDefaultStates();
             ColorRGBA c = getColor();
-            GL11.glColor4f(c.r, c.g, c.b, c.a);
-            GL11.glBegin(GL11.GL_LINE_STRIP);
-            GL11.glVertex2f(cx, insets.bottom);
             int cheight = getTextFactory().getHeight();
-            GL11.glVertex2f(cx, insets.bottom + cheight);
-            GL11.glEnd();
+            _cpoints[0] = cx;
+            _cpoints[1] = insets.bottom;
+            _cpoints[2] = cx;
+            _cpoints[3] = insets.bottom + cheight;
+            getRenderBackend().drawLineStrip(_cpoints, 2, 1f, c.r, c.g, c.b, c.a);
         }
     }
 
     // documentation inherited
     protected Dimension computePreferredSize (int whint, int hhint)
     {
-        Dimension d = (_glyphs == null) ?
+        Dimension d = (_glyphs == null || _glyphs.getLength() == 0) ?
             new Dimension(0, getTextFactory().getHeight()) :
             new Dimension(_glyphs.getSize());
         if (_prefWidth != -1) {
@@ -388,20 +393,32 @@ public class BTextField extends BTextComponent
     protected void recreateGlyphs ()
     {
         clearGlyphs();
+        _gfact = getTextFactory();
+        _glyphs = new SegmentedText(_gfact, getColor(), BConstants.PLAIN, SEGMENT_LENGTH);
+        if (isAdded()) {
+            _glyphs.wasAdded();
+        }
+        updateGlyphs();
+    }
+
+    /**
+     * Updates our glyphs to reflect our current text, recreating only the segments of text that
+     * have changed.
+     */
+    protected void updateGlyphs ()
+    {
+        if (_glyphs == null) {
+            recreateGlyphs();
+            return;
+        }
+
+        _glyphs.setText(getDisplayText());
 
         // if we have no text, clear out all our internal markers
         if (_text.getLength() == 0) {
             _txoff = _cursp = _cursx = 0;
             return;
         }
-
-        // format our text and determine how much of it we can display
-        _glyphs = getTextFactory().createText(
-            getDisplayText(), getColor(), BConstants.PLAIN,
-            BConstants.DEFAULT_SIZE, null, true);
-        if (isAdded()) {
-            _glyphs.wasAdded();
-        }
         setCursorPos(_cursp);
     }
 
@@ -414,6 +431,7 @@ public class BTextField extends BTextComponent
             _glyphs.wasRemoved();
         }
         _glyphs = null;
+        _gfact = null;
     }
 
     /**
@@ -434,6 +452,7 @@ public class BTextField extends BTextComponent
     {
         // note the new cursor character position
         _cursp = cursorPos;
+        repaint();
 
         // compute the new cursor screen position
         if (_glyphs != null) {
@@ -457,12 +476,18 @@ public class BTextField extends BTextComponent
     }
 
     protected Document _text;
-    protected BText _glyphs;
+    protected SegmentedText _glyphs;
+    protected BTextFactory _gfact;
     protected BKeyMap _keymap;
 
     protected int _prefWidth = -1;
     protected boolean _showCursor;
     protected int _cursp, _cursx, _txoff;
 
-    protected Rectangle _srect = new Rectangle();
+    /** Holds the end points of our cursor line. */
+    protected float[] _cpoints = new float[4];
+
+    /** The maximum number of characters rendered as a unit, so that editing a long line of text
+     * need only rerender the segment containing the edit. */
+    protected static final int SEGMENT_LENGTH = 16;
 }
@@ -5,6 +5,7 @@
 
 package com.jmex.bui;
 
+import com.jme.renderer.Renderer;
 import com.jme.system.DisplaySystem;
 
 import com.jmex.bui.layout.BLayoutManager;
@@ -146,6 +147,127 @@ public class BWindow extends BContainer
         }
     }
 
+    /**
+     * Configures this window to retain its rendering between frames. A retained window renders
+     * itself into an offscreen texture, which is composited onto the display every frame, and
+     * only rerenders that texture when something in the window changes (see {@link
+     * BComponent#repaint}). This is useful for windows that change infrequently. Windows that
+     * contain a {@link BGeomView} should not be retained.
+     *
+     * <p> If the render backend does not support offscreen rendering, the window is rendered
+     * normally.
+     */
+    public void setRetained (boolean retained)
+    {
+        if (_retained != retained) {
+            _retained = retained;
+            _dirty = true;
+            if (!retained) {
+                releaseTarget();
+            }
+        }
+    }
+
+    /**
+     * Returns true if this window retains its rendering between frames.
+     */
+    public boolean isRetained ()
+    {
+        return _retained;
+    }
+
+    /**
+     * Returns true if this window has changed since it was last rendered (this is only tracked
+     * for retained windows).
+     */
+    public boolean isDirty ()
+    {
+        return _dirty;
+    }
+
+    /**
+     * Returns the number of frames in which this (retained) window was composited from its
+     * offscreen texture without being rerendered.
+     */
+    public int getCacheHits ()
+    {
+        return _cacheHits;
+    }
+
+    /**
+     * Returns the number of frames in which this (retained) window had to be rerendered.
+     */
+    public int getCacheMisses ()
+    {
+        return _cacheMisses;
+    }
+
+    /**
+     * Returns the fraction of frames in which this (retained) window was not rerendered.
+     */
+    public float getCacheHitRate ()
+    {
+        int frames = _cacheHits + _cacheMisses;
+        return (frames == 0) ? 0f : _cacheHits / (float)frames;
+    }
+
+    /**
+     * Resets this window's render cache statistics.
+     */
+    public void resetCacheStats ()
+    {
+        _cacheHits = _cacheMisses = 0;
+    }
+
+    @Override // from BComponent
+    public void repaint ()
+    {
+        _dirty = true;
+    }
+
+    @Override // from BComponent
+    public void render (Renderer renderer)
+    {
+        if (!_retained || !_visible || _width <= 0 || _height <= 0) {
+            super.render(renderer);
+            return;
+        }
+
+        // (re)create our offscreen target if necessary
+        QuadBatch batch = getQuadBatch();
+        if (_target == 0 || _twidth != _width || _theight != _height) {
+            releaseTarget();
+            _target = batch.getBackend().createTarget(_width, _height);
+            if (_target == 0) {
+                Log.log.warning("Offscreen rendering not supported, not retaining " + this + ".");
+                _retained = false;
+                super.render(renderer);
+                return;
+            }
+            _twidth = _width;
+            _theight = _height;
+            _dirty = true;
+        }
+
+        // rerender into our target if anything has changed
+        if (_dirty) {
+            _dirty = false;
+            _cacheMisses++;
+            batch.beginTarget(_target);
+            batch.translate(-_x, -_y);
+            try {
+                super.render(renderer);
+            } finally {
+                batch.translate(_x, _y);
+                batch.endTarget();
+            }
+        } else {
+            _cacheHits++;
+        }
+
+        batch.drawTarget(_target, _x, _y, _width, _height);
+    }
+
     // documentation inherited from interface Comparable
     public int compareTo (BWindow other)
     {
@@ -234,6 +356,24 @@ public class BWindow extends BContainer
         }
     }
 
+    @Override // from BContainer
+    protected void wasRemoved ()
+    {
+        super.wasRemoved();
+        releaseTarget();
+    }
+
+    /**
+     * Releases our offscreen render target, if we have one.
+     */
+    protected void releaseTarget ()
+    {
+        if (_target != 0) {
+            getRenderBackend().deleteTarget(_target);
+            _target = 0;
+        }
+    }
+
     /**
      * Requests that the specified component be given the input focus.
      */
@@ -274,4 +414,13 @@ public class BWindow extends BContainer
 
     /** Used to associate this window with a parent window. */
     protected BWindow _parentWindow;
+
+    /** Whether we retain our rendering between frames and whether it is out of date. */
+    protected boolean _retained, _dirty;
+
+    /** The offscreen target into which we render when retained and its size. */
+    protected int _target, _twidth, _theight;
+
+    /** Render cache statistics. */
+    protected int _cacheHits, _cacheMisses;
 }
@@ -38,12 +38,33 @@ public class CanvasRootNode extends BRootNode
         return System.currentTimeMillis();
     }
 
+    /**
+     * Configures whether invalid roots are validated immediately (the default) or queued and
+     * validated once per frame when our world data is updated.
+     */
+    public void setDeferValidation (boolean defer)
+    {
+        _deferValidation = defer;
+    }
+
     // documentation inherited
     public void rootInvalidated (BComponent root)
     {
-        // TODO: queue up an event to revalidate this component; for now we'll
-        // just emulate the old behavior which was to validate every time
-        root.validate();
+        if (_deferValidation) {
+            _validationQueue.add(root);
+        } else {
+            // emulate the old behavior which was to validate every time
+            root.validate();
+        }
+    }
+
+    // documentation inherited
+    public void updateWorldData (float timePerFrame)
+    {
+        super.updateWorldData(timePerFrame);
+
+        // validate any roots queued since the last frame
+        _validationQueue.validate();
     }
 
     // documentation inherited from interface MouseListener
@@ -371,4 +392,5 @@ public class CanvasRootNode extends BRootNode
     }
     
     protected Canvas _canvas;
+    protected boolean _deferValidation;
 }
@@ -0,0 +1,330 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+
+import org.lwjgl.opengl.ContextCapabilities;
+import org.lwjgl.opengl.EXTFramebufferObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GLContext;
+
+import com.jme.renderer.RenderContext;
+import com.jme.renderer.Renderer;
+import com.jme.scene.state.RenderState;
+import com.jme.scene.state.TextureState;
+import com.jme.scene.state.lwjgl.records.LineRecord;
+import com.jme.system.DisplaySystem;
+import com.jme.util.geom.BufferUtils;
+
+/**
+ * Renders the user interface using OpenGL (via LWJGL) in immediate mode.
+ */
+public class GLRenderBackend
+    implements RenderBackend
+{
+    // from interface RenderBackend
+    public void beginFrame ()
+    {
+        _tx = _ty = 0;
+    }
+
+    // from interface RenderBackend
+    public void endFrame ()
+    {
+    }
+
+    // from interface RenderBackend
+    public void translate (int dx, int dy)
+    {
+        _tx += dx;
+        _ty += dy;
+        GL11.glTranslatef(dx, dy, 0);
+    }
+
+    // from interface RenderBackend
+    public void resetStates ()
+    {
+        RenderContext ctx = DisplaySystem.getDisplaySystem().getCurrentContext();
+        for (int ii = 0; ii < Renderer.defaultStateList.length; ii++) {
+            if (Renderer.defaultStateList[ii] != null &&
+                Renderer.defaultStateList[ii] != ctx.getCurrentState(ii)) {
+                Renderer.defaultStateList[ii].apply();
+            }
+        }
+    }
+
+    // from interface RenderBackend
+    public void setBlending (boolean blend)
+    {
+        if (blend) {
+            BImage.getBlendState().apply();
+            if (_target != null) {
+                // accumulate premultiplied color and proper coverage in offscreen targets
+                GL14.glBlendFuncSeparate(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA,
+                                         GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+            }
+        } else {
+            Renderer.defaultStateList[RenderState.RS_ALPHA].apply();
+        }
+    }
+
+    // from interface RenderBackend
+    public void bindTexture (TextureState tstate)
+    {
+        if (tstate != null) {
+            tstate.apply();
+        } else {
+            Renderer.defaultStateList[RenderState.RS_TEXTURE].apply();
+        }
+    }
+
+    // from interface RenderBackend
+    public void setScissorBox (int x, int y, int width, int height)
+    {
+        GL11.glEnable(GL11.GL_SCISSOR_TEST);
+        GL11.glScissor(x, y, width, height);
+    }
+
+    // from interface RenderBackend
+    public void disableScissor ()
+    {
+        GL11.glDisable(GL11.GL_SCISSOR_TEST);
+    }
+
+    // from interface RenderBackend
+    public void drawQuad (float x, float y, float width, float height,
+                          float r, float g, float b, float a)
+    {
+        GL11.glColor4f(r, g, b, a);
+        GL11.glBegin(GL11.GL_QUADS);
+        GL11.glVertex2f(x, y);
+        GL11.glVertex2f(x + width, y);
+        GL11.glVertex2f(x + width, y + height);
+        GL11.glVertex2f(x, y + height);
+        GL11.glEnd();
+    }
+
+    // from interface RenderBackend
+    public void drawQuads (float[] data, int count)
+    {
+        // the quad coordinates are relative to the origin in effect at the start of the frame, so
+        // we undo our translation while drawing
+        GL11.glPushMatrix();
+        GL11.glTranslatef(-_tx, -_ty, 0);
+        GL11.glBegin(GL11.GL_QUADS);
+        float cr = -1, cg = -1, cb = -1, ca = -1;
+        for (int ii = 0, idx = 0; ii < count; ii++, idx += QuadBatch.QUAD_SIZE) {
+            float x1 = data[idx], y1 = data[idx+1], x2 = data[idx+2], y2 = data[idx+3];
+            float u1 = data[idx+4], v1 = data[idx+5], u2 = data[idx+6], v2 = data[idx+7];
+            float r = data[idx+8], g = data[idx+9], b = data[idx+10], a = data[idx+11];
+            if (r != cr || g != cg || b != cb || a != ca) {
+                GL11.glColor4f(cr = r, cg = g, cb = b, ca = a);
+            }
+            GL11.glTexCoord2f(u1, v1);
+            GL11.glVertex2f(x1, y1);
+            GL11.glTexCoord2f(u2, v1);
+            GL11.glVertex2f(x2, y1);
+            GL11.glTexCoord2f(u2, v2);
+            GL11.glVertex2f(x2, y2);
+            GL11.glTexCoord2f(u1, v2);
+            GL11.glVertex2f(x1, y2);
+        }
+        GL11.glEnd();
+        GL11.glPopMatrix();
+    }
+
+    // from interface RenderBackend
+    public int createTarget (int width, int height)
+    {
+        ContextCapabilities caps = GLContext.getCapabilities();
+        if (!caps.GL_EXT_framebuffer_object || !caps.OpenGL14) {
+            return 0;
+        }
+
+        Target target = new Target();
+        target.twidth = nextPOT(width);
+        target.theight = nextPOT(height);
+
+        // create the texture, preserving the binding on which jME's state tracking relies
+        int obinding = getTextureBinding();
+        GL11.glGenTextures(_ibuf);
+        target.texture = _ibuf.get(0);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, target.texture);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, target.twidth, target.theight, 0,
+                          GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer)null);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, obinding);
+
+        // and the framebuffer that renders into it
+        EXTFramebufferObject.glGenFramebuffersEXT(_ibuf);
+        target.framebuffer = _ibuf.get(0);
+        EXTFramebufferObject.glBindFramebufferEXT(
+            EXTFramebufferObject.GL_FRAMEBUFFER_EXT, target.framebuffer);
+        EXTFramebufferObject.glFramebufferTexture2DEXT(
+            EXTFramebufferObject.GL_FRAMEBUFFER_EXT, EXTFramebufferObject.GL_COLOR_ATTACHMENT0_EXT,
+            GL11.GL_TEXTURE_2D, target.texture, 0);
+        int status = EXTFramebufferObject.glCheckFramebufferStatusEXT(
+            EXTFramebufferObject.GL_FRAMEBUFFER_EXT);
+        EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, 0);
+        if (status != EXTFramebufferObject.GL_FRAMEBUFFER_COMPLETE_EXT) {
+            Log.log.warning("Unable to create render target [width=" + width +
+                            ", height=" + height + ", status=" + status + "].");
+            deleteTarget(target);
+            return 0;
+        }
+
+        _targets.put(target.framebuffer, target);
+        return target.framebuffer;
+    }
+
+    // from interface RenderBackend
+    public void deleteTarget (int target)
+    {
+        Target tobj = _targets.remove(target);
+        if (tobj != null) {
+            deleteTarget(tobj);
+        }
+    }
+
+    // from interface RenderBackend
+    public void beginTarget (int target)
+    {
+        _target = _targets.get(target);
+        _otx = _tx;
+        _oty = _ty;
+        _tx = _ty = 0;
+
+        EXTFramebufferObject.glBindFramebufferEXT(
+            EXTFramebufferObject.GL_FRAMEBUFFER_EXT, _target.framebuffer);
+        GL11.glPushAttrib(GL11.GL_VIEWPORT_BIT | GL11.GL_COLOR_BUFFER_BIT);
+        GL11.glViewport(0, 0, _target.twidth, _target.theight);
+        GL11.glClearColor(0f, 0f, 0f, 0f);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glPushMatrix();
+        GL11.glLoadIdentity();
+        GL11.glOrtho(0, _target.twidth, 0, _target.theight, -1, 1);
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glPushMatrix();
+        GL11.glLoadIdentity();
+    }
+
+    // from interface RenderBackend
+    public void endTarget ()
+    {
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glPopMatrix();
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glPopMatrix();
+        GL11.glPopAttrib();
+        EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, 0);
+
+        // restore the standard blend function in case we changed it
+        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        _target = null;
+        _tx = _otx;
+        _ty = _oty;
+    }
+
+    // from interface RenderBackend
+    public void drawTarget (int target, int x, int y, int width, int height)
+    {
+        Target tobj = _targets.get(target);
+        if (tobj == null) {
+            return;
+        }
+
+        // the target contains premultiplied colors
+        setBlending(true);
+        GL11.glBlendFunc(GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        int obinding = getTextureBinding();
+        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, tobj.texture);
+
+        float u = width / (float)tobj.twidth, v = height / (float)tobj.theight;
+        GL11.glColor4f(1f, 1f, 1f, 1f);
+        GL11.glBegin(GL11.GL_QUADS);
+        GL11.glTexCoord2f(0, 0);
+        GL11.glVertex2f(x, y);
+        GL11.glTexCoord2f(u, 0);
+        GL11.glVertex2f(x + width, y);
+        GL11.glTexCoord2f(u, v);
+        GL11.glVertex2f(x + width, y + height);
+        GL11.glTexCoord2f(0, v);
+        GL11.glVertex2f(x, y + height);
+        GL11.glEnd();
+
+        // restore the state that jME expects
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, obinding);
+        GL11.glDisable(GL11.GL_TEXTURE_2D);
+        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    // from interface RenderBackend
+    public void drawLineStrip (float[] points, int count, float width,
+                               float r, float g, float b, float a)
+    {
+        RenderContext ctx = DisplaySystem.getDisplaySystem().getCurrentContext();
+        ((LineRecord)ctx.getLineRecord()).applyLineWidth(width);
+        GL11.glColor4f(r, g, b, a);
+        GL11.glBegin(GL11.GL_LINE_STRIP);
+        for (int ii = 0, idx = 0; ii < count; ii++, idx += 2) {
+            GL11.glVertex2f(points[idx], points[idx+1]);
+        }
+        GL11.glEnd();
+    }
+
+    protected void deleteTarget (Target target)
+    {
+        if (target.framebuffer != 0) {
+            _ibuf.put(0, target.framebuffer);
+            EXTFramebufferObject.glDeleteFramebuffersEXT(_ibuf);
+        }
+        _ibuf.put(0, target.texture);
+        GL11.glDeleteTextures(_ibuf);
+    }
+
+    protected int getTextureBinding ()
+    {
+        GL11.glGetInteger(GL11.GL_TEXTURE_BINDING_2D, _qbuf);
+        return _qbuf.get(0);
+    }
+
+    protected static int nextPOT (int value)
+    {
+        int pot = 1;
+        while (pot < value) {
+            pot *= 2;
+        }
+        return pot;
+    }
+
+    /** Describes an offscreen render target. */
+    protected static class Target
+    {
+        public int framebuffer, texture;
+        public int twidth, theight;
+    }
+
+    /** Our tracking of the current translation (and that saved while rendering to a target). */
+    protected int _tx, _ty, _otx, _oty;
+
+    /** Our offscreen render targets, mapped by framebuffer id. */
+    protected HashMap<Integer, Target> _targets = new HashMap<Integer, Target>();
+
+    /** The target being rendered to, if any. */
+    protected Target _target;
+
+    /** Used to create and delete objects and to query state. */
+    protected IntBuffer _ibuf = BufferUtils.createIntBuffer(1);
+    protected IntBuffer _qbuf = BufferUtils.createIntBuffer(16);
+}
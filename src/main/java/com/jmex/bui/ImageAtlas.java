@@ -0,0 +1,406 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+import com.jme.renderer.ColorRGBA;
+import com.jme.renderer.Renderer;
+
+import com.jmex.bui.util.Rectangle;
+
+/**
+ * Packs small images into shared texture pages so that interfaces built from many small images
+ * (button and frame backgrounds, icons and the like) bind fewer textures and can be batched. The
+ * images handed out by the atlas render a region of a shared page but otherwise behave like any
+ * other {@link BImage}, so they can be used with {@link com.jmex.bui.background.ImageBackground}
+ * (in any mode), {@link com.jmex.bui.icon.ImageIcon}, etc.
+ *
+ * <p> Each packed image is surrounded by a gutter into which its edge pixels are extended so that
+ * filtering at the edges of the image (or any framed section thereof) never samples its
+ * neighbors. Pages are a power of two in size, so images packed into an atlas need not be padded
+ * to a power of two individually.
+ *
+ * <p> An atlas must only be used on the rendering thread, though the contents of reserved images
+ * may be published from any thread.
+ */
+public class ImageAtlas
+{
+    /**
+     * Creates an atlas with pages of the specified size (which should be a power of two) into
+     * which images no larger than the specified size in either dimension will be packed.
+     */
+    public ImageAtlas (int pageSize, int maxImageSize)
+    {
+        _pageSize = pageSize;
+        _maxImageSize = Math.min(maxImageSize, pageSize - 2*GUTTER);
+    }
+
+    /**
+     * Returns true if an image of the specified size will be packed into this atlas.
+     */
+    public boolean accepts (int width, int height)
+    {
+        return width > 0 && height > 0 && width <= _maxImageSize && height <= _maxImageSize;
+    }
+
+    /**
+     * Packs the supplied image into the atlas.
+     *
+     * @return an image that renders the packed region, or null if the image is too large to be
+     * packed.
+     */
+    public BImage add (java.awt.Image image)
+    {
+        Region region = (Region)reserve(image.getWidth(null), image.getHeight(null));
+        if (region != null) {
+            region.draw(image);
+        }
+        return region;
+    }
+
+    /**
+     * Reserves space in the atlas for an image of the specified size whose contents will be
+     * supplied later via {@link BImage#publishContents}. Until then it renders as a placeholder.
+     *
+     * @return the image or null if the image is too large to be packed.
+     */
+    public BImage reserve (int width, int height)
+    {
+        if (!accepts(width, height)) {
+            return null;
+        }
+
+        int pwidth = width + 2*GUTTER, pheight = height + 2*GUTTER;
+        Rectangle rect = null;
+        Page page = null;
+        for (int ii = 0, ll = _pages.size(); ii < ll && rect == null; ii++) {
+            page = _pages.get(ii);
+            rect = page.skyline.place(pwidth, pheight);
+        }
+        if (rect == null) {
+            page = createPage(_pageSize);
+            _pages.add(page);
+            rect = page.skyline.place(pwidth, pheight);
+        }
+        _images++;
+        _imageArea += width * height;
+        return new Region(page, rect.x + GUTTER, rect.y + GUTTER, width, height);
+    }
+
+    /**
+     * Returns the number of pages allocated by this atlas.
+     */
+    public int getPageCount ()
+    {
+        return _pages.size();
+    }
+
+    /**
+     * Returns the number of images packed into this atlas.
+     */
+    public int getImageCount ()
+    {
+        return _images;
+    }
+
+    /**
+     * Returns the fraction of the area of our pages that is occupied by images (excluding their
+     * gutters).
+     */
+    public float getEfficiency ()
+    {
+        long area = (long)_pages.size() * _pageSize * _pageSize;
+        return (area == 0) ? 0f : _imageArea / (float)area;
+    }
+
+    /**
+     * Creates a new texture page of the specified size.
+     */
+    protected Page createPage (int size)
+    {
+        return new Page(size);
+    }
+
+    /** A single texture page. */
+    protected static class Page
+    {
+        public BufferedImage image;
+        public BImage bimage;
+        public Skyline skyline;
+        public boolean dirty = true;
+
+        public Page (int size) {
+            image = BImage.createCompatibleImage(size, size, true);
+            skyline = new Skyline(size, size);
+        }
+
+        public void reference () {
+            if (_referents == 0) {
+                // validate before noting the reference, so that the new texture is referenced
+                // only once (below)
+                validate();
+                bimage.reference();
+            }
+            _referents++;
+        }
+
+        public void release () {
+            if (--_referents == 0) {
+                bimage.release();
+            }
+        }
+
+        /**
+         * Notes that the specified rows of our image have been drawn into.
+         */
+        public void noteDirty (int y, int height) {
+            dirty = true;
+            _dirtyTop = Math.min(_dirtyTop, y);
+            _dirtyBottom = Math.max(_dirtyBottom, y + height);
+        }
+
+        /**
+         * Ensures that our texture contains all images drawn into the page so far.
+         */
+        public void validate () {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            int top = _dirtyTop, bottom = _dirtyBottom;
+            _dirtyTop = Integer.MAX_VALUE;
+            _dirtyBottom = 0;
+
+            // once our texture is created, only the rows containing new images need uploading
+            if (bimage == null) {
+                bimage = createImage();
+            } else {
+                bimage.updateRows(top, bottom - top);
+            }
+        }
+
+        /**
+         * Creates the texture image for our current contents.
+         */
+        protected BImage createImage () {
+            BImage bimage = new BImage(image);
+            // packed images are generally drawn at their natural size
+            bimage.setUsage(BImage.USAGE_ICON);
+            return bimage;
+        }
+
+        protected int _referents;
+
+        /** The rows drawn into since we were last validated. */
+        protected int _dirtyTop = Integer.MAX_VALUE, _dirtyBottom;
+    }
+
+    /** An image that renders a region of a page. */
+    protected static class Region extends BImage
+    {
+        public Region (Page page, int x, int y, int width, int height) {
+            super("atlas", width, height);
+            _page = page;
+            _x = x;
+            _y = y;
+            _loading = true;
+        }
+
+        @Override // from BImage
+        public void reference () {
+            if (_referents++ == 0) {
+                _page.reference();
+            }
+        }
+
+        @Override // from BImage
+        public void release () {
+            if (_referents == 0) {
+                Log.log.warning("Unreferenced image released " + this + "!");
+                Thread.dumpStack();
+            } else if (--_referents == 0) {
+                _page.release();
+            }
+        }
+
+        @Override // from BImage
+        public boolean isResident () {
+            return _referents > 0 && !_loading && !_page.dirty && _page.bimage.isResident();
+        }
+
+        @Override // from BImage
+        public void ensureResident () {
+            if (_referents > 0) {
+                _page.validate();
+                _page.bimage.ensureResident();
+            }
+        }
+
+        @Override // from BImage
+        public void render (Renderer renderer, int sx, int sy, int swidth, int sheight,
+                            int tx, int ty, int twidth, int theight, ColorRGBA color,
+                            float alpha) {
+            if (_referents == 0) {
+                Log.log.warning("Unreferenced image rendered " + this + "!");
+                Thread.dumpStack();
+                return;
+            }
+            if (_loading) {
+                renderPlaceholder(tx, ty, twidth, theight, alpha);
+                return;
+            }
+            // our source coordinates are relative to our bottom edge, as is the page's texture
+            _page.validate();
+            int pheight = _page.bimage.getHeight();
+            _page.bimage.render(renderer, _x + sx, pheight - _y - _height + sy, swidth, sheight,
+                                tx, ty, twidth, theight, color, alpha);
+        }
+
+        @Override // from BImage
+        protected void installContents () {
+            BufferedImage contents = _contents;
+            _contents = null;
+            draw(contents);
+        }
+
+        /**
+         * Draws the supplied image into our region of the page, extending its edges into the
+         * surrounding gutter.
+         */
+        protected void draw (java.awt.Image image) {
+            int x = _x, y = _y, w = _width, h = _height, g = GUTTER;
+            Graphics2D gfx = _page.image.createGraphics();
+            try {
+                gfx.setComposite(AlphaComposite.Src);
+                gfx.drawImage(image, x, y, null);
+                // edges
+                gfx.drawImage(image, x-g, y, x, y+h, 0, 0, 1, h, null);
+                gfx.drawImage(image, x+w, y, x+w+g, y+h, w-1, 0, w, h, null);
+                gfx.drawImage(image, x, y-g, x+w, y, 0, 0, w, 1, null);
+                gfx.drawImage(image, x, y+h, x+w, y+h+g, 0, h-1, w, h, null);
+                // corners
+                gfx.drawImage(image, x-g, y-g, x, y, 0, 0, 1, 1, null);
+                gfx.drawImage(image, x+w, y-g, x+w+g, y, w-1, 0, w, 1, null);
+                gfx.drawImage(image, x-g, y+h, x, y+h+g, 0, h-1, 1, h, null);
+                gfx.drawImage(image, x+w, y+h, x+w+g, y+h+g, w-1, h-1, w, h, null);
+            } finally {
+                gfx.dispose();
+            }
+            _page.noteDirty(y - g, h + 2*g);
+            _loading = false;
+        }
+
+        protected Page _page;
+        protected int _x, _y;
+    }
+
+    /**
+     * Packs rectangles into a fixed size area by tracking the "skyline" formed by the tops of the
+     * rectangles placed so far and placing each new rectangle as low (here, as close to the top
+     * of the page) as possible.
+     */
+    protected static class Skyline
+    {
+        public Skyline (int width, int height) {
+            _width = width;
+            _height = height;
+            _segments.add(new int[] { 0, 0, width });
+        }
+
+        /**
+         * Finds a place for a rectangle of the specified size and adds it to the skyline.
+         *
+         * @return the placed rectangle (in coordinates with y increasing downward), or null if
+         * the rectangle does not fit.
+         */
+        public Rectangle place (int width, int height) {
+            int best = -1, bestY = Integer.MAX_VALUE, bestWidth = Integer.MAX_VALUE;
+            for (int ii = 0, ll = _segments.size(); ii < ll; ii++) {
+                int y = fit(ii, width, height);
+                int swidth = _segments.get(ii)[2];
+                if (y >= 0 && (y < bestY || (y == bestY && swidth < bestWidth))) {
+                    best = ii;
+                    bestY = y;
+                    bestWidth = swidth;
+                }
+            }
+            if (best == -1) {
+                return null;
+            }
+            int x = _segments.get(best)[0];
+            add(best, x, bestY + height, width);
+            return new Rectangle(x, bestY, width, height);
+        }
+
+        /**
+         * Returns the y position at which a rectangle of the specified size would sit if its
+         * left edge were placed at the start of the specified segment, or -1 if it does not fit.
+         */
+        protected int fit (int index, int width, int height) {
+            int x = _segments.get(index)[0];
+            if (x + width > _width) {
+                return -1;
+            }
+            int y = 0;
+            for (int ii = index, remain = width; remain > 0; ii++) {
+                int[] seg = _segments.get(ii);
+                y = Math.max(y, seg[1]);
+                if (y + height > _height) {
+                    return -1;
+                }
+                remain -= seg[2];
+            }
+            return y;
+        }
+
+        /**
+         * Adds a segment to the skyline, trimming the segments it covers.
+         */
+        protected void add (int index, int x, int y, int width) {
+            _segments.add(index, new int[] { x, y, width });
+            for (int ii = index + 1; ii < _segments.size(); ii++) {
+                int[] seg = _segments.get(ii), prev = _segments.get(ii-1);
+                int overlap = prev[0] + prev[2] - seg[0];
+                if (overlap <= 0) {
+                    break;
+                }
+                seg[0] += overlap;
+                seg[2] -= overlap;
+                if (seg[2] > 0) {
+                    break;
+                }
+                _segments.remove(ii--);
+            }
+            // merge adjacent segments at the same height
+            for (int ii = 0; ii < _segments.size() - 1; ) {
+                int[] seg = _segments.get(ii), next = _segments.get(ii+1);
+                if (seg[1] == next[1]) {
+                    seg[2] += next[2];
+                    _segments.remove(ii+1);
+                } else {
+                    ii++;
+                }
+            }
+        }
+
+        protected int _width, _height;
+
+        /** The skyline segments, each of which is { x, y, width }, in order of x. */
+        protected ArrayList<int[]> _segments = new ArrayList<int[]>();
+    }
+
+    protected int _pageSize, _maxImageSize;
+    protected ArrayList<Page> _pages = new ArrayList<Page>();
+    protected int _images;
+    protected long _imageArea;
+
+    /** The number of pixels between packed images (and the edges of the page). */
+    protected static final int GUTTER = 1;
+}
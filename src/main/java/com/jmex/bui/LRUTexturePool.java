@@ -0,0 +1,379 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import org.lwjgl.opengl.GL11;
+
+import com.jme.image.Image;
+import com.jme.image.Texture;
+import com.jme.scene.state.TextureState;
+import com.jme.util.geom.BufferUtils;
+
+/**
+ * A texture pool that keeps textures resident in graphics memory after they are released, up to a
+ * configurable budget. Released textures are evicted in least recently used order once the budget
+ * is exceeded and the OpenGL texture objects of evicted textures are recycled for new textures of
+ * the same size and format (where possible) rather than being deleted and regenerated.
+ *
+ * <p> Textures that are referenced are never evicted, so the budget may be exceeded if more
+ * texture memory than it allows is in use at once.
+ */
+public class LRUTexturePool
+    implements BImage.TexturePool
+{
+    /**
+     * Creates a texture pool that will keep at most the specified number of bytes of texture
+     * data resident.
+     */
+    public LRUTexturePool (long budget)
+    {
+        _budget = budget;
+    }
+
+    /**
+     * Configures the number of bytes of texture data that we will keep resident, evicting
+     * released textures if necessary.
+     */
+    public void setBudget (long budget)
+    {
+        _budget = budget;
+        trim();
+    }
+
+    /**
+     * Returns the number of bytes of texture data that we will keep resident.
+     */
+    public long getBudget ()
+    {
+        return _budget;
+    }
+
+    /**
+     * Returns the number of bytes of texture data currently resident, including released textures
+     * and recycled texture objects awaiting reuse.
+     */
+    public long getResidentBytes ()
+    {
+        return _resident;
+    }
+
+    /**
+     * Returns the number of textures currently resident (referenced or not).
+     */
+    public int getResidentCount ()
+    {
+        return _entries.size();
+    }
+
+    /**
+     * Returns the number of textures uploaded to graphics memory.
+     */
+    public int getUploads ()
+    {
+        return _uploads;
+    }
+
+    /**
+     * Returns the number of uploads that reused the texture object of an evicted texture.
+     */
+    public int getRecycles ()
+    {
+        return _recycles;
+    }
+
+    /**
+     * Returns the number of released textures evicted to stay within our budget.
+     */
+    public int getEvictions ()
+    {
+        return _evictions;
+    }
+
+    /**
+     * Returns the number of times a released texture was acquired again while still resident
+     * (and thus did not need to be uploaded).
+     */
+    public int getHits ()
+    {
+        return _hits;
+    }
+
+    /**
+     * Resets our upload, recycle, eviction and hit counts.
+     */
+    public void resetStats ()
+    {
+        _uploads = _recycles = _evictions = _hits = 0;
+    }
+
+    // from interface BImage.TexturePool
+    public void acquireTextures (TextureState tstate)
+    {
+        for (int ii = 0, nn = tstate.getNumberOfSetTextures(); ii < nn; ii++) {
+            Texture texture = tstate.getTexture(ii);
+            if (texture != null) {
+                acquireTexture(tstate, texture);
+            }
+        }
+    }
+
+    // from interface BImage.TexturePool
+    public void releaseTextures (TextureState tstate)
+    {
+        for (int ii = 0, nn = tstate.getNumberOfSetTextures(); ii < nn; ii++) {
+            Texture texture = tstate.getTexture(ii);
+            if (texture != null) {
+                releaseTexture(texture);
+            }
+        }
+    }
+
+    /**
+     * Acquires a reference to the specified texture, uploading it if it is not resident.
+     */
+    protected void acquireTexture (TextureState tstate, Texture texture)
+    {
+        Entry entry = _entries.get(texture);
+        if (entry != null) {
+            if (entry.refs++ == 0) {
+                _idle.remove(entry);
+                _hits++;
+            }
+            return;
+        }
+
+        entry = new Entry(texture);
+        _entries.put(texture, entry);
+
+        // reuse the texture object of an evicted texture of the same class if we can, evicting
+        // released textures to make room as necessary
+        Entry free = takeFree(entry);
+        while (free == null && _resident + entry.bytes > _budget) {
+            if (!_free.isEmpty()) {
+                deleteFree();
+            } else if (!_idle.isEmpty()) {
+                evict(_idle.iterator().next());
+                free = takeFree(entry);
+            } else {
+                break;
+            }
+        }
+        if (free != null) {
+            texture.setTextureId(free.id);
+            reloadTexture(texture);
+            _recycles++;
+        } else {
+            loadTexture(tstate, texture);
+        }
+        entry.id = texture.getTextureId();
+        _resident += entry.bytes;
+        _uploads++;
+        trim();
+    }
+
+    /**
+     * Releases a reference to the specified texture, which will remain resident until it is
+     * evicted to make room for other textures.
+     */
+    protected void releaseTexture (Texture texture)
+    {
+        Entry entry = _entries.get(texture);
+        if (entry == null) {
+            Log.log.warning("Released texture not in pool " + texture + ".");
+            return;
+        }
+        if (--entry.refs == 0) {
+            _idle.add(entry);
+            trim();
+        }
+    }
+
+    /**
+     * Evicts released textures and deletes unused texture objects until we are within our budget.
+     */
+    protected void trim ()
+    {
+        while (_resident > _budget) {
+            if (!_free.isEmpty()) {
+                deleteFree();
+            } else if (!_idle.isEmpty()) {
+                evict(_idle.iterator().next());
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Evicts the specified released texture, retaining its texture object for reuse if possible.
+     */
+    protected void evict (Entry entry)
+    {
+        _idle.remove(entry);
+        _entries.remove(entry.texture);
+        entry.texture.setTextureId(0);
+        _evictions++;
+        if (entry.format != -1) {
+            entry.texture = null;
+            _free.add(entry);
+        } else {
+            _resident -= entry.bytes;
+            deleteTexture(entry.id);
+        }
+    }
+
+    /**
+     * Deletes the least recently evicted unused texture object.
+     */
+    protected void deleteFree ()
+    {
+        Entry free = _free.remove(0);
+        _resident -= free.bytes;
+        deleteTexture(free.id);
+    }
+
+    /**
+     * Removes and returns an unused texture object of the same class as the supplied entry, or
+     * null if we have none.
+     */
+    protected Entry takeFree (Entry entry)
+    {
+        if (entry.format == -1) {
+            return null;
+        }
+        for (Iterator<Entry> iter = _free.iterator(); iter.hasNext(); ) {
+            Entry free = iter.next();
+            if (free.sameClass(entry)) {
+                iter.remove();
+                _resident -= free.bytes;
+                return free;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Uploads the specified texture into a newly created texture object.
+     */
+    protected void loadTexture (TextureState tstate, Texture texture)
+    {
+        tstate.apply();
+    }
+
+    /**
+     * Uploads the specified texture into its existing (recycled) texture object, which has the
+     * same size and format.
+     */
+    protected void reloadTexture (Texture texture)
+    {
+        Image image = texture.getImage();
+        GL11.glGetInteger(GL11.GL_TEXTURE_BINDING_2D, _qbuf);
+        int obinding = _qbuf.get(0);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture.getTextureId());
+        ByteBuffer data = image.getData();
+        data.rewind();
+        GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, 0, image.getWidth(), image.getHeight(),
+                             getFormat(image), GL11.GL_UNSIGNED_BYTE, data);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, obinding);
+    }
+
+    /**
+     * Deletes the specified texture object.
+     */
+    protected void deleteTexture (int id)
+    {
+        _ibuf.clear();
+        _ibuf.put(id).flip();
+        GL11.glDeleteTextures(_ibuf);
+    }
+
+    /**
+     * Returns the OpenGL format of the supplied image's data, or -1 if we do not know how to
+     * upload it ourselves (in which case its texture objects are not recycled).
+     */
+    protected static int getFormat (Image image)
+    {
+        switch (image.getType()) {
+        case Image.RGBA8888: return GL11.GL_RGBA;
+        case Image.RGB888: return GL11.GL_RGB;
+        case Image.RA88: return GL11.GL_LUMINANCE_ALPHA;
+        case Image.A8: return GL11.GL_ALPHA;
+        default: return -1;
+        }
+    }
+
+    /** Tracks a resident texture (or an unused texture object awaiting reuse). */
+    protected static class Entry
+    {
+        /** The texture, or null if this entry tracks an unused texture object. */
+        public Texture texture;
+
+        /** The texture object in which the texture is resident. */
+        public int id;
+
+        /** The number of references to the texture. */
+        public int refs = 1;
+
+        /** The texture's size class. */
+        public int width, height, format, filter, mipmap;
+
+        /** The size of the texture's data in bytes. */
+        public long bytes;
+
+        public Entry (Texture texture) {
+            this.texture = texture;
+            Image image = texture.getImage();
+            ByteBuffer data = (image == null) ? null : image.getData();
+            if (data != null) {
+                width = image.getWidth();
+                height = image.getHeight();
+                bytes = data.limit();
+            }
+            // we only recycle texture objects for images we know how to upload and whose
+            // mipmaps (if any) are generated at load time
+            format = (data == null || isMipmapped(texture)) ? -1 : getFormat(image);
+            filter = texture.getFilter();
+            mipmap = texture.getMipmap();
+        }
+
+        public boolean sameClass (Entry other) {
+            return width == other.width && height == other.height && format == other.format &&
+                filter == other.filter && mipmap == other.mipmap;
+        }
+
+        protected static boolean isMipmapped (Texture texture) {
+            int mipmap = texture.getMipmap();
+            return mipmap != Texture.MM_NONE && mipmap != Texture.MM_NEAREST &&
+                mipmap != Texture.MM_LINEAR;
+        }
+    }
+
+    /** Our budget in bytes and the number of bytes resident. */
+    protected long _budget, _resident;
+
+    /** All resident textures. */
+    protected IdentityHashMap<Texture, Entry> _entries = new IdentityHashMap<Texture, Entry>();
+
+    /** Released textures in least recently released order. */
+    protected LinkedHashSet<Entry> _idle = new LinkedHashSet<Entry>();
+
+    /** Texture objects of evicted textures awaiting reuse, in order of eviction. */
+    protected ArrayList<Entry> _free = new ArrayList<Entry>();
+
+    /** Statistics. */
+    protected int _uploads, _recycles, _evictions, _hits;
+
+    /** Used to communicate with OpenGL. */
+    protected IntBuffer _ibuf = BufferUtils.createIntBuffer(1);
+    protected IntBuffer _qbuf = BufferUtils.createIntBuffer(16);
+}
@@ -5,8 +5,6 @@
 
 package com.jmex.bui;
 
-import org.lwjgl.opengl.GL11;
-
 import com.jme.renderer.ColorRGBA;
 import com.jme.renderer.Renderer;
 
@@ -15,7 +13,6 @@ import com.jmex.bui.text.BText;
 import com.jmex.bui.text.BTextFactory;
 import com.jmex.bui.util.Dimension;
 import com.jmex.bui.util.Insets;
-import com.jmex.bui.util.Rectangle;
 
 /**
  * Handles the underlying layout and rendering for {@link BLabel} and {@link BButton}.
@@ -164,10 +161,11 @@ public class Label
      */
     public Dimension computePreferredSize (int whint, int hhint)
     {
-        // if our cached preferred size is not valid, recompute it
-        Config prefconfig = layoutConfig(_prefconfig, whint > 0 ? whint : Short.MAX_VALUE-1);
+        // if our cached preferred size is not valid, recompute it; we need only measure the text
+        // here, it will be rendered when we are laid out
+        Config prefconfig = layoutConfig(
+            _prefconfig, whint > 0 ? whint : Short.MAX_VALUE-1, false);
         _prefsize = computeSize(_prefconfig = prefconfig);
-        prefconfig.glyphs = null; // we don't need to retain these
         return new Dimension(_prefsize);
     }
 
@@ -177,7 +175,7 @@ public class Label
     public void layout (Insets insets, int contWidth, int contHeight)
     {
         // compute any offsets needed to center or align things
-        Config config = layoutConfig(_config, contWidth - insets.getHorizontal());
+        Config config = layoutConfig(_config, contWidth - insets.getHorizontal(), true);
         Dimension size = computeSize(config);
         int xoff = 0, yoff = 0;
         switch (_orient) {
@@ -189,15 +187,15 @@ public class Label
             }
             if (config.glyphs != null) {
                 _tx = getXOffset(insets, contWidth, size.width) + xoff;
-                _ty = getYOffset(insets, contHeight, config.glyphs.size.height);
+                _ty = getYOffset(insets, contHeight, config.size.height);
             }
             break;
 
         case VERTICAL:
             if (config.glyphs != null) {
-                _tx = getXOffset(insets, contWidth, config.glyphs.size.width);
+                _tx = getXOffset(insets, contWidth, config.size.width);
                 _ty = getYOffset(insets, contHeight, size.height);
-                yoff = (config.glyphs.size.height + _gap);
+                yoff = (config.size.height + _gap);
             }
             if (_icon != null) {
                 _ix = getXOffset(insets, contWidth, _icon.getWidth());
@@ -211,8 +209,8 @@ public class Label
                 _iy = getYOffset(insets, contHeight, _icon.getHeight());
             }
             if (config.glyphs != null) {
-                _tx = getXOffset(insets, contWidth, config.glyphs.size.width);
-                _ty = getYOffset(insets, contHeight, config.glyphs.size.height);
+                _tx = getXOffset(insets, contWidth, config.size.width);
+                _ty = getYOffset(insets, contHeight, config.size.height);
             }
             break;
         }
@@ -238,20 +236,22 @@ public class Label
      */
     public void render (Renderer renderer, int x, int y, int contWidth, int contHeight, float alpha)
     {
-        GL11.glTranslatef(x, y, 0);
+        QuadBatch batch = BComponent.getQuadBatch();
+        batch.translate(x, y);
         try {
             if (_icon != null) {
                 _icon.render(renderer, _ix, _iy, alpha);
             }
             if (_config != null && _config.glyphs != null) {
-                renderText(renderer, contWidth, contHeight, alpha);
+                renderText(renderer, x, y, contWidth, contHeight, alpha);
             }
         } finally {
-            GL11.glTranslatef(-x, -y, 0);
+            batch.translate(-x, -y);
         }
     }
 
-    protected void renderText (Renderer renderer, int contWidth, int contHeight, float alpha)
+    protected void renderText (
+        Renderer renderer, int x, int y, int contWidth, int contHeight, float alpha)
     {
         if (_fit == BLabel.Fit.WRAP) {
             _config.glyphs.render(
@@ -272,14 +272,14 @@ public class Label
             return;
         }
 
-        boolean scissored = BComponent.intersectScissorBox(
-            _srect, _container.getAbsoluteX() + insets.left,
-            _container.getAbsoluteY() + insets.bottom, width, height);
+        // we're translated by (x, y) relative to our container
+        QuadBatch batch = BComponent.getQuadBatch();
+        batch.pushClip(insets.left - x, insets.bottom - y, width, height);
         try {
             _config.glyphs.render(
                 renderer, _tx, _ty, _container.getHorizontalAlignment(), alpha, _config.spacing);
         } finally {
-            BComponent.restoreScissorState(scissored, _srect);
+            batch.popClip();
         }
     }
 
@@ -290,12 +290,12 @@ public class Label
             iwidth = _icon.getWidth();
             iheight = _icon.getHeight();
         }
-        if (config.glyphs != null) {
+        if (config.size != null) {
             if (_icon != null) {
                 gap = _gap;
             }
-            twidth = config.glyphs.size.width;
-            theight = config.glyphs.size.height;
+            twidth = config.size.width;
+            theight = config.size.height;
         }
 
         int width, height;
@@ -339,9 +339,12 @@ public class Label
     }
 
     /**
-     * Creates glyphs for the current text at the specified target width.
+     * Lays out the current text at the specified target width.
+     *
+     * @param render if true, glyphs will be created for the text, otherwise the text will only be
+     * measured.
      */
-    protected Config layoutConfig (Config oconfig, int twidth)
+    protected Config layoutConfig (Config oconfig, int twidth, boolean render)
     {
         // if we're not wrapping, force our target width
         if (_fit != BLabel.Fit.WRAP) {
@@ -356,10 +359,20 @@ public class Label
             }
         }
 
-        // no need to recreate our glyphs if our config hasn't changed
+        // no need to recreate our glyphs if our config hasn't changed or if only its colors have
+        // changed and our glyphs can be recolored
         Config config = _container.getLabelConfig(this, twidth);
-        if (oconfig != null && oconfig.glyphs != null && oconfig.matches(config, twidth)) {
-            return oconfig;
+        if (oconfig != null && oconfig.size != null && (oconfig.glyphs != null || !render) &&
+            oconfig.matchesLayout(config, twidth)) {
+            if (oconfig.matchesColors(config)) {
+                return oconfig;
+            }
+            if (oconfig.glyphs == null ||
+                oconfig.glyphs.setColors(config.color, config.effectColor)) {
+                oconfig.color = config.color;
+                oconfig.effectColor = config.effectColor;
+                return oconfig;
+            }
         }
 
         // if we have no text, we're done
@@ -375,21 +388,31 @@ public class Label
             return config;
         }
 
-        // render up some new text
+        // render up some new text or just measure it
         BTextFactory tfact = _container.getTextFactory(this);
-        Text text = new Text();
-        text.lines = tfact.wrapText(
-            _value, config.color, config.effect, config.effectSize, config.effectColor, twidth);
-        for (int ii = 0; ii < text.lines.length; ii++) {
-            text.size.width = Math.max(text.size.width, text.lines[ii].getSize().width);
-            text.size.height += text.lines[ii].getSize().height + (ii > 0 ? config.spacing : 0);
+        config.size = new Dimension();
+        if (render) {
+            Text text = new Text();
+            text.lines = tfact.wrapText(
+                _value, config.color, config.effect, config.effectSize, config.effectColor, twidth);
+            for (int ii = 0; ii < text.lines.length; ii++) {
+                addLine(config, text.lines[ii].getSize(), ii);
+            }
+            text.size = config.size;
+            config.glyphs = text;
+            config.lineCount = text.lines.length;
+        } else {
+            BTextFactory.WrappedLine[] lines = tfact.measureWrapped(
+                _value, config.effect, config.effectSize, twidth);
+            for (int ii = 0; ii < lines.length; ii++) {
+                addLine(config, lines[ii].size, ii);
+            }
+            config.lineCount = lines.length;
         }
-        config.glyphs = text;
 
         // if our old config is the same number of lines as our new config, expand the width region
         // that this configuration will match
-        if (oconfig != null && oconfig.glyphs != null &&
-            oconfig.glyphs.lines.length == config.glyphs.lines.length) {
+        if (oconfig != null && oconfig.size != null && oconfig.lineCount == config.lineCount) {
             config.minwidth = Math.min(config.minwidth, oconfig.minwidth);
             config.maxwidth = Math.max(config.maxwidth, oconfig.maxwidth);
         }
@@ -397,6 +420,12 @@ public class Label
         return config;
     }
 
+    protected void addLine (Config config, Dimension lsize, int index)
+    {
+        config.size.width = Math.max(config.size.width, lsize.width);
+        config.size.height += lsize.height + (index > 0 ? config.spacing : 0);
+    }
+
     protected void useConfig (Config config)
     {
         // make sure it's not the one we're already using
@@ -423,10 +452,24 @@ public class Label
         public int effectSize;
         public ColorRGBA effectColor;
         public int minwidth, maxwidth;
-        public Text glyphs;
         public int spacing;
 
+        /** The size of the laid out text and its number of lines (null and zero if there is no
+         * text to display). */
+        public Dimension size;
+        public int lineCount;
+
+        /** The rendered text, null if the text has only been measured. */
+        public Text glyphs;
+
         public boolean matches (Config other, int twidth) {
+            return matchesLayout(other, twidth) && matchesColors(other);
+        }
+
+        /**
+         * Returns true if the supplied config differs from this one at most in its colors.
+         */
+        public boolean matchesLayout (Config other, int twidth) {
             if (other == null) {
                 return false;
             }
@@ -438,20 +481,13 @@ public class Label
             if (text != other.text && (text == null || !text.equals(other.text))) {
                 return false;
             }
-            if (!color.equals(other.color)) {
-                return false;
-            }
-            if (effectColor != other.effectColor &&
-                (effectColor == null || !effectColor.equals(other.effectColor))) {
-                return false;
-            }
             if (effectSize != other.effectSize || spacing != other.spacing) {
                 return false;
             }
 
             // if we are only one line we are fine as long as we're less than or equal to the
             // target width (only if it is smaller than our minwidth might it cause us to wrap)
-            if (glyphs != null && glyphs.lines.length == 1 && minwidth <= twidth) {
+            if (lineCount == 1 && minwidth <= twidth) {
                 return true;
             }
 
@@ -459,6 +495,14 @@ public class Label
             return (minwidth <= twidth) && (twidth <= maxwidth);
         }
 
+        /**
+         * Returns true if the supplied config has the same colors as this one.
+         */
+        public boolean matchesColors (Config other) {
+            return color.equals(other.color) && (effectColor == other.effectColor ||
+                (effectColor != null && effectColor.equals(other.effectColor)));
+        }
+
         public String toString () {
             return text + "(" + toString(color) + "," + effect + "," + toString(effectColor) + "," +
                 minwidth + "<>" + maxwidth + ")";
@@ -512,6 +556,15 @@ public class Label
             lines[0].render(renderer, tx, ty, width, height, alpha);
         }
 
+        public boolean setColors (ColorRGBA color, ColorRGBA effectColor) {
+            for (int ii = 0; ii < lines.length; ii++) {
+                if (!lines[ii].setColors(color, effectColor)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         public void wasAdded () {
             for (int ii = 0; ii < lines.length; ii++) {
                 lines[ii].wasAdded();
@@ -541,6 +594,4 @@ public class Label
 
     protected Config _prefconfig;
     protected Dimension _prefsize;
-
-    protected Rectangle _srect = new Rectangle();
 }
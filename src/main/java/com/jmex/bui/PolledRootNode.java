@@ -5,8 +5,6 @@
 
 package com.jmex.bui;
 
-import java.util.ArrayList;
-
 import org.lwjgl.opengl.Display;
 
 import com.jme.input.InputHandler;
@@ -47,9 +45,7 @@ public class PolledRootNode extends BRootNode
     public void rootInvalidated (BComponent root)
     {
         // add the component to the list of invalid roots
-        if (!_invalidRoots.contains(root)) {
-            _invalidRoots.add(root);
-        }
+        _validationQueue.add(root);
     }
 
     // documentation inherited
@@ -92,13 +88,7 @@ public class PolledRootNode extends BRootNode
         }
 
         // validate all invalid roots
-        while (_invalidRoots.size() > 0) {
-            BComponent root = _invalidRoots.remove(0);
-            // make sure the root is still added to the view hierarchy
-            if (root.isAdded()) {
-                root.validate();
-            }
-        }
+        _validationQueue.validate();
     }
 
     // documentation inherited
@@ -205,7 +195,6 @@ public class PolledRootNode extends BRootNode
     protected long _tickStamp;
     protected Timer _timer;
     protected InputHandler _handler;
-    protected ArrayList<BComponent> _invalidRoots = new ArrayList<BComponent>();
 
     /** This is used for key repeat. */
     protected int _pressed = -1;
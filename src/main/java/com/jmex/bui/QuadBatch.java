@@ -0,0 +1,431 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import com.jme.image.Texture;
+import com.jme.scene.state.TextureState;
+
+import com.jmex.bui.util.Rectangle;
+
+/**
+ * Accumulates the textured quads rendered by {@link BImage} during a frame and issues them to
+ * the {@link RenderBackend} in as few draw calls as possible. Quads are drawn in the order in
+ * which they were added; the batch is flushed whenever the texture or blend state changes,
+ * whenever something needs to render directly with OpenGL (see {@link
+ * BComponent#applyDefaultStates}) and at the end of the frame.
+ *
+ * <p> Because quads are buffered, translations applied while rendering the interface must be made
+ * via {@link #translate} so that the batch can track the current offset on the CPU and position
+ * buffered quads correctly when they are finally drawn. Likewise, clipping must be done via {@link
+ * #pushClip} and {@link #popClip}: the batch maintains the stack of clip rectangles on the CPU and
+ * only changes the backend's scissor state when the effective clip rectangle actually changes.
+ */
+public class QuadBatch
+{
+    /**
+     * Configures the backend used to render the interface.
+     */
+    public void setBackend (RenderBackend backend)
+    {
+        _backend = backend;
+    }
+
+    /**
+     * Returns the backend used to render the interface.
+     */
+    public RenderBackend getBackend ()
+    {
+        return _backend;
+    }
+
+    /**
+     * Called by the root node at the start of every frame. Resets our statistics and the tracked
+     * translation and starts deferring the drawing of added quads.
+     */
+    public void begin ()
+    {
+        _backend.beginFrame();
+        _active = true;
+        _tx = _ty = 0;
+        _quads = _drawCalls = _textureChanges = _scissorChanges = 0;
+        _rendered = _culled = 0;
+        _clipDepth = 0;
+        _scissored = false;
+    }
+
+    /**
+     * Called by the root node at the end of every frame. Flushes any pending quads; quads added
+     * outside of a begin/end pair are drawn immediately.
+     */
+    public void end ()
+    {
+        if (_clipDepth > 0) {
+            Log.log.warning("Clip stack not empty at end of frame [depth=" + _clipDepth + "].");
+            _clipDepth = 0;
+        }
+        updateScissor();
+        flush();
+        _active = false;
+        _backend.endFrame();
+    }
+
+    /**
+     * Translates the rendering origin by the specified amount. This adjusts the backend's origin
+     * (for those rendering directly) as well as our CPU-side notion of the origin.
+     */
+    public void translate (int dx, int dy)
+    {
+        _tx += dx;
+        _ty += dy;
+        _backend.translate(dx, dy);
+    }
+
+    /**
+     * Returns the x component of the current translation relative to the start of the frame.
+     */
+    public int getTranslationX ()
+    {
+        return _tx;
+    }
+
+    /**
+     * Returns the y component of the current translation relative to the start of the frame.
+     */
+    public int getTranslationY ()
+    {
+        return _ty;
+    }
+
+    /**
+     * Intersects the current clip rectangle with the specified rectangle (relative to the current
+     * translation). Anything subsequently rendered is clipped to the result until the matching
+     * call to {@link #popClip}.
+     *
+     * @return false if the resulting clip rectangle is empty, true if not.
+     */
+    public boolean pushClip (int x, int y, int width, int height)
+    {
+        int x1 = x + _tx, y1 = y + _ty, x2 = x1 + width, y2 = y1 + height;
+        if (_clipDepth > 0) {
+            int idx = (_clipDepth-1) * 4;
+            x1 = Math.max(x1, _clips[idx]);
+            y1 = Math.max(y1, _clips[idx+1]);
+            x2 = Math.min(x2, _clips[idx] + _clips[idx+2]);
+            y2 = Math.min(y2, _clips[idx+1] + _clips[idx+3]);
+        }
+        int idx = _clipDepth * 4;
+        if (idx + 4 > _clips.length) {
+            int[] nclips = new int[_clips.length*2];
+            System.arraycopy(_clips, 0, nclips, 0, idx);
+            _clips = nclips;
+        }
+        _clips[idx] = x1;
+        _clips[idx+1] = y1;
+        _clips[idx+2] = Math.max(0, x2 - x1);
+        _clips[idx+3] = Math.max(0, y2 - y1);
+        _clipDepth++;
+        updateScissor();
+        return _clips[idx+2] > 0 && _clips[idx+3] > 0;
+    }
+
+    /**
+     * Restores the clip rectangle in effect prior to the most recent call to {@link #pushClip}.
+     */
+    public void popClip ()
+    {
+        if (_clipDepth == 0) {
+            Log.log.warning("Clip stack underflow.");
+            Thread.dumpStack();
+            return;
+        }
+        _clipDepth--;
+        updateScissor();
+    }
+
+    /**
+     * Returns true if rendering is currently clipped.
+     */
+    public boolean isClipped ()
+    {
+        return _clipDepth > 0;
+    }
+
+    /**
+     * Fills in the supplied rectangle with the current clip rectangle in coordinates relative to
+     * the start of the frame (which are screen coordinates for the root node). The result is
+     * undefined if rendering is not clipped.
+     */
+    public void getClip (Rectangle store)
+    {
+        int idx = (_clipDepth-1) * 4;
+        store.set(_clips[idx], _clips[idx+1], _clips[idx+2], _clips[idx+3]);
+    }
+
+    /**
+     * Directs subsequent rendering into the specified offscreen target (see {@link
+     * RenderBackend#createTarget}). The translation is reset to zero and clipping disabled until
+     * the matching call to {@link #endTarget}. Targets may not be nested.
+     */
+    public void beginTarget (int target)
+    {
+        flush();
+        _otx = _tx;
+        _oty = _ty;
+        _tx = _ty = 0;
+
+        // start with an empty clip stack (and no scissoring) while rendering to the target
+        _oclipDepth = _clipDepth;
+        _clipDepth = 0;
+        updateScissor();
+        _backend.beginTarget(target);
+    }
+
+    /**
+     * Restores rendering to the display after a call to {@link #beginTarget}.
+     */
+    public void endTarget ()
+    {
+        flush();
+        _backend.endTarget();
+        _tx = _otx;
+        _ty = _oty;
+        _clipDepth = _oclipDepth;
+        updateScissor();
+    }
+
+    /**
+     * Composites the specified region of an offscreen target at the specified coordinates
+     * (relative to the current translation).
+     */
+    public void drawTarget (int target, int x, int y, int width, int height)
+    {
+        flush();
+        _backend.resetStates();
+        _backend.drawTarget(target, x, y, width, height);
+        _drawCalls++;
+    }
+
+    /**
+     * Called by components before they render themselves (and their children). Returns true if
+     * the specified rectangle (relative to the current translation) lies entirely outside the
+     * current clip rectangle, in which case nothing within it need be rendered.
+     */
+    public boolean cull (int x, int y, int width, int height)
+    {
+        if (_clipDepth > 0) {
+            int idx = (_clipDepth-1) * 4;
+            x += _tx;
+            y += _ty;
+            if (x >= _clips[idx] + _clips[idx+2] || x + width <= _clips[idx] ||
+                y >= _clips[idx+1] + _clips[idx+3] || y + height <= _clips[idx+1]) {
+                _culled++;
+                return true;
+            }
+        }
+        _rendered++;
+        return false;
+    }
+
+    /**
+     * Adds a quad to the batch, flushing previously added quads first if they use a different
+     * texture or blend state.
+     *
+     * @param tstate the texture state to bind when drawing the quad (used only at flush time).
+     * @param texture the texture in effect for the quad; quads are batched by texture identity.
+     * @param blend whether to alpha blend the quad.
+     * @param x the x coordinate of the lower left corner of the quad (relative to the current
+     * translation).
+     * @param y the y coordinate of the lower left corner of the quad.
+     * @param u1 the texture coordinate of the left edge of the quad.
+     * @param v1 the texture coordinate of the bottom edge of the quad.
+     */
+    public void add (TextureState tstate, Texture texture, boolean blend,
+                     float x, float y, float width, float height,
+                     float u1, float v1, float u2, float v2,
+                     float r, float g, float b, float a)
+    {
+        if (_count > 0 && (texture != _texture || blend != _blend)) {
+            flush();
+        }
+        if (_count == 0 && texture != _texture) {
+            _textureChanges++;
+        }
+        _tstate = tstate;
+        _texture = texture;
+        _blend = blend;
+
+        // make sure we have room for the new quad
+        int idx = _count * QUAD_SIZE;
+        if (idx + QUAD_SIZE > _data.length) {
+            float[] ndata = new float[_data.length*2];
+            System.arraycopy(_data, 0, ndata, 0, idx);
+            _data = ndata;
+        }
+
+        x += _tx;
+        y += _ty;
+        _data[idx++] = x;
+        _data[idx++] = y;
+        _data[idx++] = x + width;
+        _data[idx++] = y + height;
+        _data[idx++] = u1;
+        _data[idx++] = v1;
+        _data[idx++] = u2;
+        _data[idx++] = v2;
+        _data[idx++] = r;
+        _data[idx++] = g;
+        _data[idx++] = b;
+        _data[idx++] = a;
+        _count++;
+        _quads++;
+
+        // if we're not rendering a frame, draw immediately
+        if (!_active) {
+            flush();
+        }
+    }
+
+    /**
+     * Draws any pending quads.
+     */
+    public void flush ()
+    {
+        if (_count == 0) {
+            return;
+        }
+        int count = _count;
+        _count = 0;
+        _drawCalls++;
+        drawQuads(_tstate, _blend, _data, count);
+    }
+
+    /**
+     * Returns the number of draw calls issued since the start of the current frame.
+     */
+    public int getDrawCalls ()
+    {
+        return _drawCalls;
+    }
+
+    /**
+     * Returns the number of quads added since the start of the current frame.
+     */
+    public int getQuadCount ()
+    {
+        return _quads;
+    }
+
+    /**
+     * Returns the number of times the texture changed between batches since the start of the
+     * current frame.
+     */
+    public int getTextureChanges ()
+    {
+        return _textureChanges;
+    }
+
+    /**
+     * Returns the number of times the backend's scissor state was changed since the start of the
+     * current frame.
+     */
+    public int getScissorChanges ()
+    {
+        return _scissorChanges;
+    }
+
+    /**
+     * Returns the number of components rendered since the start of the current frame.
+     */
+    public int getRenderedCount ()
+    {
+        return _rendered;
+    }
+
+    /**
+     * Returns the number of components (along with their children) that were skipped since the
+     * start of the current frame because they were entirely outside the clip rectangle.
+     */
+    public int getCulledCount ()
+    {
+        return _culled;
+    }
+
+    /**
+     * Updates the backend's scissor state to match the top of the clip stack if it differs.
+     */
+    protected void updateScissor ()
+    {
+        if (_clipDepth == 0) {
+            if (_scissored) {
+                // the scissor region applies to anything pending in the batch, so flush first
+                flush();
+                _backend.disableScissor();
+                _scissored = false;
+                _scissorChanges++;
+            }
+            return;
+        }
+        int idx = (_clipDepth-1) * 4;
+        int x = _clips[idx], y = _clips[idx+1], width = _clips[idx+2], height = _clips[idx+3];
+        if (_scissored && x == _scissor[0] && y == _scissor[1] &&
+            width == _scissor[2] && height == _scissor[3]) {
+            return;
+        }
+        flush();
+        _backend.setScissorBox(x, y, width, height);
+        _scissored = true;
+        _scissor[0] = x;
+        _scissor[1] = y;
+        _scissor[2] = width;
+        _scissor[3] = height;
+        _scissorChanges++;
+    }
+
+    /**
+     * Issues the supplied quads to our backend.
+     */
+    protected void drawQuads (TextureState tstate, boolean blend, float[] data, int count)
+    {
+        _backend.resetStates();
+        _backend.setBlending(blend);
+        _backend.bindTexture(tstate);
+        _backend.drawQuads(data, count);
+    }
+
+    /** Whether or not we're between calls to {@link #begin} and {@link #end}. */
+    protected boolean _active;
+
+    /** The backend that does the actual drawing. */
+    protected RenderBackend _backend = new GLRenderBackend();
+
+    /** Our CPU-side tracking of the current translation (and that saved while rendering to an
+     * offscreen target). */
+    protected int _tx, _ty, _otx, _oty;
+
+    /** The state shared by the pending quads. */
+    protected TextureState _tstate;
+    protected Texture _texture;
+    protected boolean _blend;
+
+    /** The data for our pending quads: x1, y1, x2, y2, u1, v1, u2, v2, r, g, b, a. */
+    protected float[] _data = new float[QUAD_SIZE * 64];
+    protected int _count;
+
+    /** Our clip rectangles (x, y, width, height in frame coordinates) and the stack depth. */
+    protected int[] _clips = new int[4 * 8];
+    protected int _clipDepth, _oclipDepth;
+
+    /** The scissor state last applied to the backend. */
+    protected boolean _scissored;
+    protected int[] _scissor = new int[4];
+
+    /** Per-frame statistics. */
+    protected int _quads, _drawCalls, _textureChanges, _scissorChanges;
+    protected int _rendered, _culled;
+
+    /** The number of floats used to store a single quad. */
+    protected static final int QUAD_SIZE = 12;
+}
@@ -0,0 +1,250 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jme.scene.state.TextureState;
+
+import com.jmex.bui.util.Rectangle;
+
+/**
+ * A render backend that draws nothing, but records the commands issued during a frame and counts
+ * the draw calls, state changes and texture binds they would cost. This allows rendering to be
+ * tested and benchmarked without a display.
+ */
+public class RecordingRenderBackend
+    implements RenderBackend
+{
+    /**
+     * Returns the commands issued since the start of the current frame, one per entry, in a
+     * human readable form (e.g. <code>quads 12</code>, <code>scissor 0 0 100 20</code>).
+     */
+    public List<String> getCommands ()
+    {
+        return _commands;
+    }
+
+    /**
+     * Returns the number of draw calls issued since the start of the current frame.
+     */
+    public int getDrawCalls ()
+    {
+        return _drawCalls;
+    }
+
+    /**
+     * Returns the number of blend, texture and scissor state changes made since the start of the
+     * current frame. Requests that do not change the state are not counted.
+     */
+    public int getStateChanges ()
+    {
+        return _stateChanges;
+    }
+
+    /**
+     * Returns the number of times a texture was bound since the start of the current frame.
+     */
+    public int getTextureBinds ()
+    {
+        return _textureBinds;
+    }
+
+    /**
+     * Returns the number of times the scissor state (enabled or box) changed since the start of
+     * the current frame.
+     */
+    public int getScissorChanges ()
+    {
+        return _scissorChanges;
+    }
+
+    /**
+     * Returns the current translation relative to the start of the frame.
+     */
+    public int getTranslationX ()
+    {
+        return _tx;
+    }
+
+    /**
+     * Returns the current translation relative to the start of the frame.
+     */
+    public int getTranslationY ()
+    {
+        return _ty;
+    }
+
+    // from interface RenderBackend
+    public void beginFrame ()
+    {
+        _commands.clear();
+        _tx = _ty = 0;
+        _drawCalls = _stateChanges = _textureBinds = _scissorChanges = 0;
+    }
+
+    // from interface RenderBackend
+    public void endFrame ()
+    {
+    }
+
+    // from interface RenderBackend
+    public void translate (int dx, int dy)
+    {
+        _tx += dx;
+        _ty += dy;
+    }
+
+    // from interface RenderBackend
+    public void resetStates ()
+    {
+        setBlending(false);
+        bindTexture(null);
+    }
+
+    // from interface RenderBackend
+    public void setBlending (boolean blend)
+    {
+        if (blend != _blend) {
+            _blend = blend;
+            _stateChanges++;
+            _commands.add("blend " + blend);
+        }
+    }
+
+    // from interface RenderBackend
+    public void bindTexture (TextureState tstate)
+    {
+        if (tstate != _tstate) {
+            _tstate = tstate;
+            _stateChanges++;
+            if (tstate != null) {
+                _textureBinds++;
+            }
+            _commands.add("texture " + ((tstate == null) ? "none" :
+                                        Integer.toHexString(System.identityHashCode(tstate))));
+        }
+    }
+
+    /**
+     * Returns true if scissoring is currently enabled.
+     */
+    public boolean isScissorEnabled ()
+    {
+        return _scissored;
+    }
+
+    /**
+     * Fills in the supplied rectangle with the current scissor box.
+     */
+    public void getScissorBox (Rectangle store)
+    {
+        store.set(_scissor.x, _scissor.y, _scissor.width, _scissor.height);
+    }
+
+    // from interface RenderBackend
+    public void setScissorBox (int x, int y, int width, int height)
+    {
+        if (!_scissored || _scissor.x != x || _scissor.y != y ||
+            _scissor.width != width || _scissor.height != height) {
+            _scissored = true;
+            _scissor.set(x, y, width, height);
+            _stateChanges++;
+            _scissorChanges++;
+            _commands.add("scissor " + x + " " + y + " " + width + " " + height);
+        }
+    }
+
+    // from interface RenderBackend
+    public void disableScissor ()
+    {
+        if (_scissored) {
+            _scissored = false;
+            _stateChanges++;
+            _scissorChanges++;
+            _commands.add("scissor off");
+        }
+    }
+
+    // from interface RenderBackend
+    public void drawQuad (float x, float y, float width, float height,
+                          float r, float g, float b, float a)
+    {
+        _drawCalls++;
+        _commands.add("quad " + (x + _tx) + " " + (y + _ty) + " " + width + " " + height);
+    }
+
+    // from interface RenderBackend
+    public void drawQuads (float[] data, int count)
+    {
+        _drawCalls++;
+        _commands.add("quads " + count);
+    }
+
+    // from interface RenderBackend
+    public int createTarget (int width, int height)
+    {
+        _commands.add("create target " + width + " " + height);
+        return ++_nextTarget;
+    }
+
+    // from interface RenderBackend
+    public void deleteTarget (int target)
+    {
+        _commands.add("delete target " + target);
+    }
+
+    // from interface RenderBackend
+    public void beginTarget (int target)
+    {
+        _commands.add("begin target " + target);
+        _otx = _tx;
+        _oty = _ty;
+        _tx = _ty = 0;
+    }
+
+    // from interface RenderBackend
+    public void endTarget ()
+    {
+        _commands.add("end target");
+        _tx = _otx;
+        _ty = _oty;
+    }
+
+    // from interface RenderBackend
+    public void drawTarget (int target, int x, int y, int width, int height)
+    {
+        _drawCalls++;
+        _commands.add("draw target " + target + " " + (x + _tx) + " " + (y + _ty) + " " +
+                      width + " " + height);
+    }
+
+    // from interface RenderBackend
+    public void drawLineStrip (float[] points, int count, float width,
+                               float r, float g, float b, float a)
+    {
+        _drawCalls++;
+        _commands.add("lines " + count);
+    }
+
+    /** The commands issued during the current frame. */
+    protected ArrayList<String> _commands = new ArrayList<String>();
+
+    /** Our tracking of the current translation (and that saved while rendering to a target). */
+    protected int _tx, _ty, _otx, _oty;
+
+    /** Used to assign identifiers to render targets. */
+    protected int _nextTarget;
+
+    /** The current render state. */
+    protected boolean _blend, _scissored;
+    protected TextureState _tstate;
+    protected Rectangle _scissor = new Rectangle();
+
+    /** Per-frame statistics. */
+    protected int _drawCalls, _stateChanges, _textureBinds, _scissorChanges;
+}
@@ -0,0 +1,118 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import com.jme.scene.state.TextureState;
+
+/**
+ * Performs the low-level drawing operations needed to render the user interface. The standard
+ * implementation ({@link GLRenderBackend}) issues them to OpenGL; {@link RecordingRenderBackend}
+ * records them so that rendering can be tested and measured without a display.
+ *
+ * <p> Components should not generally use the backend directly when rendering textured quads;
+ * they should go through the {@link QuadBatch} (via {@link BImage}) which combines them into as
+ * few draw calls as possible. Anything drawn directly with the backend must first flush the batch
+ * (see {@link BComponent#applyDefaultStates}).
+ */
+public interface RenderBackend
+{
+    /**
+     * Called at the start of every frame.
+     */
+    public void beginFrame ();
+
+    /**
+     * Called at the end of every frame.
+     */
+    public void endFrame ();
+
+    /**
+     * Translates the rendering origin by the specified amount.
+     */
+    public void translate (int dx, int dy);
+
+    /**
+     * Restores the default render state: no blending and no texture.
+     */
+    public void resetStates ();
+
+    /**
+     * Enables or disables standard alpha blending (source alpha, one minus source alpha).
+     */
+    public void setBlending (boolean blend);
+
+    /**
+     * Binds the textures in the supplied state for subsequent textured quads.
+     */
+    public void bindTexture (TextureState tstate);
+
+    /**
+     * Enables scissoring and sets the scissor box (in screen coordinates). The {@link QuadBatch}
+     * tracks the scissor state on the CPU and only calls this method when the state changes.
+     */
+    public void setScissorBox (int x, int y, int width, int height);
+
+    /**
+     * Disables scissoring.
+     */
+    public void disableScissor ();
+
+    /**
+     * Draws a quad filled with the specified color.
+     */
+    public void drawQuad (float x, float y, float width, float height,
+                          float r, float g, float b, float a);
+
+    /**
+     * Draws a set of textured quads using the currently bound texture.
+     *
+     * @param data the quads, each described by {@link QuadBatch#QUAD_SIZE} values: x1, y1, x2,
+     * y2, u1, v1, u2, v2, r, g, b, a. The coordinates are relative to the origin in effect at the
+     * start of the frame rather than the current translation.
+     * @param count the number of quads to draw.
+     */
+    public void drawQuads (float[] data, int count);
+
+    /**
+     * Creates an offscreen render target of (at least) the specified size.
+     *
+     * @return an identifier for the target or zero if offscreen rendering is not supported.
+     */
+    public int createTarget (int width, int height);
+
+    /**
+     * Releases the resources used by a target created with {@link #createTarget}.
+     */
+    public void deleteTarget (int target);
+
+    /**
+     * Directs subsequent rendering into the specified target, which is first cleared to
+     * transparent. The origin is placed at the lower left of the target and the translation reset
+     * to zero. Targets store premultiplied colors; see {@link #drawTarget}.
+     */
+    public void beginTarget (int target);
+
+    /**
+     * Restores rendering to the display (and the translation in effect prior to the matching call
+     * to {@link #beginTarget}).
+     */
+    public void endTarget ();
+
+    /**
+     * Composites the specified region of a target (from its lower left) at the specified
+     * coordinates (relative to the current translation).
+     */
+    public void drawTarget (int target, int x, int y, int width, int height);
+
+    /**
+     * Draws a line strip through the specified points.
+     *
+     * @param points the x and y coordinates of the points.
+     * @param count the number of points.
+     */
+    public void drawLineStrip (float[] points, int count, float width,
+                               float r, float g, float b, float a);
+}
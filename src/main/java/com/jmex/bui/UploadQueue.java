@@ -0,0 +1,171 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Spreads the uploading of image textures over multiple frames. When an upload queue is
+ * configured (see {@link BImage#setUploadQueue}), referencing an image queues its texture for
+ * upload rather than uploading it immediately, and the queue uploads at most a configurable
+ * number of bytes (or for a configurable number of milliseconds) each frame. Images that are not
+ * yet resident are either not rendered or are rendered as a solid placeholder (see {@link
+ * BImage#setPlaceholderColor}).
+ *
+ * <p> This avoids hitches when a large interface is added all at once.
+ */
+public class UploadQueue
+{
+    /**
+     * Creates an upload queue that uploads at most the specified number of bytes and spends at
+     * most the specified number of milliseconds uploading each frame. At least one image is
+     * uploaded each frame regardless of these limits.
+     */
+    public UploadQueue (int maxBytes, int maxMillis)
+    {
+        _maxBytes = maxBytes;
+        _maxMillis = maxMillis;
+    }
+
+    /**
+     * Configures the maximum number of bytes to upload each frame.
+     */
+    public void setMaxBytes (int maxBytes)
+    {
+        _maxBytes = maxBytes;
+    }
+
+    /**
+     * Configures the maximum number of milliseconds to spend uploading each frame.
+     */
+    public void setMaxMillis (int maxMillis)
+    {
+        _maxMillis = maxMillis;
+    }
+
+    /**
+     * Queues the supplied image for upload.
+     */
+    public void add (BImage image)
+    {
+        if (_queued.add(image)) {
+            image._queuedStamp = System.nanoTime();
+        }
+    }
+
+    /**
+     * Removes the supplied image from the queue (because it was released before being uploaded).
+     *
+     * @return true if the image was queued, false if not.
+     */
+    public boolean remove (BImage image)
+    {
+        return _queued.remove(image);
+    }
+
+    /**
+     * Returns true if the supplied image is awaiting upload.
+     */
+    public boolean isQueued (BImage image)
+    {
+        return _queued.contains(image);
+    }
+
+    /**
+     * Returns the number of images awaiting upload.
+     */
+    public int size ()
+    {
+        return _queued.size();
+    }
+
+    /**
+     * Uploads queued images, in the order they were queued, until the queue is empty or our per
+     * frame limits are reached. This is called once per frame by the root node.
+     *
+     * @return the number of images uploaded.
+     */
+    public int process ()
+    {
+        long start = System.nanoTime(), deadline = start + _maxMillis * 1000000L;
+        int uploaded = 0, bytes = 0;
+        for (Iterator<BImage> iter = _queued.iterator(); iter.hasNext(); ) {
+            BImage image = iter.next();
+            iter.remove();
+            bytes += image.getTextureBytes();
+            image.upload();
+            uploaded++;
+
+            long now = System.nanoTime(), waited = now - image._queuedStamp;
+            _residentNanos += waited;
+            _maxResidentNanos = Math.max(_maxResidentNanos, waited);
+            _resident++;
+            if (bytes >= _maxBytes || now >= deadline) {
+                break;
+            }
+        }
+        _lastUploads = uploaded;
+        _lastBytes = bytes;
+        return uploaded;
+    }
+
+    /**
+     * Returns the number of images uploaded by the most recent call to {@link #process}.
+     */
+    public int getUploadCount ()
+    {
+        return _lastUploads;
+    }
+
+    /**
+     * Returns the number of bytes uploaded by the most recent call to {@link #process}.
+     */
+    public int getUploadBytes ()
+    {
+        return _lastBytes;
+    }
+
+    /**
+     * Returns the average number of milliseconds between an image being queued and its being
+     * uploaded since the statistics were last reset.
+     */
+    public float getAverageTimeToResident ()
+    {
+        return (_resident == 0) ? 0f : _residentNanos / (_resident * 1000000f);
+    }
+
+    /**
+     * Returns the maximum number of milliseconds between an image being queued and its being
+     * uploaded since the statistics were last reset.
+     */
+    public float getMaxTimeToResident ()
+    {
+        return _maxResidentNanos / 1000000f;
+    }
+
+    /**
+     * Resets our time to resident statistics.
+     */
+    public void resetStats ()
+    {
+        _resident = 0;
+        _residentNanos = _maxResidentNanos = 0L;
+    }
+
+    /** Our per frame limits. */
+    protected int _maxBytes, _maxMillis;
+
+    /** The images awaiting upload in the order they were queued. */
+    protected LinkedHashSet<BImage> _queued = new LinkedHashSet<BImage>();
+
+    /** Statistics for the most recent frame. */
+    protected int _lastUploads, _lastBytes;
+
+    /** Time to resident statistics. */
+    protected int _resident;
+    protected long _residentNanos, _maxResidentNanos;
+}
@@ -0,0 +1,158 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+
+/**
+ * Collects the components that have been invalidated and need to be revalidated (see {@link
+ * BRootNode#rootInvalidated}) and validates them en masse, usually once per frame.
+ *
+ * <p> Each component is queued at most once and queued components are validated in order of their
+ * depth in the interface hierarchy. Validating an ancestor generally validates its invalid
+ * descendants, so by validating ancestors first we avoid validating any component twice: queued
+ * descendants that were validated along with an ancestor are simply skipped.
+ */
+public class ValidationQueue
+{
+    /**
+     * Queues the supplied component for validation if it is not already queued.
+     */
+    public void add (BComponent root)
+    {
+        if (_queued.containsKey(root)) {
+            _duplicates++;
+            return;
+        }
+        _queued.put(root, getDepth(root));
+        _roots.add(root);
+        _added++;
+    }
+
+    /**
+     * Returns true if no components are queued for validation.
+     */
+    public boolean isEmpty ()
+    {
+        return _roots.isEmpty();
+    }
+
+    /**
+     * Returns the number of components currently queued for validation.
+     */
+    public int size ()
+    {
+        return _roots.size();
+    }
+
+    /**
+     * Validates all queued components (that are still added to the interface hierarchy), as well
+     * as any that are queued as a result of that validation.
+     */
+    public void validate ()
+    {
+        int validated = 0, skipped = 0;
+        while (_roots.size() > 0) {
+            // validating may queue additional roots, so we operate on a copy
+            _batch.addAll(_roots);
+            _roots.clear();
+            Collections.sort(_batch, _depthOrder);
+            for (int ii = 0, ll = _batch.size(); ii < ll; ii++) {
+                BComponent root = _batch.get(ii);
+                _queued.remove(root);
+                // make sure the root is still added to the view hierarchy
+                if (!root.isAdded()) {
+                    continue;
+                }
+                // skip roots that were validated along with one of their ancestors
+                if (root.isValid()) {
+                    skipped++;
+                    continue;
+                }
+                root.validate();
+                validated++;
+            }
+            _batch.clear();
+        }
+
+        _lastAdded = _added;
+        _lastDuplicates = _duplicates;
+        _lastValidated = validated;
+        _lastSkipped = skipped;
+        _added = _duplicates = 0;
+    }
+
+    /**
+     * Returns the number of distinct components that were queued prior to (and during) the most
+     * recent call to {@link #validate}.
+     */
+    public int getQueuedCount ()
+    {
+        return _lastAdded;
+    }
+
+    /**
+     * Returns the number of times an already queued component was queued again prior to (and
+     * during) the most recent call to {@link #validate}.
+     */
+    public int getDuplicateCount ()
+    {
+        return _lastDuplicates;
+    }
+
+    /**
+     * Returns the number of components validated by the most recent call to {@link #validate}.
+     */
+    public int getValidatedCount ()
+    {
+        return _lastValidated;
+    }
+
+    /**
+     * Returns the number of queued components that were skipped during the most recent call to
+     * {@link #validate} because they had been validated along with one of their ancestors.
+     */
+    public int getSkippedCount ()
+    {
+        return _lastSkipped;
+    }
+
+    /**
+     * Returns the depth of the supplied component in the interface hierarchy.
+     */
+    protected static int getDepth (BComponent comp)
+    {
+        int depth = 0;
+        for (BComponent parent = comp.getParent(); parent != null; parent = parent.getParent()) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /** Maps our queued components (by identity) to their depth. */
+    protected IdentityHashMap<BComponent, Integer> _queued =
+        new IdentityHashMap<BComponent, Integer>();
+
+    /** Our queued components in the order they were queued. */
+    protected ArrayList<BComponent> _roots = new ArrayList<BComponent>();
+
+    /** The components being validated. */
+    protected ArrayList<BComponent> _batch = new ArrayList<BComponent>();
+
+    /** Statistics for the current and previous validation. */
+    protected int _added, _duplicates;
+    protected int _lastAdded, _lastDuplicates, _lastValidated, _lastSkipped;
+
+    /** Sorts components by their depth at the time they were queued. */
+    protected Comparator<BComponent> _depthOrder = new Comparator<BComponent>() {
+        public int compare (BComponent c1, BComponent c2) {
+            return _queued.get(c1) - _queued.get(c2);
+        }
+    };
+}
@@ -5,16 +5,11 @@
 
 package com.jmex.bui.border;
 
-import org.lwjgl.opengl.GL11;
-
 import com.jme.renderer.ColorRGBA;
-import com.jme.renderer.RenderContext;
 import com.jme.renderer.Renderer;
-import com.jme.scene.state.lwjgl.records.LineRecord;
-import com.jme.system.DisplaySystem;
 
 import com.jmex.bui.BComponent;
-import com.jmex.bui.BImage;
+import com.jmex.bui.RenderBackend;
 import com.jmex.bui.util.Insets;
 
 /**
@@ -46,23 +41,25 @@ public class LineBorder extends BBorder
         super.render(renderer, x, y, width, height, alpha);
 
         BComponent.applyDefaultStates();
-        BImage.blendState.apply();
+        RenderBackend backend = BComponent.getRenderBackend();
+        backend.setBlending(true);
 
-        RenderContext ctx = DisplaySystem.getDisplaySystem().getCurrentContext();
-        ((LineRecord)ctx.getLineRecord()).applyLineWidth(_width);
         float offset = _width / 2f;
-        GL11.glColor4f(_color.r, _color.g, _color.b, _color.a * alpha);
-        GL11.glBegin(GL11.GL_LINE_STRIP);
-        GL11.glVertex2f(x + offset, y + offset);
-        GL11.glVertex2f(x + width - offset, y + offset);
-        GL11.glVertex2f(x + width - offset, y + height - offset);
-        GL11.glVertex2f(x + offset, y + height - offset);
-        GL11.glVertex2f(x + offset, y + offset);
-        GL11.glEnd();
+        float x1 = x + offset, y1 = y + offset;
+        float x2 = x + width - offset, y2 = y + height - offset;
+        _points[0] = x1; _points[1] = y1;
+        _points[2] = x2; _points[3] = y1;
+        _points[4] = x2; _points[5] = y2;
+        _points[6] = x1; _points[7] = y2;
+        _points[8] = x1; _points[9] = y1;
+        backend.drawLineStrip(_points, 5, _width, _color.r, _color.g, _color.b, _color.a * alpha);
     }
 
     protected ColorRGBA _color;
     protected int _width;
 
+    /** Holds the points of our line strip (rendering happens only on the render thread). */
+    protected static float[] _points = new float[10];
+
     protected static final Insets ONE_PIXEL_INSETS = new Insets(1, 1, 1, 1);
 }
@@ -36,6 +36,7 @@ public class ImageIcon extends BIcon
         try {
             icon.paintIcon(null, gfx, 0, 0);
             _image = new BImage(cached);
+            _image.setUsage(BImage.USAGE_ICON);
         } finally {
             gfx.dispose();
         }
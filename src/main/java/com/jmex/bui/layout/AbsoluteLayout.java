@@ -73,6 +73,13 @@ public class AbsoluteLayout extends BLayoutManager
         _spots.remove(comp);
     }
 
+    @Override // from BLayoutManager
+    public boolean isFixedSize (BComponent comp)
+    {
+        // components positioned with a rectangle are sized by that rectangle
+        return (_spots.get(comp) instanceof Rectangle);
+    }
+
     // documentation inherited
     public Dimension computePreferredSize (
         BContainer target, int whint, int hhint)
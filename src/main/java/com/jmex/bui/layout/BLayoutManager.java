@@ -34,6 +34,17 @@ public abstract class BLayoutManager
     {
     }
 
+    /**
+     * Returns true if the size of the supplied child is determined entirely by its layout
+     * constraints, such that changes to its preferred size cannot affect the layout of the
+     * container. Such children act as relayout boundaries (see {@link
+     * BComponent#isLayoutBoundary}). The default implementation returns false.
+     */
+    public boolean isFixedSize (BComponent comp)
+    {
+        return false;
+    }
+
     /**
      * Computes the preferred size for the supplied container, based on the
      * preferred sizes of its children and the layout policy implemented by
@@ -6,7 +6,6 @@
 package com.jmex.bui.layout;
 
 import java.util.Arrays;
-import java.util.HashMap;
 
 import com.jmex.bui.BComponent;
 import com.jmex.bui.BContainer;
@@ -176,10 +175,7 @@ public class TableLayout extends BLayoutManager
         for (int ii = 0, ll = target.getComponentCount(); ii < ll; ii++) {
             BComponent child = target.getComponent(ii);
             if (child.isVisible()) {
-                Dimension psize = _pscache.get(child);
-                if (psize == null || !child.isValid()) {
-                    _pscache.put(child, psize = child.getPreferredSize(whint, -1));
-                }
+                Dimension psize = child.getPreferredSize(whint, -1);
                 if (psize.height > metrics.rowHeights[row]) {
                     metrics.rowHeights[row] = psize.height;
                     if (maxrh < metrics.rowHeights[row]) {
@@ -196,14 +192,6 @@ public class TableLayout extends BLayoutManager
             }
         }
 
-        // if we have more (or less?) components in our preferred size cache than are in the
-        // container, flush the cache; this won't happen often (compared to invalidations which
-        // happen all the damned time) and we don't want to leak memory if someone is removing old
-        // components and adding new ones to a table-layout using container willy nilly
-        if (_pscache.size() != target.getComponentCount()) {
-            _pscache.clear();
-        }
-
         // if we are stretching, adjust the column widths accordingly (however, no adjusting if
         // we're computing our preferred size)
         int naturalWidth;
@@ -278,7 +266,4 @@ public class TableLayout extends BLayoutManager
     protected boolean _equalRows;
     protected int _rowgap, _colgap;
     protected boolean[] _fixedColumns;
-
-    // TODO: expire from this cache (rarely needed)
-    protected HashMap<BComponent,Dimension> _pscache = new HashMap<BComponent,Dimension>();
 }
@@ -47,6 +47,10 @@ import static com.jmex.bui.Log.log;
  * &#064;=bi(this text would be bold and italic)
  * &#064;=bi#FFCC99(this text would be bold, italic and pink)
  * </pre>
+ *
+ * <p> Text without colored runs is rendered as white coverage and colored when it is drawn, so
+ * that it can be recolored (see {@link BText#setColors}) without being rendered again. Text with
+ * an outline or shadow is rendered in two layers, which are colored separately.
  */
 public class AWTTextFactory extends BTextFactory
 {
@@ -81,36 +85,122 @@ public class AWTTextFactory extends BTextFactory
             text = " ";
         }
 
+        return createText(text, createLayout(text, effect), color, effect, effectSize,
+                          effectColor, text.length(), useAdvance, !hasColoredRuns(text, effect));
+    }
+
+    // documentation inherited
+    public BText[] wrapText (String text, ColorRGBA color, int effect, int effectSize,
+                             ColorRGBA effectColor, int maxWidth)
+    {
+        LineBreakCache.Breaks breaks = wrapLayouts(text, effect, maxWidth);
+
+        boolean tintable = !hasColoredRuns(text, effect);
+        BText[] texts = new BText[breaks.lines.length];
+        for (int ii = 0; ii < texts.length; ii++) {
+            String origText = breaks.lines[ii];
+            texts[ii] = createText(origText, breaks.layouts[ii], color, effect, effectSize,
+                                   effectColor, origText.length(), true, tintable);
+        }
+        return texts;
+    }
+
+    /**
+     * Returns the cache of line breaks computed by {@link #wrapText} and {@link #measureWrapped},
+     * whose statistics describe how often text is wrapped again without being broken again.
+     */
+    public LineBreakCache getLineBreakCache ()
+    {
+        return _breaks;
+    }
+
+    /**
+     * Returns the number of texts rendered by this factory since the statistics were last reset.
+     * Changing the color of a text that can be tinted does not require that it be rendered again.
+     */
+    public int getRasterizations ()
+    {
+        return _rasterizations;
+    }
+
+    /**
+     * Resets our rendering statistics.
+     */
+    public void resetStats ()
+    {
+        _rasterizations = 0;
+        _breaks.resetStats();
+        _glowMasks.resetStats();
+    }
+
+    @Override // from BTextFactory
+    public Dimension measureText (String text, int effect, int effectSize, boolean useAdvance)
+    {
+        if (text.equals("")) {
+            text = " ";
+        }
+        return computeSize(createLayout(text, effect), effect, effectSize, useAdvance);
+    }
+
+    @Override // from BTextFactory
+    public WrappedLine[] measureWrapped (String text, int effect, int effectSize, int maxWidth)
+    {
+        LineBreakCache.Breaks breaks = wrapLayouts(text, effect, maxWidth);
+
+        WrappedLine[] wlines = new WrappedLine[breaks.lines.length];
+        for (int ii = 0; ii < wlines.length; ii++) {
+            wlines[ii] = new WrappedLine(breaks.lines[ii].length(),
+                                         computeSize(breaks.layouts[ii], effect, effectSize, true));
+        }
+        return wlines;
+    }
+
+    /**
+     * Creates a layout for the supplied (possibly styled) text.
+     */
+    protected TextLayout createLayout (String text, int effect)
+    {
         Graphics2D gfx = _stub.createGraphics();
-        TextLayout layout;
         try {
             if (_antialias) {
                 gfx.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
                                      RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
             }
-            layout = new TextLayout(
+            return new TextLayout(
                 parseStyledText(text, _attrs, null, effect != BConstants.PLAIN).getIterator(),
                 gfx.getFontRenderContext());
         } finally {
             gfx.dispose();
         }
-
-        return createText(text, layout, color, effect, effectSize, effectColor,
-                          text.length(), useAdvance);
     }
 
-    // documentation inherited
-    public BText[] wrapText (String text, ColorRGBA color, int effect, int effectSize,
-                             ColorRGBA effectColor, int maxWidth)
+    /**
+     * Breaks the supplied text into lines that do not exceed the specified width, returning the
+     * (unstyled) text and layout for each line. The breaks are cached, so wrapping the same text
+     * at a width that yields the same breaks does not lay it out again.
+     */
+    protected LineBreakCache.Breaks wrapLayouts (String text, int effect, int maxWidth)
     {
         // the empty string will break things; so use a single space instead
         if (text.length() == 0) {
             text = " ";
         }
 
-        ArrayList<BText> texts = new ArrayList<BText>();
+        LineBreakCache.Breaks breaks = _breaks.get(text, effect, maxWidth);
+        if (breaks != null) {
+            return breaks;
+        }
+
+        ArrayList<String> lines = new ArrayList<String>();
+        ArrayList<TextLayout> layouts = new ArrayList<TextLayout>();
+        String otext = text;
+        // the widest line determines the narrowest width at which we would break the same way, and
+        // if no line was broken because it was too wide, we would break the same way at any wider
+        // width
+        float minWidth = 0;
+        boolean broken = false;
+
         Graphics2D gfx = _stub.createGraphics();
-        TextLayout layout;
         try {
             if (_antialias) {
                 gfx.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
@@ -133,33 +223,38 @@ public class AWTTextFactory extends BTextFactory
                 }
 
                 // measure out as much text as we can render in one line
-                layout = measurer.nextLayout(maxWidth, nextret, false);
-                String origText = text.substring(pos, measurer.getPosition());
+                TextLayout layout = measurer.nextLayout(maxWidth, nextret, false);
+                layouts.add(layout);
+                lines.add(text.substring(pos, measurer.getPosition()));
+                minWidth = Math.max(minWidth, layout.getVisibleAdvance());
+                broken = broken || (measurer.getPosition() < nextret);
 
                 // skip past any newline that we used to terminate our wrap
                 pos = measurer.getPosition();
                 if (pos < text.length() && text.charAt(pos) == '\n') {
                     pos++;
                 }
-
-                texts.add(createText(origText, layout, color,
-                                     effect, effectSize, effectColor, origText.length(), true));
             }
 
         } finally {
             gfx.dispose();
         }
 
-        return texts.toArray(new BText[texts.size()]);
+        breaks = new LineBreakCache.Breaks(
+            lines.toArray(new String[lines.size()]),
+            layouts.toArray(new TextLayout[layouts.size()]),
+            Math.min((int)Math.ceil(minWidth), maxWidth), broken ? maxWidth : Integer.MAX_VALUE);
+        return _breaks.put(otext, effect, maxWidth, breaks);
     }
 
-    /** Helper function. */
-    protected BText createText (String origText, final TextLayout layout, ColorRGBA color,
-                                int effect, int effectSize, ColorRGBA effectColor,
-                                final int length, boolean useAdvance)
+    /**
+     * Computes the size of the text rendered from the supplied layout.
+     */
+    protected Dimension computeSize (
+        TextLayout layout, int effect, int effectSize, boolean useAdvance)
     {
         // determine the size of our rendered text
-        final Dimension size = new Dimension();
+        Dimension size = new Dimension();
         Rectangle2D bounds = layout.getBounds();
 
         // MacOS font rendering is buggy, so we must compute the outline and use that for bounds
@@ -193,10 +288,60 @@ public class AWTTextFactory extends BTextFactory
             size.height += effectSize*2;
             break;
         }
+        return size;
+    }
 
-        // render the text into the image
-        BufferedImage image = new BufferedImage(size.width, size.height,
-                                                BufferedImage.TYPE_4BYTE_ABGR);
+    /** Helper function. */
+    protected BText createText (String origText, TextLayout layout, ColorRGBA color,
+                                int effect, int effectSize, ColorRGBA effectColor,
+                                int length, boolean useAdvance, boolean tintable)
+    {
+        Dimension size = computeSize(layout, effect, effectSize, useAdvance);
+        _rasterizations++;
+
+        // glowing text and text containing colored runs have their colors rendered into the
+        // image; all other text is rendered as white coverage and tinted when it is drawn so that
+        // it can be recolored without being rerendered
+        tintable = tintable && (effect != GLOW);
+        boolean layered = tintable && (effect == OUTLINE || effect == SHADOW);
+
+        // render the text into an image that can be uploaded without further conversion; text
+        // with an effect is rendered in two layers (the effect above the text) so that each can
+        // be tinted separately
+        BufferedImage image = BImage.createCompatibleImage(
+            size.width, layered ? size.height*2 : size.height, true);
+        if (layered) {
+            renderLayout(image.getSubimage(0, size.height, size.width, size.height), origText,
+                         layout, size.height, ColorRGBA.white, effect, effectSize, null);
+            renderLayout(image.getSubimage(0, 0, size.width, size.height), origText,
+                         layout, size.height, null, effect, effectSize, ColorRGBA.white);
+        } else if (tintable) {
+            renderLayout(image, origText, layout, size.height, ColorRGBA.white, effect,
+                         effectSize, null);
+        } else {
+            renderLayout(image, origText, layout, size.height, color, effect, effectSize,
+                         effectColor);
+        }
+
+        BImage bimage = new BImage(image);
+        bimage.setUsage(BImage.USAGE_TEXT);
+        AWTText text = new AWTText(layout, size, length, bimage, tintable, layered,
+                                   effect == OUTLINE && effectSize == 1);
+        text.setColors(color, effectColor);
+        return text;
+    }
+
+    /**
+     * Renders the supplied text layout into the supplied image.
+     *
+     * @param color the color in which to render the text, or null to render only its effect.
+     * @param effectColor the color in which to render the effect, or null to render only the
+     * text.
+     */
+    protected void renderLayout (BufferedImage image, String origText, TextLayout layout,
+                                 int height, ColorRGBA color, int effect, int effectSize,
+                                 ColorRGBA effectColor)
+    {
         Graphics2D gfx = image.createGraphics();
         try {
             if (effect == OUTLINE) {
@@ -207,7 +352,7 @@ public class AWTTextFactory extends BTextFactory
                 float tx = effectSize - 1;
                 float ty = layout.getAscent() + effectSize;
                 gfx.translate(tx, ty);
-                if (effectSize > 1) {
+                if (effectSize > 1 && effectColor != null) {
                     gfx.setColor(new Color(effectColor.r, effectColor.g, effectColor.b,
                                            effectColor.a));
                     Stroke oldstroke = gfx.getStroke();
@@ -216,31 +361,42 @@ public class AWTTextFactory extends BTextFactory
                     gfx.draw(layout.getOutline(null));
                     gfx.setStroke(oldstroke);
                 }
-                gfx.setColor(new Color(color.r, color.g, color.b, color.a));
-                gfx.fill(layout.getOutline(null));
-                if (effectSize == 1) {
+                if (color != null) {
+                    gfx.setColor(new Color(color.r, color.g, color.b, color.a));
+                    gfx.fill(layout.getOutline(null));
+                }
+                if (effectSize == 1 && effectColor != null) {
                     gfx.setColor(new Color(effectColor.r, effectColor.g,
                                            effectColor.b, effectColor.a));
                     gfx.draw(layout.getOutline(null));
                 }
 
             } else if (effect == GLOW ) {
-                // draw the background of the glow
+                // the glyph masks are white, so we tint them as we composite them
                 char[] chars = origText.toCharArray();
-                int ox = 0;
-                for (char c : chars) {
-                    BufferedImage img = getGlowBackground(c, size.height, effectColor, effectSize);
-                    gfx.drawImage(img, null, ox, 0);
-                    ox += (img.getWidth() - effectSize*2);
+
+                // draw the background of the glow
+                if (effectColor != null) {
+                    Color tint = new Color(
+                        effectColor.r, effectColor.g, effectColor.b, effectColor.a);
+                    int ox = 0;
+                    for (char c : chars) {
+                        BufferedImage mask = getGlowBackground(c, height, effectSize);
+                        drawTinted(gfx, mask, ox, tint);
+                        ox += (mask.getWidth() - effectSize*2);
+                    }
                 }
 
                 // draw the foreground of the glow
-                ox = effectSize;
-                for (char c : chars) {
-                    if (c != '\n' && c != '\r') {
-                        BufferedImage img = getGlowForeground(c, size.height, color, effectSize);
-                        gfx.drawImage(img, null, ox, 0);
-                        ox += img.getWidth();
+                if (color != null) {
+                    Color tint = new Color(color.r, color.g, color.b, color.a);
+                    int ox = effectSize;
+                    for (char c : chars) {
+                        if (c != '\n' && c != '\r') {
+                            BufferedImage mask = getGlowForeground(c, height, effectSize);
+                            drawTinted(gfx, mask, ox, tint);
+                            ox += mask.getWidth();
+                        }
                     }
                 }
 
@@ -260,86 +416,55 @@ public class AWTTextFactory extends BTextFactory
 
                 int dx = 0;
                 if (effect == SHADOW) {
-                    gfx.setColor(new Color(effectColor.r, effectColor.g,
-                                           effectColor.b, effectColor.a));
-                    float tx = effectSize - 1;
-                    float ty = layout.getAscent() + effectSize;
-                    if (_isMacOS) {
-                        gfx.translate(tx, ty);
-                        gfx.fill(layout.getOutline(null));
-                        gfx.translate(-tx, -ty);
-                    } else {
-                        layout.draw(gfx, tx, ty);
+                    if (effectColor != null) {
+                        gfx.setColor(new Color(effectColor.r, effectColor.g,
+                                               effectColor.b, effectColor.a));
+                        float tx = effectSize - 1;
+                        float ty = layout.getAscent() + effectSize;
+                        if (_isMacOS) {
+                            gfx.translate(tx, ty);
+                            gfx.fill(layout.getOutline(null));
+                            gfx.translate(-tx, -ty);
+                        } else {
+                            layout.draw(gfx, tx, ty);
+                        }
                     }
                     dx = 1;
                     gfx.setComposite(ocomp);
                 }
 
-                gfx.setColor(new Color(color.r, color.g, color.b, color.a));
-                if (_isMacOS) {
-                    gfx.translate(dx, layout.getAscent());
-                    gfx.fill(layout.getOutline(null));
-                } else {
-                    layout.draw(gfx, dx, layout.getAscent());
+                if (color != null) {
+                    gfx.setColor(new Color(color.r, color.g, color.b, color.a));
+                    if (_isMacOS) {
+                        gfx.translate(dx, layout.getAscent());
+                        gfx.fill(layout.getOutline(null));
+                    } else {
+                        layout.draw(gfx, dx, layout.getAscent());
+                    }
                 }
             }
 
         } finally {
             gfx.dispose();
         }
+    }
 
-        // TODO: render into a properly sized image in the first place and create a JME Image
-        // directly
-        final BImage bimage = new BImage(image);
-
-//         final ByteBuffer idata =
-//             ByteBuffer.allocateDirect(4 * image.getWidth() * image.getHeight());
-//         idata.order(ByteOrder.nativeOrder());
-//         byte[] data = (byte[])image.getRaster().getDataElements(
-//             0, 0, image.getWidth(), image.getHeight(), null);
-//         idata.clear();
-//         idata.put(data);
-//         idata.flip();
-
-        // wrap it all up in the right object
-        return new BText() {
-            public int getLength () {
-                return length;
-            }
-            public Dimension getSize () {
-                return size;
-            }
-            public int getHitPos (int x, int y) {
-                TextHitInfo info = layout.hitTestChar(x, y);
-                return info.getInsertionIndex();
-            }
-            public int getCursorPos (int index) {
-                Shape[] carets = layout.getCaretShapes(index);
-                Rectangle2D bounds = carets[0].getBounds2D();
-                return (int)Math.round(bounds.getX() + bounds.getWidth()/2);
-            }
-            public void wasAdded () {
-                bimage.reference();
-            }
-            public void wasRemoved () {
-                bimage.release();
-            }
-            public void render (Renderer renderer, int x, int y, float alpha) {
-                bimage.render(renderer, x, y, alpha);
-            }
-            public void render (Renderer renderer, int x, int y, int w, int h, float alpha) {
-                bimage.render(renderer, x, y, w, h, alpha);
-            }
-//             public void release () {
-//                 bimage.release();
-//             }
-        };
+    /**
+     * Returns true if the supplied text contains runs with their own colors, which must be
+     * rendered into the text image rather than tinted.
+     */
+    protected static boolean hasColoredRuns (String text, int effect)
+    {
+        int sidx = (effect == PLAIN) ? -1 : text.indexOf("@=");
+        return (sidx != -1) && (text.indexOf(COLOR, sidx) != -1);
     }
 
-    /** Helper function. */
-    protected BufferedImage getGlowBackground (char c, int height, ColorRGBA color, int effectSize)
+    /**
+     * Returns the (white) mask of the glow surrounding the specified character.
+     */
+    protected BufferedImage getGlowBackground (char c, int height, int effectSize)
     {
-        BufferedImage image = _cachedGlowBGs.get(_gkey.init(c, color, effectSize));
+        BufferedImage image = _glowMasks.get(c, height, effectSize, GLOW_BACKGROUND);
         if (image != null) {
             return image;
         }
@@ -352,7 +477,7 @@ public class AWTTextFactory extends BTextFactory
             TextLayout layout = new TextLayout(
                 String.valueOf(c), _attrs.get(TextAttribute.FONT), gfx.getFontRenderContext());
             float alphaScale = Math.max(effectSize, 2f) / 2f;
-            gfx.setColor(new Color(color.r, color.g, color.b, color.a / alphaScale));
+            gfx.setColor(new Color(1f, 1f, 1f, 1f / alphaScale));
             gfx.translate(effectSize, layout.getAscent() + effectSize);
             for (int ii = effectSize; ii > 0; ii--) {
                 gfx.setStroke(new BasicStroke(effectSize * ((float) ii / effectSize),
@@ -362,15 +487,17 @@ public class AWTTextFactory extends BTextFactory
         } finally {
             gfx.dispose();
         }
-        _cachedGlowBGs.put(_gkey.cloneKey(), image);
+        _glowMasks.put(c, height, effectSize, GLOW_BACKGROUND, image);
 
         return image;
     }
 
-    /** Helper function. */
-    protected BufferedImage getGlowForeground (char c, int height, ColorRGBA color, int effectSize)
+    /**
+     * Returns the (white) mask of the specified character as drawn over its glow.
+     */
+    protected BufferedImage getGlowForeground (char c, int height, int effectSize)
     {
-        BufferedImage image = _cachedGlowFGs.get(_gkey.init(c, color, effectSize));
+        BufferedImage image = _glowMasks.get(c, height, effectSize, GLOW_FOREGROUND);
         if (image != null) {
             return image;
         }
@@ -381,28 +508,70 @@ public class AWTTextFactory extends BTextFactory
             gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             TextLayout layout = new TextLayout(
                 String.valueOf(c), _attrs.get(TextAttribute.FONT), gfx.getFontRenderContext());
-            gfx.setColor(new Color(color.r, color.g, color.b, color.a));
+            gfx.setColor(Color.white);
             gfx.translate(0, layout.getAscent() + effectSize);
             gfx.fill(layout.getOutline(null));
         } finally {
             gfx.dispose();
         }
-        _cachedGlowFGs.put(_gkey.cloneKey(), image);
+        _glowMasks.put(c, height, effectSize, GLOW_FOREGROUND, image);
 
         return image;
     }
 
-    /** Helper function. */
-    protected int computeWidth (char c)
+    /**
+     * Draws the supplied white mask in the supplied color.
+     */
+    protected void drawTinted (Graphics2D gfx, BufferedImage mask, int x, Color tint)
     {
-        Graphics2D gfx = _stub.createGraphics();
+        int width = mask.getWidth(), height = mask.getHeight();
+        if (_tinted == null || _tinted.getWidth() < width || _tinted.getHeight() < height) {
+            int owidth = (_tinted == null) ? 0 : _tinted.getWidth();
+            int oheight = (_tinted == null) ? 0 : _tinted.getHeight();
+            _tinted = new BufferedImage(Math.max(width, owidth), Math.max(height, oheight),
+                                        BufferedImage.TYPE_INT_ARGB);
+        }
+
+        // copy the mask into our scratch image and then replace its color, keeping its coverage
+        Graphics2D tgfx = _tinted.createGraphics();
         try {
-            TextLayout layout = new TextLayout(
-                String.valueOf(c), _attrs.get(TextAttribute.FONT), gfx.getFontRenderContext());
-            return (int) Math.ceil(layout.getAdvance());
+            tgfx.setComposite(AlphaComposite.Src);
+            tgfx.drawImage(mask, 0, 0, null);
+            tgfx.setComposite(AlphaComposite.SrcIn);
+            tgfx.setColor(tint);
+            tgfx.fillRect(0, 0, width, height);
         } finally {
-            gfx.dispose();
+            tgfx.dispose();
         }
+        gfx.drawImage(_tinted, x, 0, x + width, height, 0, 0, width, height, null);
+    }
+
+    /**
+     * Returns the width of the specified character, which is computed once and then cached.
+     */
+    protected int computeWidth (char c)
+    {
+        Integer width = _advances.get(c);
+        if (width == null) {
+            Graphics2D gfx = _stub.createGraphics();
+            try {
+                Rectangle2D bounds = _attrs.get(TextAttribute.FONT).getStringBounds(
+                    String.valueOf(c), gfx.getFontRenderContext());
+                _advances.put(c, width = (int)Math.ceil(bounds.getWidth()));
+            } finally {
+                gfx.dispose();
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Returns the cache of glow masks used when rendering glowing text, whose statistics describe
+     * its effectiveness and whose budget may be adjusted.
+     */
+    public GlyphMaskCache getGlowCache ()
+    {
+        return _glowMasks;
     }
 
     /**
@@ -563,6 +732,112 @@ public class AWTTextFactory extends BTextFactory
         return string;
     }
 
+    /** Text rendered into a single image. */
+    protected static class AWTText extends BText
+    {
+        public AWTText (TextLayout layout, Dimension size, int length, BImage image,
+                        boolean tintable, boolean layered, boolean effectOnTop)
+        {
+            _layout = layout;
+            _size = size;
+            _length = length;
+            _image = image;
+            _tintable = tintable;
+            _layered = layered;
+            _effectOnTop = effectOnTop;
+        }
+
+        // documentation inherited
+        public int getLength ()
+        {
+            return _length;
+        }
+
+        // documentation inherited
+        public Dimension getSize ()
+        {
+            return _size;
+        }
+
+        // documentation inherited
+        public int getHitPos (int x, int y)
+        {
+            TextHitInfo info = _layout.hitTestChar(x, y);
+            return info.getInsertionIndex();
+        }
+
+        // documentation inherited
+        public int getCursorPos (int index)
+        {
+            Shape[] carets = _layout.getCaretShapes(index);
+            Rectangle2D bounds = carets[0].getBounds2D();
+            return (int)Math.round(bounds.getX() + bounds.getWidth()/2);
+        }
+
+        @Override // from BText
+        public boolean setColors (ColorRGBA color, ColorRGBA effectColor)
+        {
+            if (!_tintable) {
+                return false;
+            }
+            _color = color;
+            _effectColor = effectColor;
+            return true;
+        }
+
+        // documentation inherited
+        public void wasAdded ()
+        {
+            _image.reference();
+        }
+
+        // documentation inherited
+        public void wasRemoved ()
+        {
+            _image.release();
+        }
+
+        // documentation inherited
+        public void render (Renderer renderer, int x, int y, float alpha)
+        {
+            render(renderer, x, y, _size.width, _size.height, alpha);
+        }
+
+        @Override // from BText
+        public void render (Renderer renderer, int x, int y, int w, int h, float alpha)
+        {
+            if (!_tintable) {
+                _image.render(renderer, x, y, w, h, alpha);
+                return;
+            }
+            // the effect layer is above the text layer in the image (and thus below it in
+            // texture coordinates)
+            if (_layered && !_effectOnTop) {
+                renderLayer(renderer, _size.height, x, y, w, h, _effectColor, alpha);
+            }
+            renderLayer(renderer, 0, x, y, w, h, _color, alpha);
+            if (_layered && _effectOnTop) {
+                renderLayer(renderer, _size.height, x, y, w, h, _effectColor, alpha);
+            }
+        }
+
+        protected void renderLayer (Renderer renderer, int sy, int x, int y, int w, int h,
+                                    ColorRGBA color, float alpha)
+        {
+            if (color != null) {
+                _image.render(renderer, 0, sy, _size.width, _size.height, x, y, w, h,
+                              color, alpha);
+            }
+        }
+
+        protected TextLayout _layout;
+        protected Dimension _size;
+        protected int _length;
+        protected BImage _image;
+        protected boolean _tintable, _layered, _effectOnTop;
+        protected ColorRGBA _color, _effectColor;
+    }
+
     protected static class StyleRun
     {
         public char[] styles;
@@ -585,52 +860,24 @@ public class AWTTextFactory extends BTextFactory
         }
     }
 
-    protected static class GlowKey implements Cloneable
-    {
-        public char c;
-        public ColorRGBA color;
-        public int size;
-
-        public GlowKey init (char c, ColorRGBA color, int size) {
-            this.c = c;
-            this.color = color;
-            this.size = size;
-            return this;
-        }
-
-        public GlowKey cloneKey () {
-            try {
-                return (GlowKey)super.clone();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }
-
-        public boolean equals (Object other) {
-            if (!(other instanceof GlowKey)) {
-                return false;
-            }
-            GlowKey okey = (GlowKey)other;
-            return (c == okey.c) && (size == okey.size) && color.equals(okey.color);
-        }
-
-        public int hashCode () {
-            return c ^ size ^ color.hashCode();
-        }
-    }
-
     protected boolean _antialias;
     protected int _height;
     protected BufferedImage _stub;
+    protected int _rasterizations;
 
     protected Map<TextAttribute, Font> _attrs = new HashMap<TextAttribute, Font>();
 
-    // for caching glow fore- and backgrounds
-    protected Map<GlowKey, BufferedImage> _cachedGlowBGs = new HashMap<GlowKey, BufferedImage>();
-    protected Map<GlowKey, BufferedImage> _cachedGlowFGs = new HashMap<GlowKey, BufferedImage>();
+    /** The line breaks of recently wrapped text. */
+    protected LineBreakCache _breaks = new LineBreakCache(BREAK_CACHE_SIZE);
 
-    // to avoid exercising the garbage collector
-    protected GlowKey _gkey = new GlowKey();
+    /** The white masks of glow fore- and backgrounds. */
+    protected GlyphMaskCache _glowMasks = new GlyphMaskCache(GLOW_CACHE_BUDGET);
+
+    /** A scratch image into which glow masks are tinted. */
+    protected BufferedImage _tinted;
+
+    /** The widths of the characters we have glowed. */
+    protected Map<Character, Integer> _advances = new HashMap<Character, Integer>();
 
     protected static boolean _isMacOS;
     static {
@@ -643,6 +890,15 @@ public class AWTTextFactory extends BTextFactory
         }
     }
 
+    /** The number of bytes of glow masks retained by each factory. */
+    protected static final long GLOW_CACHE_BUDGET = 1024 * 1024;
+
+    /** The kinds of glow masks. */
+    protected static final int GLOW_BACKGROUND = 0, GLOW_FOREGROUND = 1;
+
+    /** The number of texts whose line breaks are cached. */
+    protected static final int BREAK_CACHE_SIZE = 256;
+
     protected static final char NONE = '!';
     protected static final char BOLD = 'b';
     protected static final char ITALIC = 'i';
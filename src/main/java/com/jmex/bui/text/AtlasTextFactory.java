@@ -0,0 +1,868 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.jme.renderer.ColorRGBA;
+import com.jme.renderer.Renderer;
+
+import com.jmex.bui.BComponent;
+import com.jmex.bui.BImage;
+import com.jmex.bui.util.Dimension;
+
+/**
+ * Formats text by rendering each glyph (for a particular effect) into a shared atlas image exactly
+ * once and then building text out of textured quads that reference those glyphs. Because all text
+ * created by this factory shares a handful of atlas textures, creating text does not require a
+ * texture upload once the glyphs in use have been rasterized and rendering many labels results in
+ * very few texture changes.
+ *
+ * <p> Glyphs are rasterized as white coverage and colored when they are rendered, so the same
+ * glyphs are shared by text of every color. Effects are rasterized as a separate background layer
+ * which is tinted with the effect color.
+ *
+ * <p> Text is laid out using per-character advances, so kerning and ligatures are not supported,
+ * nor is the styled text syntax understood by {@link AWTTextFactory}.
+ */
+public class AtlasTextFactory extends BTextFactory
+{
+    /**
+     * Creates an atlas text factory with the supplied font.
+     */
+    public AtlasTextFactory (Font font, boolean antialias)
+    {
+        _font = font;
+        _antialias = antialias;
+
+        // we need a graphics context to obtain a font render context
+        BufferedImage stub = new BufferedImage(1, 1, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D gfx = stub.createGraphics();
+        try {
+            if (_antialias) {
+                gfx.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                                     RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            }
+            _frc = gfx.getFontRenderContext();
+        } finally {
+            gfx.dispose();
+        }
+
+        // compute the metrics of our font from a sample text
+        TextLayout layout = new TextLayout("J", _font, _frc);
+        _ascent = layout.getAscent();
+        _height = Math.max(
+            (int)(layout.getLeading() + layout.getAscent() + layout.getDescent()), 1);
+    }
+
+    // documentation inherited
+    public int getHeight ()
+    {
+        return _height;
+    }
+
+    // documentation inherited
+    public BText createText (String text, ColorRGBA color, int effect, int effectSize,
+                             ColorRGBA effectColor, boolean useAdvance)
+    {
+        if (text.equals("")) {
+            text = " ";
+        }
+        return new AtlasText(text, color, effect, effectSize, effectColor, useAdvance);
+    }
+
+    // documentation inherited
+    public BText[] wrapText (String text, ColorRGBA color, int effect, int effectSize,
+                             ColorRGBA effectColor, int maxWidth)
+    {
+        // the empty string will break things; so use a single space instead
+        if (text.length() == 0) {
+            text = " ";
+        }
+
+        ArrayList<BText> texts = new ArrayList<BText>();
+        int pos = 0;
+        while (pos < text.length()) {
+            // stop at the next newline or the end of the line if there are no newlines in the text
+            int nextret = text.indexOf('\n', pos);
+            if (nextret == -1) {
+                nextret = text.length();
+            }
+
+            // measure out as much text as we can render in one line
+            int end = findLineBreak(text, pos, nextret, maxWidth);
+            String origText = text.substring(pos, end);
+
+            // skip past any newline that we used to terminate our wrap
+            pos = end;
+            if (pos < text.length() && text.charAt(pos) == '\n') {
+                pos++;
+            }
+
+            texts.add(createText(origText, color, effect, effectSize, effectColor, true));
+        }
+
+        return texts.toArray(new BText[texts.size()]);
+    }
+
+    @Override // from BTextFactory
+    public Dimension measureText (String text, int effect, int effectSize, boolean useAdvance)
+    {
+        if (text.equals("")) {
+            text = " ";
+        }
+        return measureText(text, 0, text.length(), effect, effectSize, useAdvance);
+    }
+
+    @Override // from BTextFactory
+    public WrappedLine[] measureWrapped (String text, int effect, int effectSize, int maxWidth)
+    {
+        // the empty string will break things; so use a single space instead
+        if (text.length() == 0) {
+            text = " ";
+        }
+
+        ArrayList<WrappedLine> lines = new ArrayList<WrappedLine>();
+        int pos = 0;
+        while (pos < text.length()) {
+            int nextret = text.indexOf('\n', pos);
+            if (nextret == -1) {
+                nextret = text.length();
+            }
+            // blank lines are rendered as a single space, so measure them that way
+            int end = findLineBreak(text, pos, nextret, maxWidth);
+            Dimension size = (end > pos) ?
+                measureText(text, pos, end, effect, effectSize, true) :
+                measureText(" ", 0, 1, effect, effectSize, true);
+            lines.add(new WrappedLine(end - pos, size));
+            pos = end;
+            if (pos < text.length() && text.charAt(pos) == '\n') {
+                pos++;
+            }
+        }
+        return lines.toArray(new WrappedLine[lines.size()]);
+    }
+
+    /**
+     * Returns the number of atlas pages currently in use by this factory.
+     */
+    public int getPageCount ()
+    {
+        return _pages.size();
+    }
+
+    /**
+     * Returns the number of glyphs that have been rasterized into our atlas pages.
+     */
+    public int getGlyphCount ()
+    {
+        return _glyphs.size();
+    }
+
+    /**
+     * Determines where to break a line of text that must fit within the specified width. Breaks
+     * are made after whitespace where possible (trailing whitespace is included in the line but
+     * does not count against its width) and mid-word when a single word does not fit. At least one
+     * character is always included in the line.
+     *
+     * @return the index of the character following the last character in the line.
+     */
+    protected int findLineBreak (String text, int start, int limit, int maxWidth)
+    {
+        float width = 0;
+        int lastSpace = -1;
+        for (int ii = start; ii < limit; ii++) {
+            char c = text.charAt(ii);
+            width += getAdvance(c);
+            if (Character.isWhitespace(c)) {
+                lastSpace = ii;
+            } else if (width > maxWidth && ii > start) {
+                return (lastSpace >= start) ? lastSpace + 1 : ii;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Computes the size of the text that would be created from the specified range of characters.
+     */
+    protected Dimension measureText (String text, int start, int end, int effect, int effectSize,
+                                     boolean useAdvance)
+    {
+        if (effect == NORMAL || effect == PLAIN) {
+            effectSize = 0;
+        }
+        float pen = 0, inkRight = 0;
+        for (int ii = start; ii < end; ii++) {
+            CharInfo info = getCharInfo(text.charAt(ii));
+            inkRight = Math.max(inkRight, pen + info.inkRight);
+            pen += info.advance;
+        }
+        return computeSize(useAdvance ? pen : inkRight, effect, effectSize);
+    }
+
+    /**
+     * Computes the size of text of the specified width rendered with the specified effect.
+     */
+    protected Dimension computeSize (float width, int effect, int effectSize)
+    {
+        return new Dimension(Math.max(Math.round(width), 1) + getExtraWidth(effect, effectSize),
+                             _height + getExtraHeight(effect, effectSize));
+    }
+
+    /**
+     * Returns the advance of the specified character.
+     */
+    protected float getAdvance (char c)
+    {
+        return getCharInfo(c).advance;
+    }
+
+    /**
+     * Returns the (cached) metrics for the specified character.
+     */
+    protected CharInfo getCharInfo (char c)
+    {
+        CharInfo info;
+        if (c < _latinInfo.length) {
+            if ((info = _latinInfo[c]) == null) {
+                _latinInfo[c] = info = computeCharInfo(c);
+            }
+        } else if ((info = _charInfo.get(c)) == null) {
+            _charInfo.put(c, info = computeCharInfo(c));
+        }
+        return info;
+    }
+
+    /**
+     * Computes the metrics for the specified character.
+     */
+    protected CharInfo computeCharInfo (char c)
+    {
+        CharInfo info = new CharInfo();
+        if (!Character.isISOControl(c)) {
+            TextLayout layout = new TextLayout(String.valueOf(c), _font, _frc);
+            info.advance = layout.getAdvance();
+            if (!Character.isWhitespace(c)) {
+                info.inkRight = (float)layout.getOutline(null).getBounds2D().getMaxX();
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Returns the glyph for the specified character and effect, rasterizing it into our atlas if
+     * it has not yet been rasterized.
+     */
+    protected Glyph getGlyph (char c, int effect, int effectSize)
+    {
+        Glyph glyph = _glyphs.get(_gkey.init(c, effect, effectSize));
+        if (glyph == null) {
+            _glyphs.put(_gkey.cloneKey(), glyph = createGlyph(c, effect, effectSize));
+        }
+        return glyph;
+    }
+
+    /**
+     * Rasterizes the specified character with the specified effect into our atlas.
+     */
+    protected Glyph createGlyph (char c, int effect, int effectSize)
+    {
+        CharInfo info = getCharInfo(c);
+        Glyph glyph = new Glyph();
+        glyph.advance = info.advance;
+        glyph.inkRight = info.inkRight;
+        if (Character.isWhitespace(c) || Character.isISOControl(c)) {
+            return glyph; // nothing to see here
+        }
+
+        TextLayout layout = new TextLayout(String.valueOf(c), _font, _frc);
+        Shape outline = layout.getOutline(null);
+        Rectangle2D bounds = outline.getBounds2D();
+
+        // leave room around the glyph for antialiasing and effects that extend beyond its bounds
+        int margin = (effect == NORMAL) ? 1 : effectSize + 1;
+        glyph.left = (int)Math.floor(Math.min(0, bounds.getMinX())) - margin;
+        int width = (int)Math.ceil(Math.max(glyph.advance, bounds.getMaxX())) +
+            margin - glyph.left;
+        int height = _height + getExtraHeight(effect, effectSize);
+        float ox = -glyph.left, oy = getOriginY(effect, effectSize);
+
+        // render the effect layer, if any
+        switch (effect) {
+        case SHADOW: {
+            glyph.background = allocate(width, height);
+            Graphics2D gfx = glyph.background.createGraphics(_antialias);
+            try {
+                layout.draw(gfx, ox + effectSize - 2, oy + effectSize);
+            } finally {
+                gfx.dispose();
+            }
+            break;
+        }
+
+        case OUTLINE: {
+            glyph.background = allocate(width, height);
+            glyph.backgroundOnTop = (effectSize == 1);
+            Graphics2D gfx = glyph.background.createGraphics(_antialias);
+            try {
+                gfx.translate(ox, oy);
+                if (effectSize > 1) {
+                    gfx.setStroke(new BasicStroke(effectSize, BasicStroke.CAP_ROUND,
+                                                  BasicStroke.JOIN_ROUND));
+                }
+                gfx.draw(outline);
+            } finally {
+                gfx.dispose();
+            }
+            break;
+        }
+
+        case GLOW: {
+            glyph.background = allocate(width, height);
+            Graphics2D gfx = glyph.background.createGraphics(true);
+            try {
+                float alphaScale = Math.max(effectSize, 2f) / 2f;
+                gfx.setColor(new Color(1f, 1f, 1f, 1f / alphaScale));
+                gfx.translate(ox, oy);
+                for (int ii = effectSize; ii > 0; ii--) {
+                    gfx.setStroke(new BasicStroke(effectSize * ((float) ii / effectSize),
+                                                  BasicStroke.CAP_ROUND, BasicStroke.JOIN_MITER,
+                                                  1));
+                    gfx.draw(outline);
+                }
+            } finally {
+                gfx.dispose();
+            }
+            break;
+        }
+        }
+
+        // render the glyph itself
+        glyph.foreground = allocate(width, height);
+        Graphics2D gfx = glyph.foreground.createGraphics(_antialias || effect == GLOW);
+        try {
+            if (effect == NORMAL || effect == SHADOW) {
+                layout.draw(gfx, ox, oy);
+            } else {
+                gfx.translate(ox, oy);
+                gfx.fill(outline);
+            }
+        } finally {
+            gfx.dispose();
+        }
+
+        return glyph;
+    }
+
+    /**
+     * Allocates a region of the specified size in our atlas, creating or growing a page if
+     * necessary.
+     */
+    protected Region allocate (int width, int height)
+    {
+        Region region = null;
+        if (_pages.size() > 0) {
+            region = _pages.get(_pages.size()-1).allocate(width, height);
+        }
+        if (region == null) {
+            // oversized glyphs get a page of their own
+            int pwidth = PAGE_WIDTH, pheight = INITIAL_PAGE_HEIGHT;
+            while (pwidth < width + GUTTER) {
+                pwidth *= 2;
+            }
+            while (pheight < height + GUTTER) {
+                pheight *= 2;
+            }
+            Page page = createPage(pwidth, pheight);
+            _pages.add(page);
+            region = page.allocate(width, height);
+        }
+        return region;
+    }
+
+    /**
+     * Creates a new atlas page of the specified size.
+     */
+    protected Page createPage (int width, int height)
+    {
+        return new Page(width, height);
+    }
+
+    /**
+     * Returns the horizontal offset of the glyph origin within text rendered with the specified
+     * effect.
+     */
+    protected static int getOriginX (int effect, int effectSize)
+    {
+        switch (effect) {
+        case SHADOW: return 1;
+        case OUTLINE: return effectSize - 1;
+        case GLOW: return effectSize;
+        default: return 0;
+        }
+    }
+
+    /**
+     * Returns the baseline of text rendered with the specified effect (relative to its top).
+     */
+    protected float getOriginY (int effect, int effectSize)
+    {
+        switch (effect) {
+        case OUTLINE:
+        case GLOW: return _ascent + effectSize;
+        default: return _ascent;
+        }
+    }
+
+    /**
+     * Returns the additional width needed by text rendered with the specified effect.
+     */
+    protected static int getExtraWidth (int effect, int effectSize)
+    {
+        switch (effect) {
+        case SHADOW: return effectSize;
+        case OUTLINE:
+        case GLOW: return effectSize*2;
+        default: return 0;
+        }
+    }
+
+    /**
+     * Returns the additional height needed by text rendered with the specified effect.
+     */
+    protected static int getExtraHeight (int effect, int effectSize)
+    {
+        return getExtraWidth(effect, effectSize);
+    }
+
+    /** Text composed of quads referencing glyphs in our atlas. */
+    protected class AtlasText extends BText
+    {
+        public AtlasText (String text, ColorRGBA color, int effect, int effectSize,
+                          ColorRGBA effectColor, boolean useAdvance)
+        {
+            // plain text is normal text without styles (which we don't support anyway)
+            if (effect == PLAIN) {
+                effect = NORMAL;
+            }
+            if (effect == NORMAL) {
+                effectSize = 0;
+            }
+
+            _color = color;
+            _effectColor = effectColor;
+            _chars = new Glyph[text.length()];
+            _carets = new float[text.length()+1];
+            _gx = new int[text.length()];
+
+            int ox = getOriginX(effect, effectSize);
+            float inkRight = 0;
+            for (int ii = 0; ii < _chars.length; ii++) {
+                Glyph glyph = _chars[ii] = getGlyph(text.charAt(ii), effect, effectSize);
+                _gx[ii] = ox + Math.round(_carets[ii]) + glyph.left;
+                _carets[ii+1] = _carets[ii] + glyph.advance;
+                inkRight = Math.max(inkRight, _carets[ii] + glyph.inkRight);
+                if (glyph.foreground != null) {
+                    noteUsed(glyph.foreground.page);
+                }
+                if (glyph.background != null) {
+                    noteUsed(glyph.background.page);
+                }
+            }
+
+            _size = computeSize(useAdvance ? _carets[_chars.length] : inkRight,
+                                effect, effectSize);
+        }
+
+        // documentation inherited
+        public int getLength ()
+        {
+            return _chars.length;
+        }
+
+        // documentation inherited
+        public Dimension getSize ()
+        {
+            return _size;
+        }
+
+        // documentation inherited
+        public int getHitPos (int x, int y)
+        {
+            for (int ii = 0; ii < _chars.length; ii++) {
+                if (x < (_carets[ii] + _carets[ii+1]) / 2) {
+                    return ii;
+                }
+            }
+            return _chars.length;
+        }
+
+        // documentation inherited
+        public int getCursorPos (int index)
+        {
+            return Math.round(_carets[Math.max(0, Math.min(index, _chars.length))]);
+        }
+
+        @Override // from BText
+        public boolean setColors (ColorRGBA color, ColorRGBA effectColor)
+        {
+            _color = color;
+            _effectColor = effectColor;
+            return true;
+        }
+
+        // documentation inherited
+        public void wasAdded ()
+        {
+            for (Page page : _used) {
+                page.reference();
+            }
+        }
+
+        // documentation inherited
+        public void wasRemoved ()
+        {
+            for (Page page : _used) {
+                page.release();
+            }
+        }
+
+        // documentation inherited
+        public void render (Renderer renderer, int x, int y, float alpha)
+        {
+            render(renderer, x, y, _size.width, _size.height, alpha);
+        }
+
+        // documentation inherited
+        public void render (Renderer renderer, int x, int y, int w, int h, float alpha)
+        {
+            // make sure any newly rasterized glyphs have made it into our textures
+            for (Page page : _used) {
+                page.validate();
+            }
+
+            // render all effects before any glyphs so that effects don't overlap the neighboring
+            // glyphs, except for the thin outline which is drawn atop the glyph
+            float sx = w / (float)_size.width, sy = h / (float)_size.height;
+            renderLayer(renderer, x, y, sx, sy, true, false, _effectColor, alpha);
+            renderLayer(renderer, x, y, sx, sy, false, false, _color, alpha);
+            renderLayer(renderer, x, y, sx, sy, true, true, _effectColor, alpha);
+        }
+
+        protected void renderLayer (Renderer renderer, int x, int y, float sx, float sy,
+                                    boolean background, boolean onTop, ColorRGBA color,
+                                    float alpha)
+        {
+            for (int ii = 0; ii < _chars.length; ii++) {
+                Glyph glyph = _chars[ii];
+                Region region = background ? glyph.background : glyph.foreground;
+                if (region == null || (background && glyph.backgroundOnTop != onTop)) {
+                    continue;
+                }
+                int gx1 = Math.round(_gx[ii] * sx);
+                int gx2 = Math.round((_gx[ii] + region.width) * sx);
+                region.render(renderer, x + gx1, y, gx2 - gx1, Math.round(region.height * sy),
+                              color, alpha);
+            }
+        }
+
+        protected void noteUsed (Page page)
+        {
+            if (!_used.contains(page)) {
+                _used.add(page);
+            }
+        }
+
+        protected Glyph[] _chars;
+        protected int[] _gx;
+        protected float[] _carets;
+        protected Dimension _size;
+        protected ColorRGBA _color, _effectColor;
+        protected ArrayList<Page> _used = new ArrayList<Page>(1);
+    }
+
+    /** Contains the metrics of a single character. */
+    protected static class CharInfo
+    {
+        /** The advance of the character. */
+        public float advance;
+
+        /** The rightmost extent of the character's outline relative to its origin. */
+        public float inkRight;
+    }
+
+    /** Contains information on a single rasterized glyph. */
+    protected static class Glyph
+    {
+        /** The advance of the glyph. */
+        public float advance;
+
+        /** The rightmost extent of the glyph's outline relative to its origin. */
+        public float inkRight;
+
+        /** The offset of the left edge of the glyph's regions relative to its origin. */
+        public int left;
+
+        /** The regions containing the glyph and its effect, or null for blank glyphs. */
+        public Region foreground, background;
+
+        /** Whether the effect is rendered on top of the glyph rather than behind it. */
+        public boolean backgroundOnTop;
+    }
+
+    /** Identifies a glyph. */
+    protected static class GlyphKey implements Cloneable
+    {
+        public char c;
+        public int effect;
+        public int size;
+
+        public GlyphKey init (char c, int effect, int size) {
+            this.c = c;
+            this.effect = effect;
+            this.size = size;
+            return this;
+        }
+
+        public GlyphKey cloneKey () {
+            try {
+                return (GlyphKey)super.clone();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public boolean equals (Object other) {
+            if (!(other instanceof GlyphKey)) {
+                return false;
+            }
+            GlyphKey okey = (GlyphKey)other;
+            return (c == okey.c) && (effect == okey.effect) && (size == okey.size);
+        }
+
+        public int hashCode () {
+            return c ^ (effect << 16) ^ (size << 20);
+        }
+    }
+
+    /** A rectangular region of an atlas page. */
+    protected static class Region
+    {
+        public Page page;
+        public int x, y, width, height;
+
+        public Region (Page page, int x, int y, int width, int height) {
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Creates a graphics context that renders white into this region and marks our page as
+         * needing to be uploaded.
+         */
+        public Graphics2D createGraphics (boolean antialias) {
+            Graphics2D gfx = page.image.createGraphics();
+            gfx.clipRect(x, y, width, height);
+            gfx.translate(x, y);
+            gfx.setColor(Color.white);
+            if (antialias) {
+                gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                     RenderingHints.VALUE_ANTIALIAS_ON);
+                gfx.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                                     RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            }
+            page.noteDirty(y, height);
+            return gfx;
+        }
+
+        public void render (Renderer renderer, int tx, int ty, int twidth, int theight,
+                            ColorRGBA color, float alpha) {
+            // our coordinates are relative to the top of the page, but the image is flipped
+            BImage bimage = page.bimage;
+            bimage.render(renderer, x, bimage.getHeight() - y - height, width, height,
+                          tx, ty, twidth, theight, color, alpha);
+        }
+    }
+
+    /** A single atlas image into which glyphs are packed in shelves. */
+    protected static class Page
+    {
+        public BufferedImage image;
+        public BImage bimage;
+        public boolean dirty;
+
+        public Page (int width, int height) {
+            image = BImage.createCompatibleImage(width, height, true);
+        }
+
+        /**
+         * Allocates a region in this page, growing the page if needed.
+         *
+         * @return the allocated region or null if the page is full.
+         */
+        public Region allocate (int width, int height) {
+            int pwidth = image.getWidth();
+            if (_shelfX + width + GUTTER > pwidth) {
+                _shelfY += _shelfHeight;
+                _shelfX = _shelfHeight = 0;
+            }
+            if (width + GUTTER > pwidth) {
+                return null;
+            }
+            int pheight = image.getHeight(), nheight = pheight;
+            while (_shelfY + height + GUTTER > nheight) {
+                nheight *= 2;
+            }
+            if (nheight > pheight) {
+                if (nheight > MAX_PAGE_HEIGHT) {
+                    return null;
+                }
+                grow(nheight);
+            }
+
+            Region region = new Region(this, _shelfX, _shelfY, width, height);
+            _shelfX += width + GUTTER;
+            _shelfHeight = Math.max(_shelfHeight, height + GUTTER);
+            return region;
+        }
+
+        /**
+         * Notes that a text is referencing this page.
+         */
+        public void reference () {
+            if (_referents == 0) {
+                // validate before noting the reference, so that the new texture is referenced
+                // only once (below)
+                validate();
+                bimage.reference();
+            }
+            _referents++;
+        }
+
+        /**
+         * Notes that a text is no longer referencing this page.
+         */
+        public void release () {
+            if (--_referents == 0) {
+                bimage.release();
+            }
+        }
+
+        /**
+         * Notes that the specified rows of our image have been drawn into.
+         */
+        public void noteDirty (int y, int height) {
+            dirty = true;
+            _dirtyTop = Math.min(_dirtyTop, y);
+            _dirtyBottom = Math.max(_dirtyBottom, y + height);
+        }
+
+        /**
+         * Ensures that our texture contains all glyphs rasterized so far.
+         */
+        public void validate () {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            int top = _dirtyTop, bottom = _dirtyBottom;
+            _dirtyTop = Integer.MAX_VALUE;
+            _dirtyBottom = 0;
+
+            // if we have not grown, only the rows containing new glyphs need to be uploaded
+            if (bimage != null && bimage.getHeight() == image.getHeight()) {
+                bimage.updateRows(top, bottom - top);
+                return;
+            }
+
+            // otherwise we need a new texture
+            BImage obimage = bimage;
+            bimage = createImage();
+            if (_referents > 0) {
+                bimage.reference();
+                // don't leave our texts blank while the new texture awaits upload
+                bimage.ensureResident();
+                if (obimage != null) {
+                    // make sure nothing is waiting to be drawn with the old texture
+                    BComponent.getQuadBatch().flush();
+                    obimage.release();
+                }
+            }
+        }
+
+        /**
+         * Creates the texture image for our current contents.
+         */
+        protected BImage createImage () {
+            BImage bimage = new BImage(image);
+            bimage.setUsage(BImage.USAGE_TEXT);
+            return bimage;
+        }
+
+        protected void grow (int height) {
+            BufferedImage nimage = BImage.createCompatibleImage(image.getWidth(), height, true);
+            Graphics2D gfx = nimage.createGraphics();
+            try {
+                gfx.drawImage(image, 0, 0, null);
+            } finally {
+                gfx.dispose();
+            }
+            image = nimage;
+            dirty = true;
+        }
+
+        protected int _shelfX, _shelfY, _shelfHeight;
+        protected int _referents;
+
+        /** The rows drawn into since we were last validated. */
+        protected int _dirtyTop = Integer.MAX_VALUE, _dirtyBottom;
+    }
+
+    protected Font _font;
+    protected boolean _antialias;
+    protected FontRenderContext _frc;
+    protected float _ascent;
+    protected int _height;
+
+    /** Our rasterized glyphs and the pages containing them. */
+    protected HashMap<GlyphKey, Glyph> _glyphs = new HashMap<GlyphKey, Glyph>();
+    protected ArrayList<Page> _pages = new ArrayList<Page>();
+
+    /** Cached character metrics. */
+    protected CharInfo[] _latinInfo = new CharInfo[256];
+    protected HashMap<Character, CharInfo> _charInfo = new HashMap<Character, CharInfo>();
+
+    // to avoid exercising the garbage collector
+    protected GlyphKey _gkey = new GlyphKey();
+
+    /** The width of our atlas pages. */
+    protected static final int PAGE_WIDTH = 512;
+
+    /** The initial height of our atlas pages, which are doubled in height as they fill up. */
+    protected static final int INITIAL_PAGE_HEIGHT = 64;
+
+    /** The height beyond which we start a new page rather than growing the current page. */
+    protected static final int MAX_PAGE_HEIGHT = 1024;
+
+    /** The space left between glyphs to avoid bleeding when the texture is filtered. */
+    protected static final int GUTTER = 1;
+}
@@ -5,6 +5,7 @@
 
 package com.jmex.bui.text;
 
+import com.jme.renderer.ColorRGBA;
 import com.jme.renderer.Renderer;
 import com.jmex.bui.util.Dimension;
 
@@ -50,6 +51,16 @@ public abstract class BText
         render(render, x, y, alpha);
     }
 
+    /**
+     * Changes the colors of this text without rendering it again, if possible.
+     *
+     * @return true if the text was recolored, false if it must be recreated with the new colors.
+     */
+    public boolean setColors (ColorRGBA color, ColorRGBA effectColor)
+    {
+        return false;
+    }
+
     /**
      * Called when the component that contains this text is was added to the interface hierarchy.
      */
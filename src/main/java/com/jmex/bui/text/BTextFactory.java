@@ -8,6 +8,7 @@ package com.jmex.bui.text;
 import com.jme.renderer.ColorRGBA;
 
 import com.jmex.bui.BConstants;
+import com.jmex.bui.util.Dimension;
 
 /**
  * Creates instances of {@link BText} using a particular technology and a particular font
@@ -45,4 +46,52 @@ public abstract class BTextFactory
      */
     public abstract BText[] wrapText (String text, ColorRGBA color, int effect, int effectSize,
                                       ColorRGBA effectColor, int maxWidth);
+
+    /**
+     * Computes the size of the text that would be created by a call to {@link #createText} with
+     * the supplied arguments. The default implementation creates and discards the text; factories
+     * should override this method to measure the text without rendering it.
+     */
+    public Dimension measureText (String text, int effect, int effectSize, boolean useAdvance)
+    {
+        return createText(text, ColorRGBA.white, effect, effectSize,
+                          ColorRGBA.white, useAdvance).getSize();
+    }
+
+    /**
+     * Computes the line breaks and line sizes of the text that would be created by a call to
+     * {@link #wrapText} with the supplied arguments. The default implementation creates and
+     * discards the text; factories should override this method to measure the text without
+     * rendering it.
+     */
+    public WrappedLine[] measureWrapped (String text, int effect, int effectSize, int maxWidth)
+    {
+        BText[] texts = wrapText(
+            text, ColorRGBA.white, effect, effectSize, ColorRGBA.white, maxWidth);
+        WrappedLine[] lines = new WrappedLine[texts.length];
+        for (int ii = 0; ii < texts.length; ii++) {
+            lines[ii] = new WrappedLine(texts[ii].getLength(), texts[ii].getSize());
+        }
+        return lines;
+    }
+
+    /** Describes a single line of wrapped text as computed by {@link #measureWrapped}. */
+    public static class WrappedLine
+    {
+        /** The number of characters of the source text on this line (not including the newline
+         * that terminated the line, if any). */
+        public int length;
+
+        /** The size of the line when rendered. */
+        public Dimension size;
+
+        public WrappedLine (int length, Dimension size) {
+            this.length = length;
+            this.size = size;
+        }
+
+        public String toString () {
+            return length + ":" + size;
+        }
+    }
 }
@@ -59,13 +59,74 @@ public class Document
     /** Returns the entire text of the document. */
     public String getText ()
     {
-        return _text;
+        if (_string == null) {
+            _string = getText(0, getLength());
+        }
+        return _string;
     }
 
     /** Returns a subset of the text of the document. */
     public String getText (int offset, int length)
     {
-        return _text.substring(offset, length);
+        checkRange(offset, length);
+        if (offset + length <= _gapStart) {
+            return new String(_buffer, offset, length);
+        } else if (offset >= _gapStart) {
+            return new String(_buffer, offset + getGapLength(), length);
+        }
+        char[] chars = new char[length];
+        getChars(offset, length, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Copies a subset of the text of the document into the supplied array.
+     */
+    public void getChars (int offset, int length, char[] dest, int destOffset)
+    {
+        checkRange(offset, length);
+        int before = Math.max(0, Math.min(length, _gapStart - offset));
+        if (before > 0) {
+            System.arraycopy(_buffer, offset, dest, destOffset, before);
+        }
+        if (length > before) {
+            System.arraycopy(_buffer, offset + before + getGapLength(), dest,
+                             destOffset + before, length - before);
+        }
+    }
+
+    /** Returns the character at the specified offset in the document. */
+    public char charAt (int offset)
+    {
+        if (offset < 0 || offset >= getLength()) {
+            throw new StringIndexOutOfBoundsException(offset);
+        }
+        return _buffer[(offset < _gapStart) ? offset : offset + getGapLength()];
+    }
+
+    /**
+     * Returns a view of the text of the document that reflects subsequent changes to the
+     * document, for reading its text without copying it.
+     */
+    public CharSequence getCharSequence ()
+    {
+        if (_chars == null) {
+            _chars = new CharSequence() {
+                public int length () {
+                    return getLength();
+                }
+                public char charAt (int index) {
+                    return Document.this.charAt(index);
+                }
+                public CharSequence subSequence (int start, int end) {
+                    return getText(start, end - start);
+                }
+                public String toString () {
+                    return getText();
+                }
+            };
+        }
+        return _chars;
     }
 
     /**
@@ -82,7 +143,7 @@ public class Document
     /** Returns the number of characters in the document. */
     public int getLength ()
     {
-        return _text.length();
+        return _buffer.length - getGapLength();
     }
 
     /**
@@ -115,33 +176,55 @@ public class Document
      */
     public boolean replace (int offset, int length, String text)
     {
-        StringBuffer buf = new StringBuffer();
-        if (offset > 0) {
-            buf.append(_text.substring(0, offset));
-        }
-        buf.append(text);
-        if (_text.length() > 0) {
-            buf.append(_text.substring(offset+length, _text.length()));
+        checkRange(offset, length);
+        if (!validateEdit(offset, length, text)) {
+            return false;
         }
 
-        String ntext = buf.toString();
-        if (!validateEdit(_text, ntext)) {
-            return false;
+        // move the gap to the edit, absorb the replaced text into it and fill it with the new
+        int tlength = text.length();
+        moveGap(offset);
+        _gapEnd += length;
+        if (getGapLength() < tlength) {
+            growGap(tlength);
         }
+        text.getChars(0, tlength, _buffer, _gapStart);
+        _gapStart += tlength;
+        _string = null;
 
-        _text = ntext;
         if (length > 0) {
             notify(false, offset, length);
         }
-        if (text.length() > 0) {
-            notify(true, offset, text.length());
+        if (tlength > 0) {
+            notify(true, offset, tlength);
         }
         return true;
     }
 
+    /**
+     * Provides an opportunity for edits to be rejected before being applied to the document. The
+     * document will contain its old text when this is called. The text as it would be after the
+     * edit can be inspected without being built via {@link #getEditedText}.
+     *
+     * <p> The default implementation calls {@link #validateEdit(String,String)} (building the
+     * old and new text) if a derived class overrides it, and accepts the edit otherwise.
+     *
+     * @return true if the edit should be applied, false if the old text should remain.
+     */
+    protected boolean validateEdit (int offset, int length, String text)
+    {
+        if (_legacyValidate == null) {
+            _legacyValidate = overridesLegacyValidate(getClass());
+        }
+        return !_legacyValidate ||
+            validateEdit(getText(), getEditedText(offset, length, text).toString());
+    }
+
     /**
      * Provides an opportunity for edits to be rejected before being applied to
-     * the document.
+     * the document. Derived classes should prefer to override {@link
+     * #validateEdit(int,int,String)}, which does not require that the full old
+     * and new text be built for every edit.
      *
      * @return true if the document should be configured with the specified new
      * text, false if the old text should remain.
@@ -151,6 +234,14 @@ public class Document
         return true;
     }
 
+    /**
+     * Returns a view of the text of the document as it would be after the specified edit.
+     */
+    protected CharSequence getEditedText (int offset, int length, String text)
+    {
+        return new EditedText(offset, length, text);
+    }
+
     /**
      * Notifies document listeners.
      */
@@ -176,6 +267,126 @@ public class Document
         }
     }
 
-    protected String _text = "";
+    /**
+     * Returns the number of unused characters in our buffer.
+     */
+    protected int getGapLength ()
+    {
+        return _gapEnd - _gapStart;
+    }
+
+    /**
+     * Moves the gap in our buffer so that it starts at the specified offset.
+     */
+    protected void moveGap (int offset)
+    {
+        if (offset < _gapStart) {
+            int count = _gapStart - offset;
+            System.arraycopy(_buffer, offset, _buffer, _gapEnd - count, count);
+            _gapStart -= count;
+            _gapEnd -= count;
+        } else if (offset > _gapStart) {
+            int count = offset - _gapStart;
+            System.arraycopy(_buffer, _gapEnd, _buffer, _gapStart, count);
+            _gapStart += count;
+            _gapEnd += count;
+        }
+    }
+
+    /**
+     * Enlarges our buffer so that the gap can hold at least the specified number of characters.
+     */
+    protected void growGap (int required)
+    {
+        int length = getLength(), after = _buffer.length - _gapEnd;
+        char[] buffer = new char[Math.max(_buffer.length * 2, length + required + MIN_GAP)];
+        System.arraycopy(_buffer, 0, buffer, 0, _gapStart);
+        System.arraycopy(_buffer, _gapEnd, buffer, buffer.length - after, after);
+        _buffer = buffer;
+        _gapEnd = buffer.length - after;
+    }
+
+    /**
+     * Throws an exception if the specified range is not within the document.
+     */
+    protected void checkRange (int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset + length > getLength()) {
+            throw new StringIndexOutOfBoundsException(
+                "Invalid range [offset=" + offset + ", length=" + length +
+                ", doclen=" + getLength() + "]");
+        }
+    }
+
+    /**
+     * Returns true if the specified class overrides {@link #validateEdit(String,String)}.
+     */
+    protected static boolean overridesLegacyValidate (Class<?> clazz)
+    {
+        for (; clazz != Document.class; clazz = clazz.getSuperclass()) {
+            try {
+                clazz.getDeclaredMethod("validateEdit", String.class, String.class);
+                return true;
+            } catch (NoSuchMethodException nsme) {
+                // keep looking
+            }
+        }
+        return false;
+    }
+
+    /** A view of the document's text as it would be after an edit. */
+    protected class EditedText implements CharSequence
+    {
+        public EditedText (int offset, int length, String text) {
+            _offset = offset;
+            _length = length;
+            _text = text;
+        }
+
+        public int length () {
+            return getLength() - _length + _text.length();
+        }
+
+        public char charAt (int index) {
+            if (index < _offset) {
+                return Document.this.charAt(index);
+            }
+            index -= _offset;
+            return (index < _text.length()) ? _text.charAt(index) :
+                Document.this.charAt(_offset + _length + index - _text.length());
+        }
+
+        public CharSequence subSequence (int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        public String toString () {
+            StringBuilder buf = new StringBuilder(length());
+            buf.append(getText(0, _offset)).append(_text);
+            int after = _offset + _length;
+            return buf.append(getText(after, getLength() - after)).toString();
+        }
+
+        protected int _offset, _length;
+        protected String _text;
+    }
+
+    /** Our text, stored with a gap at the location of the most recent edit so that successive
+     * edits in the same area need not move the rest of the text. */
+    protected char[] _buffer = new char[MIN_GAP];
+    protected int _gapStart, _gapEnd = MIN_GAP;
+
+    /** Our text as a string, created on demand. */
+    protected String _string;
+
+    /** A view of our text, created on demand. */
+    protected CharSequence _chars;
+
+    /** Whether our class overrides the string based {@link #validateEdit(String,String)}. */
+    protected Boolean _legacyValidate;
+
     protected ArrayList<Listener> _listeners;
+
+    /** The minimum size of the gap created when our buffer is enlarged. */
+    protected static final int MIN_GAP = 16;
 }
@@ -0,0 +1,185 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import java.awt.image.BufferedImage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A least recently used cache of the coverage masks of individual glyphs (rendered in white so
+ * that they can be tinted any color when they are composited), bounded by the memory occupied by
+ * the masks.
+ */
+public class GlyphMaskCache
+{
+    /**
+     * Creates a cache that will retain at most the specified number of bytes of masks.
+     */
+    public GlyphMaskCache (long budget)
+    {
+        _budget = budget;
+    }
+
+    /**
+     * Sets the maximum number of bytes of masks retained, evicting masks if necessary.
+     */
+    public void setBudget (long budget)
+    {
+        _budget = budget;
+        trim();
+    }
+
+    /**
+     * Returns the maximum number of bytes of masks retained.
+     */
+    public long getBudget ()
+    {
+        return _budget;
+    }
+
+    /**
+     * Returns the cached mask for the specified glyph, or null if it is not cached.
+     *
+     * @param kind distinguishes between the different masks rendered for a single glyph.
+     */
+    public BufferedImage get (char c, int height, int effectSize, int kind)
+    {
+        BufferedImage mask = _masks.get(_mkey.init(c, height, effectSize, kind));
+        if (mask == null) {
+            _misses++;
+        } else {
+            _hits++;
+        }
+        return mask;
+    }
+
+    /**
+     * Adds the supplied mask for the specified glyph to the cache, evicting the least recently
+     * used masks if we exceed our budget.
+     *
+     * @param kind distinguishes between the different masks rendered for a single glyph.
+     */
+    public void put (char c, int height, int effectSize, int kind, BufferedImage mask)
+    {
+        BufferedImage omask = _masks.put(new MaskKey().init(c, height, effectSize, kind), mask);
+        if (omask != null) {
+            _bytes -= getBytes(omask);
+        }
+        _bytes += getBytes(mask);
+        trim();
+    }
+
+    /**
+     * Returns the number of masks in the cache.
+     */
+    public int size ()
+    {
+        return _masks.size();
+    }
+
+    /**
+     * Returns the number of bytes occupied by the masks in the cache.
+     */
+    public long getBytes ()
+    {
+        return _bytes;
+    }
+
+    /**
+     * Returns the number of lookups satisfied by the cache since the statistics were last reset.
+     */
+    public int getHits ()
+    {
+        return _hits;
+    }
+
+    /**
+     * Returns the number of lookups not satisfied by the cache since the statistics were last
+     * reset.
+     */
+    public int getMisses ()
+    {
+        return _misses;
+    }
+
+    /**
+     * Returns the number of masks evicted to stay within our budget since the statistics were
+     * last reset.
+     */
+    public int getEvictions ()
+    {
+        return _evictions;
+    }
+
+    /**
+     * Resets our statistics.
+     */
+    public void resetStats ()
+    {
+        _hits = _misses = _evictions = 0;
+    }
+
+    /**
+     * Evicts the least recently used masks until we are within our budget.
+     */
+    protected void trim ()
+    {
+        for (Iterator<BufferedImage> it = _masks.values().iterator();
+             _bytes > _budget && it.hasNext(); ) {
+            _bytes -= getBytes(it.next());
+            it.remove();
+            _evictions++;
+        }
+    }
+
+    /**
+     * Returns the number of bytes occupied by the supplied mask.
+     */
+    protected static long getBytes (BufferedImage mask)
+    {
+        return (long)mask.getWidth() * mask.getHeight() *
+            mask.getColorModel().getPixelSize() / 8;
+    }
+
+    protected static class MaskKey
+    {
+        public char c;
+        public int height, effectSize, kind;
+
+        public MaskKey init (char c, int height, int effectSize, int kind) {
+            this.c = c;
+            this.height = height;
+            this.effectSize = effectSize;
+            this.kind = kind;
+            return this;
+        }
+
+        public boolean equals (Object other) {
+            if (!(other instanceof MaskKey)) {
+                return false;
+            }
+            MaskKey okey = (MaskKey)other;
+            return (c == okey.c) && (height == okey.height) &&
+                (effectSize == okey.effectSize) && (kind == okey.kind);
+        }
+
+        public int hashCode () {
+            return c ^ (height << 16) ^ (effectSize << 8) ^ kind;
+        }
+    }
+
+    protected long _budget, _bytes;
+    protected int _hits, _misses, _evictions;
+
+    /** Our masks, in order of least recent use. */
+    protected LinkedHashMap<MaskKey, BufferedImage> _masks =
+        new LinkedHashMap<MaskKey, BufferedImage>(16, 0.75f, true);
+
+    // to avoid exercising the garbage collector
+    protected MaskKey _mkey = new MaskKey();
+}
@@ -181,8 +181,7 @@ public class HTMLView extends BComponent
         // release our old texture image
         release();
 
-        BufferedImage image = new BufferedImage(
-            vwidth, vheight, BufferedImage.TYPE_4BYTE_ABGR);
+        BufferedImage image = BImage.createCompatibleImage(vwidth, vheight, true);
         Graphics2D gfx = image.createGraphics();
         _rsize = new Rectangle(0, 0, vwidth, vheight);
         try {
@@ -196,9 +195,8 @@ public class HTMLView extends BComponent
             gfx.dispose();
         }
 
-        // TODO: render into a properly sized image in the first place and
-        // create a JME Image directly
         _rendered = new BImage(image);
+        _rendered.setUsage(BImage.USAGE_TEXT);
         _rendered.reference();
     }
 
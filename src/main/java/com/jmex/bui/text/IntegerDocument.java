@@ -34,9 +34,12 @@ public class IntegerDocument extends Document
         _positive = positive;
     }
     
-    // documentation inherited
-    protected boolean validateEdit (String oldText, String newText)
+    @Override // from Document
+    protected boolean validateEdit (int offset, int length, String text)
     {
+        // integers are short, so we need not avoid building the new text
+        String newText = getEditedText(offset, length, text).toString();
+
         // some special cases
         if (newText.length() == 0) {
             return true;
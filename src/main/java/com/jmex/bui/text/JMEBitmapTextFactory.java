@@ -17,6 +17,7 @@ import com.jme.scene.state.TextureState;
 import com.jme.system.DisplaySystem;
 import com.jme.util.TextureManager;
 
+import com.jmex.bui.BComponent;
 import com.jmex.bui.util.Dimension;
 
 /**
@@ -96,6 +97,7 @@ public class JMEBitmapTextFactory extends BTextFactory
                 x -= 4; // TEMP: handle Text offset bug
                 tgeom.setLocalTranslation(new Vector3f(x, y, 0));
                 tgeom.getTextColor().a = alpha * color.a;
+                BComponent.getQuadBatch().flush();
                 renderer.draw(tgeom);
             }
         };
@@ -22,10 +22,10 @@ public class LengthLimitedDocument extends Document
         _maxLength = maxLength;
     }
 
-    // documentation inherited
-    protected boolean validateEdit (String oldText, String newText)
+    @Override // from Document
+    protected boolean validateEdit (int offset, int length, String text)
     {
-        return newText.length() <= _maxLength;
+        return getLength() - length + text.length() <= _maxLength;
     }
 
     protected int _maxLength;
@@ -0,0 +1,201 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import java.awt.font.TextLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of the results of breaking text into lines. Each result
+ * records the range of widths for which it is valid, so wrapping the same text at a slightly
+ * different width reuses the existing result as long as the breaks would not change.
+ */
+public class LineBreakCache
+{
+    /** The result of breaking a text into lines. */
+    public static class Breaks
+    {
+        /** The (unstyled) text of each line. */
+        public String[] lines;
+
+        /** The layout of each line. */
+        public TextLayout[] layouts;
+
+        /** The narrowest and widest widths at which the text breaks into these lines. */
+        public int minWidth, maxWidth;
+
+        public Breaks (String[] lines, TextLayout[] layouts, int minWidth, int maxWidth) {
+            this.lines = lines;
+            this.layouts = layouts;
+            this.minWidth = minWidth;
+            this.maxWidth = maxWidth;
+        }
+
+        /**
+         * Returns true if breaking our text at the specified width yields these lines.
+         */
+        public boolean matches (int width) {
+            return (minWidth <= width) && (width <= maxWidth);
+        }
+    }
+
+    /**
+     * Creates a cache that retains the breaks of at most the specified number of texts.
+     */
+    public LineBreakCache (final int capacity)
+    {
+        _entries = new LinkedHashMap<BreakKey, ArrayList<Breaks>>(16, 0.75f, true) {
+            protected boolean removeEldestEntry (Map.Entry<BreakKey, ArrayList<Breaks>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached breaks of the supplied text at the specified width, or null if none are
+     * cached.
+     */
+    public Breaks get (String text, int effect, int width)
+    {
+        ArrayList<Breaks> list = _entries.get(_bkey.init(text, effect));
+        if (list != null) {
+            for (int ii = 0, ll = list.size(); ii < ll; ii++) {
+                Breaks breaks = list.get(ii);
+                if (breaks.matches(width)) {
+                    _hits++;
+                    return breaks;
+                }
+            }
+        }
+        _misses++;
+        return null;
+    }
+
+    /**
+     * Adds the supplied breaks of the supplied text, computed at the specified width, to the
+     * cache. If breaks with the same lines have already been cached (for a different width), their
+     * range is extended to include the new width and they are returned instead of the new breaks.
+     */
+    public Breaks put (String text, int effect, int width, Breaks breaks)
+    {
+        ArrayList<Breaks> list = _entries.get(_bkey.init(text, effect));
+        if (list == null) {
+            _entries.put(_bkey.cloneKey(), list = new ArrayList<Breaks>());
+        }
+
+        // if the text broke the same way at both widths, it will also break that way at every
+        // width in between
+        for (int ii = 0, ll = list.size(); ii < ll; ii++) {
+            Breaks obreaks = list.get(ii);
+            if (Arrays.equals(obreaks.lines, breaks.lines)) {
+                obreaks.minWidth = Math.min(obreaks.minWidth, breaks.minWidth);
+                obreaks.maxWidth = Math.max(obreaks.maxWidth, breaks.maxWidth);
+                return obreaks;
+            }
+        }
+
+        if (list.size() >= MAX_RANGES) {
+            list.remove(0);
+        }
+        list.add(breaks);
+        return breaks;
+    }
+
+    /**
+     * Returns the number of texts for which breaks are cached.
+     */
+    public int size ()
+    {
+        return _entries.size();
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public void clear ()
+    {
+        _entries.clear();
+    }
+
+    /**
+     * Returns the number of lookups satisfied by the cache since the statistics were last reset.
+     */
+    public int getHits ()
+    {
+        return _hits;
+    }
+
+    /**
+     * Returns the number of lookups not satisfied by the cache since the statistics were last
+     * reset.
+     */
+    public int getMisses ()
+    {
+        return _misses;
+    }
+
+    /**
+     * Returns the fraction of lookups satisfied by the cache since the statistics were last reset.
+     */
+    public float getHitRate ()
+    {
+        int lookups = _hits + _misses;
+        return (lookups == 0) ? 0f : (_hits / (float)lookups);
+    }
+
+    /**
+     * Resets our statistics.
+     */
+    public void resetStats ()
+    {
+        _hits = _misses = 0;
+    }
+
+    protected static class BreakKey implements Cloneable
+    {
+        public String text;
+        public int effect;
+
+        public BreakKey init (String text, int effect) {
+            this.text = text;
+            this.effect = effect;
+            return this;
+        }
+
+        public BreakKey cloneKey () {
+            try {
+                return (BreakKey)super.clone();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public boolean equals (Object other) {
+            if (!(other instanceof BreakKey)) {
+                return false;
+            }
+            BreakKey okey = (BreakKey)other;
+            return (effect == okey.effect) && text.equals(okey.text);
+        }
+
+        public int hashCode () {
+            return text.hashCode() ^ effect;
+        }
+    }
+
+    protected LinkedHashMap<BreakKey, ArrayList<Breaks>> _entries;
+    protected int _hits, _misses;
+
+    // to avoid exercising the garbage collector
+    protected BreakKey _bkey = new BreakKey();
+
+    /** The maximum number of distinct sets of breaks retained for a single text. */
+    protected static final int MAX_RANGES = 4;
+}
@@ -0,0 +1,315 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import java.util.ArrayList;
+
+import com.jme.renderer.ColorRGBA;
+import com.jme.renderer.Renderer;
+
+import com.jmex.bui.BConstants;
+import com.jmex.bui.util.Dimension;
+
+/**
+ * A single line of text that is rendered as a sequence of independently created segments, so
+ * that editing the text only recreates the segments containing the edit rather than the entire
+ * line. The cursor positions within each segment are computed once, when the segment is created.
+ */
+public class SegmentedText extends BText
+{
+    /**
+     * Creates segmented text that will create segments of at most the specified length using the
+     * supplied factory.
+     */
+    public SegmentedText (BTextFactory factory, ColorRGBA color, int effect, int segmentLength)
+    {
+        _factory = factory;
+        _color = color;
+        _effect = effect;
+        _segmentLength = segmentLength;
+    }
+
+    /**
+     * Updates the text displayed, recreating only the segments that contain changed text.
+     */
+    public void setText (String text)
+    {
+        // determine the changed region by comparing the old and new text
+        int olen = _text.length(), nlen = text.length(), limit = Math.min(olen, nlen);
+        int prefix = 0;
+        while (prefix < limit && _text.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix &&
+               _text.charAt(olen - 1 - suffix) == text.charAt(nlen - 1 - suffix)) {
+            suffix++;
+        }
+        if (prefix == olen && prefix == nlen) {
+            return;
+        }
+
+        // find the segments that overlap the changed region; a pure insertion at a boundary
+        // between segments modifies the preceding segment
+        int oend = olen - suffix, first = 0, start = 0;
+        while (first < _segments.size() - 1) {
+            int send = start + _segments.get(first).text.length();
+            if (send > prefix || (send == prefix && oend == prefix)) {
+                break;
+            }
+            start = send;
+            first++;
+        }
+        int last = first, end = start;
+        if (_segments.size() > 0) {
+            end += _segments.get(last).text.length();
+            while (end < oend) {
+                end += _segments.get(++last).text.length();
+            }
+        } else {
+            last = -1;
+        }
+
+        // absorb neighboring segments that fit into the room left in the last of the segments we
+        // are about to create, so that the short segments left behind by edits are coalesced
+        // rather than accumulating as the line is edited
+        int length = end - start + nlen - olen;
+        int room = Math.max(1, (length + _segmentLength - 1) / _segmentLength) * _segmentLength -
+            length;
+        while (first > 0 && _segments.get(first-1).text.length() <= room) {
+            int slen = _segments.get(--first).text.length();
+            start -= slen;
+            room -= slen;
+        }
+        while (last < _segments.size() - 1 && _segments.get(last+1).text.length() <= room) {
+            int slen = _segments.get(++last).text.length();
+            end += slen;
+            room -= slen;
+        }
+
+        // release the old segments and create new segments for the changed region
+        for (int ii = last; ii >= first; ii--) {
+            Segment seg = _segments.remove(ii);
+            if (_added) {
+                seg.glyphs.wasRemoved();
+            }
+        }
+        String changed = text.substring(start, end + nlen - olen);
+        int index = first;
+        for (int ii = 0, ll = changed.length(); ii < ll; ii += _segmentLength) {
+            Segment seg = createSegment(
+                changed.substring(ii, Math.min(ll, ii + _segmentLength)));
+            _segments.add(index++, seg);
+        }
+        _text = text;
+        updateOffsets(first);
+    }
+
+    /**
+     * Returns the text currently displayed.
+     */
+    public String getText ()
+    {
+        return _text;
+    }
+
+    /**
+     * Returns the number of segments into which our text is currently divided.
+     */
+    public int getSegmentCount ()
+    {
+        return _segments.size();
+    }
+
+    /**
+     * Returns the number of segments created since our statistics were last reset.
+     */
+    public int getSegmentsCreated ()
+    {
+        return _created;
+    }
+
+    /**
+     * Returns the number of characters in the segments created since our statistics were last
+     * reset.
+     */
+    public int getCharactersCreated ()
+    {
+        return _createdChars;
+    }
+
+    /**
+     * Resets our statistics.
+     */
+    public void resetStats ()
+    {
+        _created = _createdChars = 0;
+    }
+
+    // documentation inherited
+    public int getLength ()
+    {
+        return _text.length();
+    }
+
+    // documentation inherited
+    public Dimension getSize ()
+    {
+        return _size;
+    }
+
+    // documentation inherited
+    public int getHitPos (int x, int y)
+    {
+        int pos = 0;
+        for (int ii = 0, ll = _segments.size(); ii < ll; ii++) {
+            Segment seg = _segments.get(ii);
+            int[] carets = seg.carets;
+            if (x >= seg.x + carets[carets.length-1] && ii < ll-1) {
+                pos += seg.text.length();
+                continue;
+            }
+            for (int cc = 0; cc < carets.length-1; cc++) {
+                if (x < seg.x + (carets[cc] + carets[cc+1]) / 2) {
+                    return pos + cc;
+                }
+            }
+            return pos + seg.text.length();
+        }
+        return pos;
+    }
+
+    // documentation inherited
+    public int getCursorPos (int index)
+    {
+        for (int ii = 0, ll = _segments.size(); ii < ll; ii++) {
+            Segment seg = _segments.get(ii);
+            int length = seg.text.length();
+            if (index <= length) {
+                return seg.x + seg.carets[Math.max(index, 0)];
+            }
+            index -= length;
+        }
+        return _size.width;
+    }
+
+    @Override // from BText
+    public boolean setColors (ColorRGBA color, ColorRGBA effectColor)
+    {
+        _color = color;
+        for (int ii = 0, ll = _segments.size(); ii < ll; ii++) {
+            Segment seg = _segments.get(ii);
+            if (!seg.glyphs.setColors(color, effectColor)) {
+                // recreate segments that cannot be recolored
+                if (_added) {
+                    seg.glyphs.wasRemoved();
+                }
+                _segments.set(ii, createSegment(seg.text));
+            }
+        }
+        updateOffsets(0);
+        return true;
+    }
+
+    // documentation inherited
+    public void wasAdded ()
+    {
+        _added = true;
+        for (int ii = 0, ll = _segments.size(); ii < ll; ii++) {
+            _segments.get(ii).glyphs.wasAdded();
+        }
+    }
+
+    // documentation inherited
+    public void wasRemoved ()
+    {
+        _added = false;
+        for (int ii = 0, ll = _segments.size(); ii < ll; ii++) {
+            _segments.get(ii).glyphs.wasRemoved();
+        }
+    }
+
+    // documentation inherited
+    public void render (Renderer renderer, int x, int y, float alpha)
+    {
+        for (int ii = 0, ll = _segments.size(); ii < ll; ii++) {
+            Segment seg = _segments.get(ii);
+            seg.glyphs.render(renderer, x + seg.x, y, alpha);
+        }
+    }
+
+    /**
+     * Creates (and adds, if we are added) a segment containing the supplied text.
+     */
+    protected Segment createSegment (String text)
+    {
+        Segment seg = new Segment();
+        seg.text = text;
+        seg.glyphs = _factory.createText(
+            text, _color, _effect, BConstants.DEFAULT_SIZE, null, true);
+        seg.carets = new int[text.length()+1];
+        for (int ii = 1; ii < seg.carets.length - 1; ii++) {
+            seg.carets[ii] = seg.glyphs.getCursorPos(ii);
+        }
+        // the segment's advance is the distance to the next segment
+        seg.carets[text.length()] = seg.glyphs.getSize().width;
+        if (_added) {
+            seg.glyphs.wasAdded();
+        }
+        _created++;
+        _createdChars += text.length();
+        return seg;
+    }
+
+    /**
+     * Updates the offsets of the segments from the specified segment onward, and our size.
+     */
+    protected void updateOffsets (int from)
+    {
+        int x = 0;
+        if (from > 0) {
+            Segment prev = _segments.get(from-1);
+            x = prev.x + prev.carets[prev.carets.length-1];
+        }
+        for (int ii = from, ll = _segments.size(); ii < ll; ii++) {
+            Segment seg = _segments.get(ii);
+            seg.x = x;
+            x += seg.carets[seg.carets.length-1];
+        }
+        int height = 0;
+        for (int ii = 0, ll = _segments.size(); ii < ll; ii++) {
+            height = Math.max(height, _segments.get(ii).glyphs.getSize().height);
+        }
+        _size = new Dimension(x, height);
+    }
+
+    /** A run of text rendered as a unit. */
+    protected static class Segment
+    {
+        /** The text of the segment. */
+        public String text;
+
+        /** The rendered text. */
+        public BText glyphs;
+
+        /** The offset of the segment from the start of the line. */
+        public int x;
+
+        /** The cursor position before each character (and after the last) in the segment. */
+        public int[] carets;
+    }
+
+    protected BTextFactory _factory;
+    protected ColorRGBA _color;
+    protected int _effect, _segmentLength;
+    protected boolean _added;
+
+    protected String _text = "";
+    protected ArrayList<Segment> _segments = new ArrayList<Segment>();
+    protected Dimension _size = new Dimension(0, 0);
+
+    protected int _created, _createdChars;
+}
@@ -0,0 +1,448 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import com.jme.renderer.ColorRGBA;
+import com.jme.renderer.Renderer;
+
+import com.jmex.bui.util.Dimension;
+
+/**
+ * Wraps another text factory and shares the texts it creates among all requests for the same
+ * text in the same style, so that the same string displayed by many components is rendered (and
+ * occupies texture memory) only once. Texts that can be recolored (see {@link BText#setColors})
+ * are shared among requests in any color, each user's handle applying its own colors when it is
+ * rendered. Shared texts are reference counted by their {@link BText#wasAdded} and {@link
+ * BText#wasRemoved} calls; texts that are no longer in use are retained (up to a fixed number,
+ * least recently used first) in case they are requested again.
+ */
+public class SharedTextFactory extends BTextFactory
+{
+    /**
+     * Creates a factory that shares the texts created by the supplied factory, retaining at most
+     * the specified number of unused texts.
+     */
+    public SharedTextFactory (BTextFactory delegate, int idleCapacity)
+    {
+        _delegate = delegate;
+        _idleCapacity = idleCapacity;
+    }
+
+    /**
+     * Returns the factory that creates our texts.
+     */
+    public BTextFactory getDelegate ()
+    {
+        return _delegate;
+    }
+
+    // documentation inherited
+    public int getHeight ()
+    {
+        return _delegate.getHeight();
+    }
+
+    // documentation inherited
+    public BText createText (String text, ColorRGBA color, int effect, int effectSize,
+                             ColorRGBA effectColor, boolean useAdvance)
+    {
+        Entry entry = getEntry(
+            _tkey.init(text, null, effect, effectSize, null, useAdvance, -1).tinted());
+        if (entry == null) {
+            entry = getEntry(
+                _tkey.init(text, color, effect, effectSize, effectColor, useAdvance, -1));
+        }
+        if (entry == null) {
+            entry = createEntry(new BText[] { _delegate.createText(
+                text, color, effect, effectSize, effectColor, useAdvance) }, color, effectColor);
+        }
+        return entry.handOut(color, effectColor)[0];
+    }
+
+    // documentation inherited
+    public BText[] wrapText (String text, ColorRGBA color, int effect, int effectSize,
+                             ColorRGBA effectColor, int maxWidth)
+    {
+        Entry entry = getEntry(
+            _tkey.init(text, null, effect, effectSize, null, true, maxWidth).tinted());
+        if (entry == null) {
+            entry = getEntry(
+                _tkey.init(text, color, effect, effectSize, effectColor, true, maxWidth));
+        }
+        if (entry == null) {
+            entry = createEntry(
+                _delegate.wrapText(text, color, effect, effectSize, effectColor, maxWidth),
+                color, effectColor);
+        }
+        return entry.handOut(color, effectColor);
+    }
+
+    @Override // from BTextFactory
+    public Dimension measureText (String text, int effect, int effectSize, boolean useAdvance)
+    {
+        return _delegate.measureText(text, effect, effectSize, useAdvance);
+    }
+
+    @Override // from BTextFactory
+    public WrappedLine[] measureWrapped (String text, int effect, int effectSize, int maxWidth)
+    {
+        return _delegate.measureWrapped(text, effect, effectSize, maxWidth);
+    }
+
+    /**
+     * Returns the number of texts requested from this factory since the statistics were last
+     * reset (each line of wrapped text counts as one text).
+     */
+    public int getRequested ()
+    {
+        return _requested;
+    }
+
+    /**
+     * Returns the number of texts created by our delegate since the statistics were last reset.
+     */
+    public int getCreated ()
+    {
+        return _created;
+    }
+
+    /**
+     * Returns the ratio of texts requested to texts created since the statistics were last reset.
+     */
+    public float getDedupeRatio ()
+    {
+        return (_created == 0) ? 1f : (_requested / (float)_created);
+    }
+
+    /**
+     * Returns an estimate of the texture memory (in bytes) that would have been used by the texts
+     * that were shared rather than created since the statistics were last reset.
+     */
+    public long getBytesSaved ()
+    {
+        return _bytesSaved;
+    }
+
+    /**
+     * Returns the number of shared texts currently in use.
+     */
+    public int getActiveCount ()
+    {
+        return _entries.size() - _idle.size();
+    }
+
+    /**
+     * Returns the number of unused texts currently retained.
+     */
+    public int getIdleCount ()
+    {
+        return _idle.size();
+    }
+
+    /**
+     * Resets our statistics.
+     */
+    public void resetStats ()
+    {
+        _requested = _created = 0;
+        _bytesSaved = 0;
+    }
+
+    /**
+     * Looks up the entry for the supplied key, noting the savings if there is one.
+     */
+    protected Entry getEntry (TextKey key)
+    {
+        Entry entry = _entries.get(key);
+        if (entry != null) {
+            for (BText text : entry.texts) {
+                Dimension size = text.getSize();
+                _bytesSaved += size.width * size.height * BYTES_PER_PIXEL;
+            }
+            _requested += entry.texts.length;
+            if (_idle.remove(entry)) {
+                // move it to the end of the line
+                _idle.add(entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Creates and maps an entry for the supplied texts, which were created in the supplied
+     * colors, under the key last looked up (less its colors if the texts can be recolored).
+     */
+    protected Entry createEntry (BText[] texts, ColorRGBA color, ColorRGBA effectColor)
+    {
+        boolean tintable = true;
+        for (BText text : texts) {
+            tintable = text.setColors(color, effectColor) && tintable;
+        }
+        if (tintable) {
+            _tkey.tinted();
+        }
+        Entry entry = new Entry(_tkey.cloneKey(), texts, tintable);
+        _entries.put(entry.key, entry);
+        _requested += texts.length;
+        _created += texts.length;
+        // the entry is not in use until its texts are added
+        _idle.add(entry);
+        trimIdle();
+        return entry;
+    }
+
+    /**
+     * Disposes of the least recently used idle entries until we are within our capacity.
+     */
+    protected void trimIdle ()
+    {
+        for (Iterator<Entry> it = _idle.iterator();
+             _idle.size() > _idleCapacity && it.hasNext(); ) {
+            Entry entry = it.next();
+            it.remove();
+            _entries.remove(entry.key);
+            // handles to the entry may yet be added, but it will no longer be retained
+            entry.detached = true;
+            entry.dispose();
+        }
+    }
+
+    /** The shared texts created for a single request. */
+    protected class Entry
+    {
+        /** The key under which the entry is mapped. */
+        public TextKey key;
+
+        /** The shared texts. */
+        public BText[] texts;
+
+        /** Whether our texts can be recolored, in which case each handle has its own colors. */
+        public boolean tintable;
+
+        /** The number of shared texts added (each line of a wrapped text counts separately). */
+        public int refs;
+
+        /** Whether our texts have been added. */
+        public boolean added;
+
+        /** Whether the entry has been removed from the cache because it was evicted. */
+        public boolean detached;
+
+        public Entry (TextKey key, BText[] texts, boolean tintable) {
+            this.key = key;
+            this.texts = texts;
+            this.tintable = tintable;
+        }
+
+        /**
+         * Returns a set of handles to our texts, rendered in the specified colors.
+         */
+        public BText[] handOut (ColorRGBA color, ColorRGBA effectColor) {
+            BText[] handles = new BText[texts.length];
+            for (int ii = 0; ii < handles.length; ii++) {
+                handles[ii] = new SharedText(this, ii, color, effectColor);
+            }
+            return handles;
+        }
+
+        public void reference () {
+            if (refs++ > 0) {
+                return;
+            }
+            if (!detached) {
+                _idle.remove(this);
+            }
+            if (!added) {
+                for (BText text : texts) {
+                    text.wasAdded();
+                }
+                added = true;
+            }
+        }
+
+        public void release () {
+            if (--refs > 0) {
+                return;
+            }
+            if (detached) {
+                dispose();
+            } else {
+                _idle.add(this);
+                trimIdle();
+            }
+        }
+
+        public void dispose () {
+            if (added) {
+                for (BText text : texts) {
+                    text.wasRemoved();
+                }
+                added = false;
+            }
+        }
+    }
+
+    /** A handle to a shared text. */
+    protected static class SharedText extends BText
+    {
+        public SharedText (Entry entry, int index, ColorRGBA color, ColorRGBA effectColor) {
+            _entry = entry;
+            _text = entry.texts[index];
+            _color = color;
+            _effectColor = effectColor;
+        }
+
+        public int getLength () {
+            return _text.getLength();
+        }
+
+        public Dimension getSize () {
+            return _text.getSize();
+        }
+
+        public int getHitPos (int x, int y) {
+            return _text.getHitPos(x, y);
+        }
+
+        public int getCursorPos (int index) {
+            return _text.getCursorPos(index);
+        }
+
+        public boolean setColors (ColorRGBA color, ColorRGBA effectColor) {
+            if (!_entry.tintable) {
+                return false;
+            }
+            _color = color;
+            _effectColor = effectColor;
+            return true;
+        }
+
+        public void render (Renderer renderer, int x, int y, float alpha) {
+            applyColors();
+            _text.render(renderer, x, y, alpha);
+        }
+
+        public void render (Renderer renderer, int x, int y, int w, int h, float alpha) {
+            applyColors();
+            _text.render(renderer, x, y, w, h, alpha);
+        }
+
+        public void wasAdded () {
+            if (!_added) {
+                _added = true;
+                _entry.reference();
+            }
+        }
+
+        public void wasRemoved () {
+            if (_added) {
+                _added = false;
+                _entry.release();
+            }
+        }
+
+        /**
+         * Tints the shared text with our colors (which merely notes them) before it is rendered.
+         */
+        protected void applyColors () {
+            if (_entry.tintable) {
+                _text.setColors(_color, _effectColor);
+            }
+        }
+
+        protected Entry _entry;
+        protected BText _text;
+        protected ColorRGBA _color, _effectColor;
+        protected boolean _added;
+    }
+
+    protected static class TextKey implements Cloneable
+    {
+        public String text;
+        public ColorRGBA color, effectColor;
+        public int effect, effectSize, maxWidth;
+        public boolean useAdvance;
+
+        /** Whether the key identifies texts that can be recolored, and thus omits colors. */
+        public boolean tinted;
+
+        public TextKey init (String text, ColorRGBA color, int effect, int effectSize,
+                             ColorRGBA effectColor, boolean useAdvance, int maxWidth) {
+            this.text = text;
+            this.color = color;
+            this.effect = effect;
+            this.effectSize = effectSize;
+            this.effectColor = effectColor;
+            this.useAdvance = useAdvance;
+            this.maxWidth = maxWidth;
+            this.tinted = false;
+            return this;
+        }
+
+        /**
+         * Converts this key into one for texts that can be recolored.
+         */
+        public TextKey tinted () {
+            color = effectColor = null;
+            tinted = true;
+            return this;
+        }
+
+        public TextKey cloneKey () {
+            try {
+                TextKey key = (TextKey)super.clone();
+                // colors are mutable, so we hang onto copies
+                key.color = (color == null) ? null : new ColorRGBA(color);
+                key.effectColor = (effectColor == null) ? null : new ColorRGBA(effectColor);
+                return key;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public boolean equals (Object other) {
+            if (!(other instanceof TextKey)) {
+                return false;
+            }
+            TextKey okey = (TextKey)other;
+            return text.equals(okey.text) && effect == okey.effect &&
+                effectSize == okey.effectSize && useAdvance == okey.useAdvance &&
+                maxWidth == okey.maxWidth && tinted == okey.tinted &&
+                equals(color, okey.color) && equals(effectColor, okey.effectColor);
+        }
+
+        public int hashCode () {
+            return text.hashCode() ^ effect ^ (effectSize << 8) ^ maxWidth ^
+                (color == null ? 0 : color.hashCode());
+        }
+
+        protected static boolean equals (ColorRGBA c1, ColorRGBA c2) {
+            return (c1 == c2) || (c1 != null && c1.equals(c2));
+        }
+    }
+
+    protected BTextFactory _delegate;
+    protected int _idleCapacity;
+
+    /** All of our mapped entries, in use or not. */
+    protected HashMap<TextKey, Entry> _entries = new HashMap<TextKey, Entry>();
+
+    /** Mapped entries not in use, in order of least recent use. */
+    protected LinkedHashSet<Entry> _idle = new LinkedHashSet<Entry>();
+
+    protected int _requested, _created;
+    protected long _bytesSaved;
+
+    // to avoid exercising the garbage collector
+    protected TextKey _tkey = new TextKey();
+
+    /** Our estimate of the texture memory used per pixel of text. */
+    protected static final int BYTES_PER_PIXEL = 4;
+}
@@ -0,0 +1,60 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.util.ArrayList;
+
+import com.jme.renderer.ColorRGBA;
+import com.jme.renderer.Renderer;
+
+/**
+ * An image with no texture that tracks its references, records the source and target rectangles
+ * with which it was last rendered and records the rows updated in place, for use by unit tests.
+ */
+public class CountingImage extends BImage
+{
+    /** The source and target rectangles of the last render, as { x, y, width, height }. */
+    public int[] source, target;
+
+    /** The rows updated via {@link #updateRows}, as { y, height }. */
+    public ArrayList<int[]> updates = new ArrayList<int[]>();
+
+    public CountingImage (int width, int height)
+    {
+        super("counting", width, height);
+    }
+
+    /**
+     * Returns the number of outstanding references to this image.
+     */
+    public int getReferenceCount ()
+    {
+        return _referents;
+    }
+
+    @Override // from BImage
+    public void release ()
+    {
+        if (_referents == 0) {
+            throw new IllegalStateException("Unreferenced image released");
+        }
+        super.release();
+    }
+
+    @Override // from BImage
+    public void render (Renderer renderer, int sx, int sy, int swidth, int sheight,
+                        int tx, int ty, int twidth, int theight, ColorRGBA color, float alpha)
+    {
+        source = new int[] { sx, sy, swidth, sheight };
+        target = new int[] { tx, ty, twidth, theight };
+    }
+
+    @Override // from BImage
+    public void updateRows (int y, int height)
+    {
+        updates.add(new int[] { y, height });
+    }
+}
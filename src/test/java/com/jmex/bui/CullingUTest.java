@@ -0,0 +1,67 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jmex.bui.layout.GroupLayout;
+
+/**
+ * Tests that components outside the clip rectangle are not rendered.
+ */
+public class CullingUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new CullingUTest("testCulling");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            CullingUTest test = new CullingUTest("testCulling");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public CullingUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testCulling ()
+    {
+        // a scroll pane showing ten of two thousand rows
+        BContainer panel = new BContainer(GroupLayout.makeVert(GroupLayout.TOP));
+        ((GroupLayout)panel.getLayoutManager()).setGap(0);
+        for (int ii = 0; ii < 2000; ii++) {
+            BComponent row = new BComponent();
+            row.setPreferredSize(100, 10);
+            panel.add(row);
+        }
+        BScrollPane pane = new BScrollPane(panel, false, false);
+        pane.setBounds(0, 0, 100, 100);
+        pane.validate();
+
+        QuadBatch batch = BComponent.getQuadBatch();
+        RenderBackend obackend = batch.getBackend();
+        batch.setBackend(new RecordingRenderBackend());
+        try {
+            batch.begin();
+            pane.render(null);
+            batch.end();
+        } finally {
+            batch.setBackend(obackend);
+        }
+
+        // the pane, viewport, panel and visible rows are rendered, the rest are culled
+        assertEquals(13, batch.getRenderedCount());
+        assertEquals(1990, batch.getCulledCount());
+    }
+}
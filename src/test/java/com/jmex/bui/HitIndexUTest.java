@@ -0,0 +1,98 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jmex.bui.layout.AbsoluteLayout;
+import com.jmex.bui.util.Rectangle;
+
+/**
+ * Tests that hit testing via a container's hit index matches a linear search of its children.
+ */
+public class HitIndexUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new HitIndexUTest("testHitIndex");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            HitIndexUTest test = new HitIndexUTest("testHitIndex");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public HitIndexUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testHitIndex ()
+    {
+        // a grid of 30x30 buttons (with gaps between them)
+        BContainer grid = new BContainer(new AbsoluteLayout());
+        for (int yy = 0; yy < 30; yy++) {
+            for (int xx = 0; xx < 30; xx++) {
+                grid.add(new BComponent(), new Rectangle(xx*10, yy*10, 8, 8));
+            }
+        }
+        grid.setBounds(5, 5, 300, 300);
+        grid.validate();
+        assertFalse("Index built lazily", grid.hasDisjointChildren());
+        checkHits(grid);
+        assertTrue(grid.hasDisjointChildren());
+
+        // add a component that overlaps a bunch of the others
+        BComponent marker = new BComponent();
+        grid.add(marker, new Rectangle(52, 52, 40, 40));
+        grid.validate();
+        assertSame(marker, grid.getHitComponent(60, 60));
+        assertFalse(grid.hasDisjointChildren());
+        checkHits(grid);
+
+        // move it and make sure the index is rebuilt
+        marker.setLocation(200, 200);
+        assertSame(marker, grid.getHitComponent(210, 210));
+        assertSame(grid.getComponent(5*30+5), grid.getHitComponent(60, 60));
+        checkHits(grid);
+
+        // hidden children are not hit
+        marker.setVisible(false);
+        assertNotSame(marker, grid.getHitComponent(210, 210));
+    }
+
+    protected void checkHits (BContainer cont)
+    {
+        for (int yy = -5; yy < cont.getHeight() + 10; yy += 3) {
+            for (int xx = -5; xx < cont.getWidth() + 10; xx += 3) {
+                assertSame("Hit at " + xx + "x" + yy, linearHit(cont, xx, yy),
+                           cont.getHitComponent(xx, yy));
+            }
+        }
+    }
+
+    protected BComponent linearHit (BContainer cont, int mx, int my)
+    {
+        if (mx < cont.getX() || my < cont.getY() || mx >= cont.getX() + cont.getWidth() ||
+            my >= cont.getY() + cont.getHeight()) {
+            return null;
+        }
+        for (int ii = cont.getComponentCount() - 1; ii >= 0; ii--) {
+            BComponent hit = cont.getComponent(ii).getHitComponent(mx - cont.getX(),
+                                                                   my - cont.getY());
+            if (hit != null) {
+                return hit;
+            }
+        }
+        return cont;
+    }
+}
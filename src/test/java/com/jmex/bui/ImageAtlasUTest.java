@@ -0,0 +1,207 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import com.jmex.bui.util.Rectangle;
+
+/**
+ * Tests the packing and page management of {@link ImageAtlas}.
+ */
+public class ImageAtlasUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new ImageAtlasUTest("testPacking"));
+        suite.addTest(new ImageAtlasUTest("testReferences"));
+        suite.addTest(new ImageAtlasUTest("testRender"));
+        return suite;
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            new ImageAtlasUTest("testPacking").runTest();
+            new ImageAtlasUTest("testReferences").runTest();
+            new ImageAtlasUTest("testRender").runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public ImageAtlasUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testPacking ()
+    {
+        // pack button and icon sized rectangles until the page is full
+        ImageAtlas.Skyline skyline = new ImageAtlas.Skyline(256, 256);
+        Random rand = new Random(42);
+        ArrayList<Rectangle> placed = new ArrayList<Rectangle>();
+        int area = 0;
+        for (int ii = 0; ii < 500; ii++) {
+            int width = 4 + rand.nextInt(29), height = 4 + rand.nextInt(29);
+            Rectangle rect = skyline.place(width, height);
+            if (rect == null) {
+                continue;
+            }
+            assertEquals(width, rect.width);
+            assertEquals(height, rect.height);
+            assertTrue("In bounds " + rect, rect.x >= 0 && rect.y >= 0 &&
+                       rect.x + rect.width <= 256 && rect.y + rect.height <= 256);
+            for (Rectangle other : placed) {
+                assertFalse(rect + " overlaps " + other, overlaps(rect, other));
+            }
+            placed.add(rect);
+            area += width * height;
+        }
+        assertTrue("Packed efficiently", area > 0.75f * 256 * 256);
+
+        // something too large to fit is rejected
+        assertNull(skyline.place(257, 1));
+    }
+
+    public void testReferences ()
+    {
+        TestAtlas atlas = new TestAtlas();
+        BImage i1 = atlas.add(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+        BImage i2 = atlas.add(new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(1, atlas.getPageCount());
+        TestPage page = atlas.pages.get(0);
+
+        // the page's texture is created and referenced once, no matter how many regions use it
+        i1.reference();
+        assertEquals(1, page.images.size());
+        assertEquals(1, page.getImage(0).getReferenceCount());
+        i1.reference();
+        i2.reference();
+        assertEquals(1, page.getImage(0).getReferenceCount());
+
+        // and released once the last of them is released
+        i1.release();
+        i1.release();
+        assertEquals(1, page.getImage(0).getReferenceCount());
+        i2.release();
+        assertEquals(0, page.getImage(0).getReferenceCount());
+
+        // adding images while the page is in use uploads the rows containing them into its
+        // existing texture
+        i1.reference();
+        BImage i3 = atlas.add(new BufferedImage(5, 5, BufferedImage.TYPE_INT_ARGB));
+        assertFalse(i1.isResident());
+        i1.ensureResident();
+        assertEquals(1, page.images.size());
+        assertEquals(1, page.getImage(0).getReferenceCount());
+        assertEquals(1, page.getImage(0).updates.size());
+        assertCovers(page.getImage(0).updates.get(0), (ImageAtlas.Region)i3);
+        i3.reference();
+        i1.release();
+        i3.release();
+        assertEquals(0, page.getImage(0).getReferenceCount());
+
+        // as does adding images while the page is not in use, once it is next used
+        BImage i4 = atlas.add(new BufferedImage(5, 5, BufferedImage.TYPE_INT_ARGB));
+        BImage i5 = atlas.add(new BufferedImage(5, 5, BufferedImage.TYPE_INT_ARGB));
+        i4.reference();
+        assertEquals(1, page.images.size());
+        assertEquals(1, page.getImage(0).getReferenceCount());
+        assertEquals(2, page.getImage(0).updates.size());
+        assertCovers(page.getImage(0).updates.get(1), (ImageAtlas.Region)i4);
+        assertCovers(page.getImage(0).updates.get(1), (ImageAtlas.Region)i5);
+        i4.release();
+        assertEquals(0, page.getImage(0).getReferenceCount());
+    }
+
+    public void testRender ()
+    {
+        TestAtlas atlas = new TestAtlas();
+        atlas.add(new BufferedImage(30, 40, BufferedImage.TYPE_INT_ARGB));
+        ImageAtlas.Region region = (ImageAtlas.Region)atlas.add(
+            new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB));
+        region.reference();
+
+        // source rectangles are relative to the bottom of the region, as is the page's texture
+        // (whose rows are flipped relative to the page image, where our position is recorded)
+        region.render(null, 3, 2, 5, 4, 100, 200, 10, 8, null, 1f);
+        CountingImage image = atlas.pages.get(0).getImage(0);
+        int pheight = image.getHeight();
+        assertEquals(region._x + 3, image.source[0]);
+        assertEquals(pheight - region._y - region.getHeight() + 2, image.source[1]);
+        assertEquals(5, image.source[2]);
+        assertEquals(4, image.source[3]);
+        assertTrue(Arrays.equals(new int[] { 100, 200, 10, 8 }, image.target));
+
+        // so rendering the entire region covers exactly its rectangle of the page
+        region.render(null, 0, 0, 20, 10, 0, 0, 20, 10, null, 1f);
+        assertEquals(region._x, image.source[0]);
+        assertEquals(pheight - (region._y + 10), image.source[1]);
+        region.release();
+    }
+
+    /**
+     * Asserts that the supplied updated rows cover the supplied region and its gutter.
+     */
+    protected static void assertCovers (int[] rows, ImageAtlas.Region region)
+    {
+        assertTrue(rows[0] <= region._y - ImageAtlas.GUTTER);
+        assertTrue(rows[0] + rows[1] >= region._y + region.getHeight() + ImageAtlas.GUTTER);
+    }
+
+    protected static boolean overlaps (Rectangle r1, Rectangle r2)
+    {
+        return r1.x < r2.x + r2.width && r2.x < r1.x + r1.width &&
+            r1.y < r2.y + r2.height && r2.y < r1.y + r1.height;
+    }
+
+    /** An atlas whose pages create counting images. */
+    protected static class TestAtlas extends ImageAtlas
+    {
+        public ArrayList<TestPage> pages = new ArrayList<TestPage>();
+
+        public TestAtlas () {
+            super(128, 64);
+        }
+
+        @Override // from ImageAtlas
+        protected Page createPage (int size) {
+            TestPage page = new TestPage(size);
+            pages.add(page);
+            return page;
+        }
+    }
+
+    /** A page that records the images it creates. */
+    protected static class TestPage extends ImageAtlas.Page
+    {
+        public ArrayList<CountingImage> images = new ArrayList<CountingImage>();
+
+        public TestPage (int size) {
+            super(size);
+        }
+
+        public CountingImage getImage (int index) {
+            return images.get(index);
+        }
+
+        @Override // from ImageAtlas.Page
+        protected BImage createImage () {
+            CountingImage image = new CountingImage(this.image.getWidth(), this.image.getHeight());
+            images.add(image);
+            return image;
+        }
+    }
+}
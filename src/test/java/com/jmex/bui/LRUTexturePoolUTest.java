@@ -0,0 +1,131 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jme.image.Image;
+import com.jme.image.Texture;
+import com.jme.scene.state.TextureState;
+
+/**
+ * A unit test for {@link LRUTexturePool}.
+ */
+public class LRUTexturePoolUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new LRUTexturePoolUTest("testPool");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            LRUTexturePoolUTest test = new LRUTexturePoolUTest("testPool");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public LRUTexturePoolUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testPool ()
+    {
+        // room for three 16x16 RGBA textures
+        TestPool pool = new TestPool(3*16*16*4);
+        Texture a = createTexture(16, 16), b = createTexture(16, 16), c = createTexture(16, 16);
+        pool.acquireTexture(null, a);
+        pool.acquireTexture(null, b);
+        pool.acquireTexture(null, c);
+        assertEquals(3, pool.getUploads());
+        assertEquals(3*16*16*4, pool.getResidentBytes());
+
+        // released textures remain resident and are not reuploaded when reacquired
+        pool.releaseTexture(a);
+        pool.releaseTexture(b);
+        pool.releaseTexture(c);
+        pool.acquireTexture(null, b);
+        assertEquals(3, pool.getUploads());
+        assertEquals(1, pool.getHits());
+        assertEquals(0, pool.deleted.size());
+
+        // a new texture evicts the least recently released and recycles its texture object
+        int aid = a.getTextureId();
+        Texture d = createTexture(16, 16);
+        pool.acquireTexture(null, d);
+        assertEquals(1, pool.getEvictions());
+        assertEquals(1, pool.getRecycles());
+        assertEquals(0, a.getTextureId());
+        assertEquals(aid, d.getTextureId());
+        assertEquals(3, pool.loaded);
+        assertEquals(0, pool.deleted.size());
+
+        // a texture of a different size evicts and deletes what it can to make room, but
+        // referenced textures are never evicted
+        Texture e = createTexture(32, 16);
+        pool.acquireTexture(null, e);
+        assertEquals(2, pool.getEvictions());
+        assertEquals(4, pool.loaded);
+        assertEquals(1, pool.deleted.size());
+        assertEquals(4*16*16*4, pool.getResidentBytes());
+
+        // released textures are evicted immediately if we're over budget
+        pool.setBudget(0);
+        assertEquals(3, pool.getResidentCount());
+        pool.releaseTexture(b);
+        pool.releaseTexture(d);
+        pool.releaseTexture(e);
+        assertEquals(0, pool.getResidentCount());
+        assertEquals(0, pool.getResidentBytes());
+        assertEquals(4, pool.deleted.size());
+    }
+
+    protected static Texture createTexture (int width, int height)
+    {
+        Image image = new Image();
+        image.setType(Image.RGBA8888);
+        image.setWidth(width);
+        image.setHeight(height);
+        image.setData(ByteBuffer.allocate(width*height*4));
+        Texture texture = new Texture();
+        texture.setImage(image);
+        return texture;
+    }
+
+    /** A pool that does not talk to OpenGL. */
+    protected static class TestPool extends LRUTexturePool
+    {
+        public int loaded;
+        public ArrayList<Integer> deleted = new ArrayList<Integer>();
+
+        public TestPool (long budget) {
+            super(budget);
+        }
+
+        @Override // from LRUTexturePool
+        protected void loadTexture (TextureState tstate, Texture texture) {
+            texture.setTextureId(++loaded);
+        }
+
+        @Override // from LRUTexturePool
+        protected void reloadTexture (Texture texture) {
+            // nothing doing
+        }
+
+        @Override // from LRUTexturePool
+        protected void deleteTexture (int id) {
+            deleted.add(id);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.util.ArrayList;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jmex.bui.layout.AbsoluteLayout;
+import com.jmex.bui.layout.BLayoutManager;
+import com.jmex.bui.layout.GroupLayout;
+import com.jmex.bui.util.Dimension;
+import com.jmex.bui.util.Rectangle;
+
+/**
+ * Tests that invalidation stops at relayout boundaries.
+ */
+public class LayoutBoundaryUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new LayoutBoundaryUTest("testBoundaries");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            LayoutBoundaryUTest test = new LayoutBoundaryUTest("testBoundaries");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public LayoutBoundaryUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testBoundaries ()
+    {
+        TestWindow window = new TestWindow();
+
+        // a container with a fixed preferred size (like a stat panel in a HUD)
+        CountingContainer fixed = new CountingContainer(GroupLayout.makeHStretch());
+        fixed.setPreferredSize(100, 20);
+        SizedLeaf fixedLeaf = new SizedLeaf();
+        fixed.add(fixedLeaf);
+        window.add(fixed);
+
+        // a container whose size depends on its contents
+        CountingContainer free = new CountingContainer(GroupLayout.makeHStretch());
+        SizedLeaf freeLeaf = new SizedLeaf();
+        free.add(freeLeaf);
+        window.add(free);
+
+        // an absolutely positioned and sized container
+        CountingContainer abs = new CountingContainer(new AbsoluteLayout());
+        CountingContainer placed = new CountingContainer(GroupLayout.makeHStretch());
+        SizedLeaf placedLeaf = new SizedLeaf();
+        placed.add(placedLeaf);
+        abs.add(placed, new Rectangle(5, 5, 50, 20));
+        window.add(abs);
+
+        window.setBounds(0, 0, 400, 400);
+        window.validate();
+        assertTrue(fixed.isLayoutBoundary());
+        assertFalse(free.isLayoutBoundary());
+        assertTrue(placed.isLayoutBoundary());
+
+        // now "attach" the window so that invalidations are reported to our root
+        TestRoot root = new TestRoot();
+        window.attach(root);
+        BContainer[] all = { window, fixed, free, abs, placed };
+
+        // changing a leaf in the fixed size container should only relayout that container
+        int[] before = countLayouts(all);
+        fixedLeaf.setSize(30, 10);
+        assertTrue("Window remains valid", window.isValid());
+        assertEquals(1, root.invalid.size());
+        assertSame(fixed, root.invalid.get(0));
+        root.validateRoots();
+        assertLayouts(before, countLayouts(all),
+                      new boolean[] { false, true, false, false, false });
+
+        // the same goes for a leaf in the absolutely sized container
+        before = countLayouts(all);
+        placedLeaf.setSize(30, 10);
+        assertSame(placed, root.invalid.get(0));
+        root.validateRoots();
+        assertLayouts(before, countLayouts(all),
+                      new boolean[] { false, false, false, false, true });
+
+        // but changing a leaf in the free container must relayout the window
+        before = countLayouts(all);
+        freeLeaf.setSize(30, 10);
+        assertFalse("Window invalidated", window.isValid());
+        assertSame(window, root.invalid.get(0));
+        root.validateRoots();
+        assertLayouts(before, countLayouts(all),
+                      new boolean[] { true, false, true, false, false });
+
+        // as must hiding a relayout boundary
+        before = countLayouts(all);
+        fixed.setVisible(false);
+        assertFalse("Window invalidated", window.isValid());
+        root.validateRoots();
+        assertTrue(countLayouts(all)[0] > before[0]);
+        fixed.setVisible(true);
+        root.validateRoots();
+
+        // as must sizing a container, which makes it a relayout boundary
+        before = countLayouts(all);
+        int height = window.getPreferredSize(-1, -1).height;
+        free.setPreferredSize(200, 30);
+        assertTrue(free.isLayoutBoundary());
+        assertFalse("Window invalidated", window.isValid());
+        root.validateRoots();
+        assertTrue(countLayouts(all)[0] > before[0]);
+        assertTrue(window.getPreferredSize(-1, -1).height > height);
+
+        // or resizing one that already is
+        before = countLayouts(all);
+        height = window.getPreferredSize(-1, -1).height;
+        fixed.setPreferredSize(100, 40);
+        assertFalse("Window invalidated", window.isValid());
+        root.validateRoots();
+        assertTrue(countLayouts(all)[0] > before[0]);
+        assertTrue(window.getPreferredSize(-1, -1).height > height);
+    }
+
+    protected int[] countLayouts (BContainer[] conts)
+    {
+        int[] counts = new int[conts.length];
+        for (int ii = 0; ii < conts.length; ii++) {
+            counts[ii] = (conts[ii] instanceof TestWindow) ?
+                ((TestWindow)conts[ii]).layouts : ((CountingContainer)conts[ii]).layouts;
+        }
+        return counts;
+    }
+
+    protected void assertLayouts (int[] before, int[] after, boolean[] expected)
+    {
+        for (int ii = 0; ii < before.length; ii++) {
+            assertEquals("Container " + ii + " laid out", expected[ii], after[ii] > before[ii]);
+        }
+    }
+
+    /** A container that counts the number of times it is laid out. */
+    protected static class CountingContainer extends BContainer
+    {
+        public int layouts;
+
+        public CountingContainer (BLayoutManager layout) {
+            super(layout);
+        }
+
+        @Override // from BContainer
+        protected void layout () {
+            layouts++;
+            super.layout();
+        }
+    }
+
+    /** A window that can be attached to a root node without configuring its children. */
+    protected static class TestWindow extends BWindow
+    {
+        public int layouts;
+
+        public TestWindow () {
+            super(null, GroupLayout.makeVStretch());
+        }
+
+        public void attach (BRootNode root) {
+            _root = root;
+        }
+
+        @Override // from BContainer
+        protected void layout () {
+            layouts++;
+            super.layout();
+        }
+    }
+
+    /** A leaf whose preferred size can be changed. */
+    protected static class SizedLeaf extends BComponent
+    {
+        public void setSize (int width, int height) {
+            _size = new Dimension(width, height);
+            invalidate();
+        }
+
+        @Override // from BComponent
+        protected Dimension computePreferredSize (int whint, int hhint) {
+            return new Dimension(_size);
+        }
+
+        protected Dimension _size = new Dimension(10, 10);
+    }
+
+    /** Records the components that would be queued for validation. */
+    protected static class TestRoot extends BRootNode
+    {
+        public ArrayList<BComponent> invalid = new ArrayList<BComponent>();
+
+        public long getTickStamp () {
+            return 0L;
+        }
+
+        public void rootInvalidated (BComponent root) {
+            if (!invalid.contains(root)) {
+                invalid.add(root);
+            }
+        }
+
+        public void validateRoots () {
+            for (BComponent root : invalid) {
+                root.validate();
+            }
+            invalid.clear();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jmex.bui.layout.GroupLayout;
+import com.jmex.bui.util.Dimension;
+
+/**
+ * A unit test for the caching of preferred sizes by {@link BComponent}.
+ */
+public class PreferredSizeUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new PreferredSizeUTest("testCaching");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            PreferredSizeUTest test = new PreferredSizeUTest("testCaching");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public PreferredSizeUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testCaching ()
+    {
+        // create a few levels of nested group layouts around some leaves
+        BContainer root = new BContainer(GroupLayout.makeVStretch());
+        CountingLeaf[] leaves = new CountingLeaf[4];
+        BContainer row = null;
+        for (int ii = 0; ii < leaves.length; ii++) {
+            if (ii % 2 == 0) {
+                root.add(row = new BContainer(GroupLayout.makeHStretch()));
+            }
+            row.add(leaves[ii] = new CountingLeaf(10, 10));
+        }
+
+        // the first computation has to compute everything
+        Dimension ps = root.getPreferredSize(-1, -1);
+        assertEquals(25, ps.width);
+        assertEquals(25, ps.height);
+        for (CountingLeaf leaf : leaves) {
+            assertEquals("Leaf computed once", 1, leaf.computed);
+        }
+
+        // asking again should be satisfied entirely by the root's cache
+        BComponent.resetPreferredSizeStats();
+        root.getPreferredSize(-1, -1);
+        assertEquals(1, BComponent.getPreferredSizeHits());
+        assertEquals(0, BComponent.getPreferredSizeMisses());
+
+        // modifying the caller's copy must not affect the cache
+        ps.width = 100;
+        assertEquals(25, root.getPreferredSize(-1, -1).width);
+
+        // changing one leaf should only recompute that leaf and its ancestors
+        leaves[3].setSize(20, 10);
+        BComponent.resetPreferredSizeStats();
+        ps = root.getPreferredSize(-1, -1);
+        assertEquals("Stretched row is twice the widest leaf", 45, ps.width);
+        assertEquals(2, leaves[3].computed);
+        for (int ii = 0; ii < 3; ii++) {
+            assertEquals("Unchanged leaf not recomputed", 1, leaves[ii].computed);
+        }
+        assertEquals("Leaf, row and root recomputed", 3, BComponent.getPreferredSizeMisses());
+
+        // different hints are cached separately
+        root.getPreferredSize(200, -1);
+        int misses = BComponent.getPreferredSizeMisses();
+        root.getPreferredSize(-1, -1);
+        assertEquals("Original hints still cached", misses, BComponent.getPreferredSizeMisses());
+    }
+
+    /** A leaf component that counts the number of times its preferred size is computed. */
+    protected static class CountingLeaf extends BComponent
+    {
+        public int computed;
+
+        public CountingLeaf (int width, int height) {
+            _size = new Dimension(width, height);
+        }
+
+        public void setSize (int width, int height) {
+            _size = new Dimension(width, height);
+            invalidate();
+        }
+
+        @Override // from BComponent
+        protected Dimension computePreferredSize (int whint, int hhint) {
+            computed++;
+            return new Dimension(_size);
+        }
+
+        protected Dimension _size;
+    }
+}
@@ -0,0 +1,88 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jme.image.Texture;
+
+/**
+ * A unit test for {@link QuadBatch}.
+ */
+public class QuadBatchUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new QuadBatchUTest("testBatching");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            QuadBatchUTest test = new QuadBatchUTest("testBatching");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public QuadBatchUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testBatching ()
+    {
+        QuadBatch batch = new QuadBatch();
+        RecordingRenderBackend backend = new RecordingRenderBackend();
+        batch.setBackend(backend);
+        Texture frame = new Texture(), icon = new Texture();
+
+        // nine framed background sections sharing a texture should result in one draw call
+        batch.begin();
+        for (int ii = 0; ii < 9; ii++) {
+            batch.add(null, frame, false, ii, 0, 1, 1, 0, 0, 1, 1, 1, 1, 1, 1);
+        }
+        assertEquals("Nothing drawn before end of frame", 0, backend.getDrawCalls());
+        batch.end();
+        assertEquals("One draw for nine quads", 1, batch.getDrawCalls());
+        assertEquals("Nine quads", 9, batch.getQuadCount());
+        assertEquals(1, backend.getDrawCalls());
+        assertEquals("quads 9", getDraws(backend).get(0));
+
+        // switching textures must flush to preserve the painter's order
+        batch.begin();
+        batch.add(null, frame, false, 0, 0, 1, 1, 0, 0, 1, 1, 1, 1, 1, 1);
+        batch.add(null, frame, false, 1, 0, 1, 1, 0, 0, 1, 1, 1, 1, 1, 1);
+        batch.add(null, icon, false, 2, 0, 1, 1, 0, 0, 1, 1, 1, 1, 1, 1);
+        batch.add(null, frame, false, 3, 0, 1, 1, 0, 0, 1, 1, 1, 1, 1, 1);
+        batch.end();
+        assertEquals("Three draws for three texture runs", 3, batch.getDrawCalls());
+        List<String> draws = getDraws(backend);
+        assertEquals("quads 2", draws.get(0));
+        assertEquals("quads 1", draws.get(1));
+        assertEquals("quads 1", draws.get(2));
+
+        // quads added outside of a frame are drawn immediately
+        batch.add(null, frame, false, 0, 0, 1, 1, 0, 0, 1, 1, 1, 1, 1, 1);
+        assertEquals("Immediate draw outside frame", 4, backend.getDrawCalls());
+    }
+
+    protected List<String> getDraws (RecordingRenderBackend backend)
+    {
+        ArrayList<String> draws = new ArrayList<String>();
+        for (String command : backend.getCommands()) {
+            if (command.startsWith("quads ")) {
+                draws.add(command);
+            }
+        }
+        return draws;
+    }
+}
@@ -0,0 +1,84 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jme.renderer.ColorRGBA;
+
+import com.jmex.bui.background.TintedBackground;
+import com.jmex.bui.border.LineBorder;
+import com.jmex.bui.layout.GroupLayout;
+
+/**
+ * Renders a simple interface using a {@link RecordingRenderBackend}.
+ */
+public class RenderBackendUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new RenderBackendUTest("testRecording");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            RenderBackendUTest test = new RenderBackendUTest("testRecording");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public RenderBackendUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testRecording ()
+    {
+        BContainer cont = new BContainer(GroupLayout.makeVStretch());
+        for (int ii = 0; ii < 3; ii++) {
+            BComponent comp = new BComponent();
+            comp.setBackground(BComponent.DEFAULT, new TintedBackground(ColorRGBA.white));
+            comp._borders[BComponent.DEFAULT] = new LineBorder(ColorRGBA.black);
+            comp.setPreferredSize(50, 10);
+            cont.add(comp);
+        }
+        cont.setBounds(10, 20, 50, 50);
+        cont.validate();
+
+        QuadBatch batch = BComponent.getQuadBatch();
+        RenderBackend obackend = batch.getBackend();
+        RecordingRenderBackend backend = new RecordingRenderBackend();
+        batch.setBackend(backend);
+        try {
+            batch.begin();
+            cont.render(null);
+            batch.end();
+        } finally {
+            batch.setBackend(obackend);
+        }
+
+        assertEquals("A quad and a line strip per component", 6, backend.getDrawCalls());
+        assertEquals(0, backend.getTextureBinds());
+        assertEquals("Translation restored", 0, backend.getTranslationX());
+        assertEquals("Translation restored", 0, backend.getTranslationY());
+
+        // the quads should be drawn at the absolute position of each component
+        int quads = 0;
+        for (String command : backend.getCommands()) {
+            if (command.startsWith("quad ")) {
+                BComponent comp = cont.getComponent(quads++);
+                assertEquals("quad " + (float)comp.getAbsoluteX() + " " +
+                             (float)comp.getAbsoluteY() + " " + (float)comp.getWidth() + " " +
+                             (float)comp.getHeight(), command);
+            }
+        }
+        assertEquals(3, quads);
+    }
+}
@@ -0,0 +1,195 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import com.jmex.bui.util.Dimension;
+
+/**
+ * Tests the background image decoding of {@link BStyleSheet.DefaultResourceProvider}.
+ */
+public class ResourceProviderUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new ResourceProviderUTest("testReadSize"));
+        suite.addTest(new ResourceProviderUTest("testDecode"));
+        suite.addTest(new ResourceProviderUTest("testDecodeFailure"));
+        suite.addTest(new ResourceProviderUTest("testPrefetch"));
+        return suite;
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            new ResourceProviderUTest("testReadSize").runTest();
+            new ResourceProviderUTest("testDecode").runTest();
+            new ResourceProviderUTest("testDecodeFailure").runTest();
+            new ResourceProviderUTest("testPrefetch").runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public ResourceProviderUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testReadSize ()
+        throws IOException
+    {
+        // the size is read from the image header
+        Dimension size = BStyleSheet.DefaultResourceProvider.readSize(writeFile(createPNG()));
+        assertEquals(20, size.width);
+        assertEquals(10, size.height);
+
+        // and is unknown for things that aren't images
+        assertNull(BStyleSheet.DefaultResourceProvider.readSize(writeFile(new byte[100])));
+    }
+
+    public void testDecode ()
+        throws Exception
+    {
+        BStyleSheet.DefaultResourceProvider provider = createProvider();
+        BStyleSheet.DefaultResourceProvider.LoadTiming timing = createTiming();
+        BImage image = provider.loadImageAsync(writeFile(createPNG()), timing);
+
+        // the image has its final size while it is decoding
+        assertEquals(20, image.getWidth());
+        assertEquals(10, image.getHeight());
+        assertTrue(image.isLoading());
+
+        // and its contents are installed once published
+        awaitDecodes(provider);
+        assertTrue(timing.isFinished());
+        assertFalse(timing.failed);
+        assertTrue(image.isLoading());
+        BImage.installPublished();
+        assertFalse(image.isLoading());
+
+        assertTrue(timing.requested <= timing.started && timing.started <= timing.finished);
+        assertTrue(timing.getDecodeTime() >= 0f);
+        assertTrue(timing.getLoadTime() >= timing.getDecodeTime());
+        provider.shutdown();
+    }
+
+    public void testDecodeFailure ()
+        throws Exception
+    {
+        // an image whose header is intact but whose data is not
+        byte[] png = createPNG();
+        byte[] truncated = Arrays.copyOf(png, 40);
+        BStyleSheet.DefaultResourceProvider provider = createProvider();
+        BStyleSheet.DefaultResourceProvider.LoadTiming timing = createTiming();
+        BImage image = provider.loadImageAsync(writeFile(truncated), timing);
+        assertEquals(20, image.getWidth());
+        assertTrue(image.isLoading());
+
+        // is replaced by a blank image of the same size rather than loading forever
+        awaitDecodes(provider);
+        assertTrue(timing.isFinished());
+        assertTrue(timing.failed);
+        BImage.installPublished();
+        assertFalse(image.isLoading());
+        assertEquals(20, image.getWidth());
+        assertEquals(10, image.getHeight());
+        provider.shutdown();
+    }
+
+    public void testPrefetch ()
+        throws Exception
+    {
+        // a provider that decodes synchronously does not prefetch
+        BStyleSheet.DefaultResourceProvider provider = new BStyleSheet.DefaultResourceProvider();
+        provider.setAtlas(new ImageAtlas(64, 32));
+        provider.prefetchImage(PREFETCH_PATH);
+        assertNull(provider.getTiming(PREFETCH_PATH));
+        assertTrue(provider._prefetched.isEmpty());
+
+        // one that decodes in the background retains a prefetched image until it is requested
+        provider = createProvider();
+        provider.prefetchImage(PREFETCH_PATH);
+        assertNotNull(provider.getTiming(PREFETCH_PATH));
+        BImage image = provider._prefetched.get(PREFETCH_PATH);
+        assertNotNull(image);
+        assertSame(image, provider.loadImage(PREFETCH_PATH));
+        assertTrue(provider._prefetched.isEmpty());
+        awaitDecodes(provider);
+        BImage.installPublished();
+        provider.shutdown();
+    }
+
+    protected static BStyleSheet.DefaultResourceProvider createProvider ()
+    {
+        // images are packed into an atlas so that they can be created without a display
+        BStyleSheet.DefaultResourceProvider provider = new BStyleSheet.DefaultResourceProvider(1);
+        provider.setAtlas(new ImageAtlas(64, 32));
+        return provider;
+    }
+
+    protected static BStyleSheet.DefaultResourceProvider.LoadTiming createTiming ()
+    {
+        BStyleSheet.DefaultResourceProvider.LoadTiming timing =
+            new BStyleSheet.DefaultResourceProvider.LoadTiming();
+        timing.requested = System.nanoTime();
+        return timing;
+    }
+
+    protected static void awaitDecodes (BStyleSheet.DefaultResourceProvider provider)
+        throws InterruptedException
+    {
+        for (int ii = 0; ii < 500 && provider.getPendingDecodes() > 0; ii++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, provider.getPendingDecodes());
+    }
+
+    protected static byte[] createPNG ()
+        throws IOException
+    {
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+        for (int yy = 0; yy < 10; yy++) {
+            for (int xx = 0; xx < 20; xx++) {
+                image.setRGB(xx, yy, (xx * 12) << 16 | (yy * 25) << 8 | 0xFF000000);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    protected static URL writeFile (byte[] data)
+        throws IOException
+    {
+        File file = File.createTempFile("bui", ".img");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return file.toURI().toURL();
+    }
+
+    /** An image that ships with the library and fits in our test atlas. */
+    protected static final String PREFETCH_PATH = "/textures/button_up.png";
+}
@@ -0,0 +1,118 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jmex.bui.layout.GroupLayout;
+
+/**
+ * Tests that retained windows are only rerendered when they change.
+ */
+public class RetainedWindowUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new RetainedWindowUTest("testRetained");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            RetainedWindowUTest test = new RetainedWindowUTest("testRetained");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public RetainedWindowUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testRetained ()
+    {
+        LayoutBoundaryUTest.TestWindow window = new LayoutBoundaryUTest.TestWindow();
+        BContainer row = new BContainer(GroupLayout.makeHStretch());
+        BComponent leaf = new BComponent();
+        leaf.setPreferredSize(20, 20);
+        row.add(leaf);
+        window.add(row);
+        window.setBounds(10, 10, 100, 50);
+        window.validate();
+        window.attach(new LayoutBoundaryUTest.TestRoot());
+        window.setRetained(true);
+
+        QuadBatch batch = BComponent.getQuadBatch();
+        RenderBackend obackend = batch.getBackend();
+        RecordingRenderBackend backend = new RecordingRenderBackend();
+        batch.setBackend(backend);
+        try {
+            // the first frame renders the window into its target
+            List<String> cmds = render(window, backend);
+            assertTrue(cmds.contains("create target 100 50"));
+            assertTrue(cmds.contains("begin target 1"));
+            assertTrue(cmds.contains("draw target 1 10 10 100 50"));
+            assertEquals(1, window.getCacheMisses());
+            assertFalse(window.isDirty());
+
+            // the second just composites it
+            cmds = render(window, backend);
+            assertFalse(cmds.contains("begin target 1"));
+            assertTrue(cmds.contains("draw target 1 10 10 100 50"));
+            assertEquals(1, window.getCacheHits());
+
+            // changing a descendant's state dirties the window
+            leaf.setAlpha(0.5f);
+            assertTrue(window.isDirty());
+            cmds = render(window, backend);
+            assertTrue(cmds.contains("begin target 1"));
+            assertEquals(2, window.getCacheMisses());
+
+            // as does invalidating it
+            leaf.setPreferredSize(30, 20);
+            assertTrue(window.isDirty());
+            window.validate();
+            render(window, backend);
+            assertEquals(3, window.getCacheMisses());
+            render(window, backend);
+            assertEquals(2, window.getCacheHits());
+            assertEquals(0.4f, window.getCacheHitRate(), 0.001f);
+
+            // resizing the window recreates its target
+            window.setBounds(10, 10, 120, 50);
+            window.validate();
+            cmds = render(window, backend);
+            assertTrue(cmds.contains("delete target 1"));
+            assertTrue(cmds.contains("create target 120 50"));
+            assertTrue(cmds.contains("draw target 2 10 10 120 50"));
+
+            // and no longer retaining it releases the target
+            backend.getCommands().clear();
+            window.setRetained(false);
+            assertTrue(backend.getCommands().contains("delete target 2"));
+            cmds = render(window, backend);
+            assertFalse(cmds.contains("draw target 2 10 10 120 50"));
+
+        } finally {
+            batch.setBackend(obackend);
+        }
+    }
+
+    protected List<String> render (BWindow window, RecordingRenderBackend backend)
+    {
+        QuadBatch batch = BComponent.getQuadBatch();
+        backend.getCommands().clear();
+        batch.begin();
+        window.render(null);
+        batch.end();
+        return backend.getCommands();
+    }
+}
@@ -0,0 +1,131 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import java.util.ArrayList;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jme.renderer.Renderer;
+
+import com.jmex.bui.layout.GroupLayout;
+
+/**
+ * Tests the clip stack maintained by {@link QuadBatch}.
+ */
+public class ScissorUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new ScissorUTest("testScissoring");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            ScissorUTest test = new ScissorUTest("testScissoring");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public ScissorUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testScissoring ()
+    {
+        // two scroll panes, each containing a component that clips to its own bounds (like a
+        // text field) and one which clips to a region that contains the entire viewport
+        BContainer cont = new BContainer(GroupLayout.makeVStretch());
+        for (int ii = 0; ii < 2; ii++) {
+            BContainer panel = new BContainer(GroupLayout.makeVStretch());
+            panel.add(new ClippingComponent(true));
+            panel.add(new ClippingComponent(false));
+            cont.add(new BScrollPane(panel, false, false));
+        }
+        cont.setBounds(10, 20, 100, 100);
+        cont.validate();
+
+        QuadBatch batch = BComponent.getQuadBatch();
+        RenderBackend obackend = batch.getBackend();
+        RecordingRenderBackend backend = new RecordingRenderBackend();
+        batch.setBackend(backend);
+        try {
+            batch.begin();
+            cont.render(null);
+            batch.end();
+        } finally {
+            batch.setBackend(obackend);
+        }
+
+        // per pane: viewport, first component, back to the viewport (the second component's clip
+        // is the same as the viewport's) and disabled
+        assertEquals(8, batch.getScissorChanges());
+        assertEquals(8, backend.getScissorChanges());
+        assertFalse(backend.isScissorEnabled());
+
+        // the clip rectangles are intersected and in absolute coordinates
+        ArrayList<String> scissors = new ArrayList<String>();
+        for (String command : backend.getCommands()) {
+            if (command.startsWith("scissor")) {
+                scissors.add(command);
+            }
+        }
+        BScrollPane pane = (BScrollPane)cont.getComponent(0);
+        BComponent vport = pane.getChild().getParent();
+        BComponent first = ((BContainer)pane.getChild()).getComponent(0);
+        int vx = pane.getAbsoluteX() + vport.getX(), vy = pane.getAbsoluteY() + vport.getY();
+        assertEquals("scissor " + vx + " " + vy + " " + vport.getWidth() + " " + vport.getHeight(),
+                     scissors.get(0));
+        int fy = Math.max(first.getAbsoluteY(), vy);
+        int fheight = Math.min(first.getAbsoluteY() + first.getHeight(),
+                               vy + vport.getHeight()) - fy;
+        assertEquals("scissor " + first.getAbsoluteX() + " " + fy + " " + first.getWidth() + " " +
+                     fheight, scissors.get(1));
+        assertEquals(scissors.get(0), scissors.get(2));
+        assertEquals("scissor off", scissors.get(3));
+
+        // clipping to an empty region is reported
+        batch.setBackend(backend);
+        try {
+            batch.begin();
+            assertTrue(batch.pushClip(0, 0, 10, 10));
+            assertFalse(batch.pushClip(20, 20, 10, 10));
+            batch.popClip();
+            batch.popClip();
+            batch.end();
+        } finally {
+            batch.setBackend(obackend);
+        }
+        assertFalse(batch.isClipped());
+    }
+
+    /** A component that clips to its bounds (or a much larger region) while rendering. */
+    protected static class ClippingComponent extends BComponent
+    {
+        public ClippingComponent (boolean own) {
+            _own = own;
+            setPreferredSize(50, 10);
+        }
+
+        @Override // from BComponent
+        protected void renderComponent (Renderer renderer) {
+            QuadBatch batch = getQuadBatch();
+            if (_own) {
+                batch.pushClip(0, 0, _width, _height);
+            } else {
+                batch.pushClip(-1000, -1000, 5000, 5000);
+            }
+            batch.popClip();
+        }
+
+        protected boolean _own;
+    }
+}
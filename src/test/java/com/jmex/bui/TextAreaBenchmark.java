@@ -0,0 +1,54 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import com.jmex.bui.text.StubTextFactory;
+
+/**
+ * Measures the cost of appending a line to a {@link BTextArea} (and laying it out) as the
+ * amount of text already in the area grows. Appends should cost the same regardless of the
+ * size of the log, whereas a full reflow grows linearly with it.
+ */
+public class TextAreaBenchmark
+{
+    public static void main (String[] args)
+    {
+        System.out.println("lines  append (us, measured/append)  reflow (us, measured/reflow)");
+        for (int lines = 1000; lines <= 64000; lines *= 2) {
+            StubTextFactory factory = new StubTextFactory(10);
+            TextAreaUTest.TestTextArea area = TextAreaUTest.createArea(factory);
+            for (int ii = 0; ii < lines; ii++) {
+                area.appendText("line " + ii + "\n");
+            }
+            area.validate();
+
+            // time appends at the tail
+            factory.measured = 0;
+            long start = System.nanoTime();
+            for (int ii = 0; ii < APPENDS; ii++) {
+                area.appendText("appended " + ii + "\n");
+                area.validate();
+            }
+            long append = (System.nanoTime() - start) / APPENDS;
+            int ameasured = factory.measured / APPENDS;
+
+            // and full reflows caused by changing the width of the area
+            factory.measured = 0;
+            start = System.nanoTime();
+            for (int ii = 0; ii < REFLOWS; ii++) {
+                area.setBounds(0, 0, (ii % 2 == 0) ? 90 : 100, 50);
+                area.validate();
+            }
+            long reflow = (System.nanoTime() - start) / REFLOWS;
+            int rmeasured = factory.measured / REFLOWS;
+
+            System.out.println(lines + "  " + (append / 1000) + " " + ameasured +
+                               "  " + (reflow / 1000) + " " + rmeasured);
+        }
+    }
+
+    protected static final int APPENDS = 1000, REFLOWS = 10;
+}
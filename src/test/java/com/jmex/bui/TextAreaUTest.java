@@ -0,0 +1,249 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import com.jme.renderer.ColorRGBA;
+
+import com.jmex.bui.text.BTextFactory;
+import com.jmex.bui.text.StubTextFactory;
+
+/**
+ * Tests the scrollback and glyph management of {@link BTextArea}.
+ */
+public class TextAreaUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TextAreaUTest("testScrollback"));
+        suite.addTest(new TextAreaUTest("testAppend"));
+        suite.addTest(new TextAreaUTest("testStateChange"));
+        suite.addTest(new TextAreaUTest("testRepaint"));
+        return suite;
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            new TextAreaUTest("testScrollback").runTest();
+            new TextAreaUTest("testAppend").runTest();
+            new TextAreaUTest("testStateChange").runTest();
+            new TextAreaUTest("testRepaint").runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public TextAreaUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testScrollback ()
+    {
+        StubTextFactory factory = new StubTextFactory(10);
+        TestTextArea area = createArea(factory);
+        area.setMaxLines(100);
+        for (int ii = 0; ii < 1000; ii++) {
+            area.appendText("line " + ii + "\n");
+        }
+        area.validate();
+
+        // only the most recent lines are retained
+        assertEquals(100, area.getLineCount());
+        assertTrue(area._runs.size() <= 101);
+        assertEquals("line 999", area._lines.get(99).segments.get(0).getText());
+
+        // and only the visible lines (and a margin) have glyphs
+        BoundedRangeModel model = area.getScrollModel();
+        assertEquals(5, model.getExtent());
+        assertEquals(95, model.getValue());
+        assertEquals(5 + BTextArea.REALIZE_MARGIN, area.getRealizedLineCount());
+        assertEquals(area.getRealizedLineCount(), factory.live);
+
+        // scrolling realizes the newly visible lines and releases the rest
+        model.setValue(0);
+        assertTrue(area._lines.get(0).realized);
+        assertFalse(area._lines.get(99).realized);
+        assertEquals(5 + BTextArea.REALIZE_MARGIN, area.getRealizedLineCount());
+        assertEquals(area.getRealizedLineCount(), factory.live);
+
+        // long lines are wrapped
+        area.setText("abcdefghijklmnopqrstuvwxyz");
+        area.validate();
+        assertEquals(3, area.getLineCount());
+        assertEquals(100, area._lines.get(0).getWidth());
+        assertEquals(60, area._lines.get(2).getWidth());
+
+        // removing the area releases everything
+        area.getWindow().remove(area);
+        assertEquals(0, area.getRealizedLineCount());
+        assertEquals(0, factory.live);
+    }
+
+    public void testAppend ()
+    {
+        StubTextFactory factory = new StubTextFactory(10);
+        TestTextArea area = createArea(factory);
+        for (int ii = 0; ii < 1000; ii++) {
+            area.appendText("line " + ii + "\n");
+        }
+        area.validate();
+        assertEquals(1000, area.getLineCount());
+
+        // appending measures only the new text and realizes only the new (visible) line
+        factory.measured = factory.created = 0;
+        area.appendText("more");
+        area.validate();
+        assertEquals(1, factory.measured);
+        assertEquals(1, factory.created);
+        assertEquals(1001, area.getLineCount());
+        assertEquals(996, area.getScrollModel().getValue());
+
+        // text appended to an unterminated line continues that line
+        area.appendText("moremore\n");
+        area.validate();
+        assertEquals(3, factory.measured);
+        assertEquals(3, factory.created);
+        assertEquals(1002, area.getLineCount());
+        BTextArea.Line line = area._lines.get(1000);
+        assertEquals(2, line.segments.size());
+        assertEquals(100, line.getWidth());
+        assertEquals("re", area._lines.get(1001).segments.get(0).getText());
+
+        // a change in width rewraps everything
+        factory.measured = 0;
+        area.setBounds(0, 0, 200, 50);
+        area.validate();
+        assertEquals(1001, area.getLineCount());
+        assertEquals(area._runs.size(), factory.measured);
+        // the last line contains two segments
+        assertEquals(area.getRealizedLineCount() + 1, factory.live);
+    }
+
+    public void testStateChange ()
+    {
+        StubTextFactory factory = new StubTextFactory(10);
+        TestTextArea area = createArea(factory);
+        for (int ii = 0; ii < 1000; ii++) {
+            area.appendText("line " + ii + "\n");
+        }
+        area.validate();
+        int realized = area.getRealizedLineCount();
+
+        // hovering over the area neither rewraps its text nor recreates its glyphs
+        factory.measured = factory.created = 0;
+        setHover(area, true);
+        area.validate();
+        setHover(area, false);
+        area.validate();
+        assertEquals(0, factory.measured);
+        assertEquals(0, factory.created);
+
+        // nor does a hover color, which instead recolors the existing glyphs
+        ColorRGBA hover = new ColorRGBA(1f, 0f, 0f, 1f);
+        area.hoverColor = hover;
+        setHover(area, true);
+        area.validate();
+        assertEquals(0, factory.measured);
+        assertEquals(0, factory.created);
+        BTextArea.Line line = area._lines.get(area._rend-1);
+        assertSame(hover, ((StubTextFactory.StubText)line.segments.get(0).glyphs).color);
+
+        // glyphs that can't be recolored are recreated, but still not rewrapped
+        factory.tintable = false;
+        area.releaseRealized();
+        area.updateRealized();
+        factory.created = 0;
+        setHover(area, false);
+        area.validate();
+        setHover(area, true);
+        area.validate();
+        assertEquals(0, factory.measured);
+        assertEquals(2 * realized, factory.created);
+
+        // but a change to the text effect rewraps everything
+        area.hoverEffect = BConstants.OUTLINE;
+        setHover(area, false);
+        area.validate();
+        setHover(area, true);
+        area.validate();
+        assertEquals(area._runs.size(), factory.measured);
+    }
+
+    public void testRepaint ()
+    {
+        StubTextFactory factory = new StubTextFactory(10);
+        TestTextArea area = createArea(factory);
+        for (int ii = 0; ii < 100; ii++) {
+            area.appendText("line " + ii + "\n");
+        }
+        area.validate();
+
+        // scrolling (with no scroll bar to note the change) repaints the window
+        BWindow window = area.getWindow();
+        window._dirty = false;
+        area.getScrollModel().setValue(0);
+        assertTrue(window.isDirty());
+        window._dirty = false;
+        area.getScrollModel().setValue(1);
+        assertTrue(window.isDirty());
+    }
+
+    protected static void setHover (BComponent comp, boolean hover)
+    {
+        comp._hover = hover;
+        comp.stateDidChange();
+    }
+
+    protected static TestTextArea createArea (BTextFactory factory)
+    {
+        LayoutBoundaryUTest.TestWindow window = new LayoutBoundaryUTest.TestWindow();
+        window.setBounds(0, 0, 100, 50);
+        window.attach(new LayoutBoundaryUTest.TestRoot());
+        TestTextArea area = new TestTextArea(factory);
+        window.add(area);
+        area.setBounds(0, 0, 100, 50);
+        return area;
+    }
+
+    /** A text area that uses a supplied text factory and whose hover style can be changed. */
+    protected static class TestTextArea extends BTextArea
+    {
+        public ColorRGBA hoverColor;
+        public int hoverEffect = BConstants.NORMAL;
+
+        public TestTextArea (BTextFactory factory) {
+            _factory = factory;
+        }
+
+        @Override // from BComponent
+        public ColorRGBA getColor () {
+            return (getState() == HOVER && hoverColor != null) ? hoverColor : super.getColor();
+        }
+
+        @Override // from BTextArea
+        public int getTextEffect () {
+            return (getState() == HOVER) ? hoverEffect : super.getTextEffect();
+        }
+
+        @Override // from BTextArea
+        public BTextFactory getTextFactory () {
+            return _factory;
+        }
+
+        @Override // from BTextArea
+        protected void configureStyle (BStyleSheet style) {
+            // we have no style sheet
+        }
+
+        protected BTextFactory _factory;
+    }
+}
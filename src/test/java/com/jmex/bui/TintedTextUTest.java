@@ -0,0 +1,118 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jme.renderer.ColorRGBA;
+
+import com.jmex.bui.text.BText;
+import com.jmex.bui.text.BTextFactory;
+import com.jmex.bui.text.StubTextFactory;
+import com.jmex.bui.util.Insets;
+
+/**
+ * Tests that changing only the color of a label's text recolors its existing glyphs rather than
+ * creating new ones.
+ */
+public class TintedTextUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new TintedTextUTest("testRecolor");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            TintedTextUTest test = new TintedTextUTest("testRecolor");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public TintedTextUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testRecolor ()
+    {
+        StubTextFactory factory = new StubTextFactory(10);
+        TestLabel container = new TestLabel(factory);
+        Label label = new Label(container);
+        label.setText("Hover");
+        label.layout(Insets.ZERO_INSETS, 100, 20);
+        assertEquals(1, factory.created);
+
+        // hovering back and forth only changes the color so the glyphs are reused
+        ColorRGBA normal = container.color, hover = new ColorRGBA(1f, 0f, 0f, 1f);
+        BText glyphs = label._config.glyphs.lines[0];
+        for (int ii = 0; ii < 10; ii++) {
+            container.color = (ii % 2 == 0) ? hover : normal;
+            label.layout(Insets.ZERO_INSETS, 100, 20);
+        }
+        assertEquals("No new glyphs on hover", 1, factory.created);
+        assertSame(glyphs, label._config.glyphs.lines[0]);
+        assertEquals(normal, ((StubTextFactory.StubText)glyphs).color);
+
+        // changing the effect color is also a recolor
+        container.effectColor = hover;
+        label.layout(Insets.ZERO_INSETS, 100, 20);
+        assertEquals(1, factory.created);
+        assertEquals(hover, ((StubTextFactory.StubText)glyphs).effectColor);
+
+        // changing anything else requires new glyphs
+        container.effect = BConstants.OUTLINE;
+        label.layout(Insets.ZERO_INSETS, 100, 20);
+        assertEquals(2, factory.created);
+
+        // as does changing the color of glyphs that can't be recolored
+        factory.tintable = false;
+        container.effect = BConstants.NORMAL;
+        label.layout(Insets.ZERO_INSETS, 100, 20);
+        assertEquals(3, factory.created);
+        container.color = hover;
+        label.layout(Insets.ZERO_INSETS, 100, 20);
+        assertEquals(4, factory.created);
+    }
+
+    /** A label whose text styles can be changed directly. */
+    protected static class TestLabel extends BLabel
+    {
+        public ColorRGBA color = ColorRGBA.white, effectColor = ColorRGBA.black;
+        public int effect = BConstants.NORMAL;
+
+        public TestLabel (BTextFactory factory) {
+            super("");
+            _factory = factory;
+        }
+
+        @Override // from BComponent
+        public ColorRGBA getColor () {
+            return color;
+        }
+
+        @Override // from BTextComponent
+        public ColorRGBA getEffectColor () {
+            return effectColor;
+        }
+
+        @Override // from BTextComponent
+        public int getTextEffect () {
+            return effect;
+        }
+
+        @Override // from BTextComponent
+        protected BTextFactory getTextFactory (Label forLabel) {
+            return _factory;
+        }
+
+        protected BTextFactory _factory;
+    }
+}
@@ -0,0 +1,128 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * A unit test for {@link UploadQueue}.
+ */
+public class UploadQueueUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new UploadQueueUTest("testBudgets"));
+        suite.addTest(new UploadQueueUTest("testTimeToResident"));
+        return suite;
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            new UploadQueueUTest("testBudgets").runTest();
+            new UploadQueueUTest("testTimeToResident").runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public UploadQueueUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testBudgets ()
+    {
+        // uploads stop once the byte budget is reached, in the order images were queued
+        UploadQueue queue = new UploadQueue(250, 1000);
+        TestImage[] images = new TestImage[5];
+        for (int ii = 0; ii < images.length; ii++) {
+            queue.add(images[ii] = new TestImage(100, 0));
+        }
+        // (an image queued twice is uploaded once)
+        queue.add(images[0]);
+        assertEquals(5, queue.size());
+        assertEquals(3, queue.process());
+        assertEquals(300, queue.getUploadBytes());
+        assertTrue(images[2].uploaded && !images[3].uploaded);
+
+        // images released before their turn are never uploaded
+        assertTrue(queue.remove(images[3]));
+        assertFalse(queue.isQueued(images[3]));
+        assertEquals(1, queue.process());
+        assertTrue(images[4].uploaded && !images[3].uploaded);
+        assertEquals(0, queue.process());
+        assertEquals(0, queue.getUploadCount());
+
+        // at least one image is uploaded each frame, however large
+        queue.add(new TestImage(1000, 0));
+        queue.add(new TestImage(1000, 0));
+        assertEquals(1, queue.process());
+        assertEquals(1000, queue.getUploadBytes());
+        assertEquals(1, queue.size());
+
+        // or however slow
+        queue = new UploadQueue(Integer.MAX_VALUE, 5);
+        queue.add(new TestImage(10, 10));
+        queue.add(new TestImage(10, 10));
+        assertEquals(1, queue.process());
+        assertEquals(1, queue.process());
+        assertEquals(0, queue.size());
+    }
+
+    public void testTimeToResident ()
+        throws InterruptedException
+    {
+        UploadQueue queue = new UploadQueue(100, 1000);
+        queue.add(new TestImage(100, 0));
+        queue.add(new TestImage(100, 0));
+        Thread.sleep(10);
+        queue.process();
+        Thread.sleep(10);
+        queue.process();
+
+        // the second image waited a frame longer than the first
+        assertTrue(queue.getAverageTimeToResident() >= 15f);
+        assertTrue(queue.getMaxTimeToResident() >= 20f);
+        assertTrue(queue.getMaxTimeToResident() > queue.getAverageTimeToResident());
+
+        queue.resetStats();
+        assertEquals(0f, queue.getAverageTimeToResident());
+        assertEquals(0f, queue.getMaxTimeToResident());
+    }
+
+    /** An image that notes when it is uploaded, which takes a configurable time. */
+    protected static class TestImage extends BImage
+    {
+        public boolean uploaded;
+
+        public TestImage (int bytes, int millis) {
+            super("upload", 1, 1);
+            _bytes = bytes;
+            _millis = millis;
+        }
+
+        @Override // from BImage
+        protected int getTextureBytes () {
+            return _bytes;
+        }
+
+        @Override // from BImage
+        protected void upload () {
+            uploaded = true;
+            try {
+                Thread.sleep(_millis);
+            } catch (InterruptedException ie) {
+                // no problem
+            }
+        }
+
+        protected int _bytes, _millis;
+    }
+}
@@ -0,0 +1,76 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jmex.bui.layout.GroupLayout;
+
+/**
+ * A unit test for {@link ValidationQueue}.
+ */
+public class ValidationQueueUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new ValidationQueueUTest("testQueue");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            ValidationQueueUTest test = new ValidationQueueUTest("testQueue");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public ValidationQueueUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testQueue ()
+    {
+        LayoutBoundaryUTest.TestWindow window = new LayoutBoundaryUTest.TestWindow();
+        LayoutBoundaryUTest.CountingContainer outer =
+            new LayoutBoundaryUTest.CountingContainer(GroupLayout.makeVStretch());
+        LayoutBoundaryUTest.CountingContainer inner =
+            new LayoutBoundaryUTest.CountingContainer(GroupLayout.makeVStretch());
+        window.add(outer);
+        outer.add(inner);
+        window.setBounds(0, 0, 100, 100);
+        window.validate();
+        window.attach(new LayoutBoundaryUTest.TestRoot());
+
+        // queue the descendant first (repeatedly) and then its ancestor
+        ValidationQueue queue = new ValidationQueue();
+        inner.invalidate();
+        for (int ii = 0; ii < 100; ii++) {
+            queue.add(inner);
+        }
+        queue.add(window);
+        assertEquals(2, queue.size());
+
+        int wlayouts = window.layouts, ilayouts = inner.layouts;
+        queue.validate();
+        assertTrue(queue.isEmpty());
+        assertTrue(inner.isValid());
+        assertEquals("Window laid out once", wlayouts+1, window.layouts);
+        assertEquals("Inner laid out once", ilayouts+1, inner.layouts);
+        assertEquals(2, queue.getQueuedCount());
+        assertEquals(99, queue.getDuplicateCount());
+        assertEquals(1, queue.getValidatedCount());
+        assertEquals("Inner validated by the window", 1, queue.getSkippedCount());
+
+        // the statistics are per validation
+        queue.validate();
+        assertEquals(0, queue.getQueuedCount());
+        assertEquals(0, queue.getValidatedCount());
+    }
+}
@@ -0,0 +1,194 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import com.jme.renderer.ColorRGBA;
+
+import com.jmex.bui.BImage;
+import com.jmex.bui.CountingImage;
+
+/**
+ * Tests the page management of {@link AtlasTextFactory}.
+ */
+public class AtlasTextFactoryUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new AtlasTextFactoryUTest("testReferences"));
+        suite.addTest(new AtlasTextFactoryUTest("testGrowth"));
+        return suite;
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            new AtlasTextFactoryUTest("testReferences").runTest();
+            new AtlasTextFactoryUTest("testGrowth").runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public AtlasTextFactoryUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testReferences ()
+    {
+        TestFactory factory = new TestFactory(12);
+        BText t1 = factory.createText("hello", ColorRGBA.white);
+        BText t2 = factory.createText("hole", ColorRGBA.white);
+        assertEquals(1, factory.getPageCount());
+        TestPage page = factory.pages.get(0);
+
+        // the page's texture is created and referenced once, no matter how many texts use it
+        t1.wasAdded();
+        assertEquals(1, page.images.size());
+        assertEquals(1, page.getImage(0).getReferenceCount());
+        t2.wasAdded();
+        assertEquals(1, page.getImage(0).getReferenceCount());
+
+        // and released once the last of them is removed
+        t1.wasRemoved();
+        assertEquals(1, page.getImage(0).getReferenceCount());
+        t2.wasRemoved();
+        assertEquals(0, page.getImage(0).getReferenceCount());
+
+        // rasterizing new glyphs while the page is in use uploads the rows containing them into
+        // its existing texture
+        t1.wasAdded();
+        BText t3 = factory.createText("world", ColorRGBA.white);
+        page.validate();
+        assertEquals(1, page.images.size());
+        assertEquals(1, page.getImage(0).getReferenceCount());
+        assertEquals(1, page.getImage(0).updates.size());
+        assertCovers(page.getImage(0).updates.get(0), factory, "wrd");
+        t3.wasAdded();
+        t1.wasRemoved();
+        t3.wasRemoved();
+        assertEquals(0, page.getImage(0).getReferenceCount());
+
+        // as does rasterizing new glyphs while the page is not in use, once it is next used
+        BText t4 = factory.createText("xyz", ColorRGBA.white);
+        t4.wasAdded();
+        assertEquals(1, page.images.size());
+        assertEquals(1, page.getImage(0).getReferenceCount());
+        assertEquals(2, page.getImage(0).updates.size());
+        assertCovers(page.getImage(0).updates.get(1), factory, "xyz");
+
+        // and nothing is uploaded if no new glyphs were rasterized
+        factory.createText("zyx", ColorRGBA.white);
+        page.validate();
+        assertEquals(2, page.getImage(0).updates.size());
+        t4.wasRemoved();
+        assertEquals(0, page.getImage(0).getReferenceCount());
+    }
+
+    public void testGrowth ()
+    {
+        TestFactory factory = new TestFactory(24);
+        BText first = factory.createText("A", ColorRGBA.white);
+        AtlasTextFactory.Region region =
+            factory.getGlyph('A', BTextFactory.NORMAL, 0).foreground;
+        int x = region.x, y = region.y;
+        int[] pixels = getPixels(region);
+        first.wasAdded();
+
+        // fill the first page until it has grown to its maximum height and a second is started
+        TestPage page = factory.pages.get(0);
+        int height = page.image.getHeight();
+        assertEquals(AtlasTextFactory.INITIAL_PAGE_HEIGHT, height);
+        for (char c = 0x100; factory.getPageCount() == 1; c++) {
+            factory.createText(String.valueOf(c), ColorRGBA.white);
+            assertTrue(page.image.getHeight() >= height);
+            height = page.image.getHeight();
+        }
+        assertEquals(AtlasTextFactory.MAX_PAGE_HEIGHT, height);
+        assertEquals(2, factory.pages.size());
+
+        // growing the page preserves the glyphs already rasterized into it
+        assertSame(page, region.page);
+        assertEquals(x, region.x);
+        assertEquals(y, region.y);
+        assertTrue(Arrays.equals(pixels, getPixels(region)));
+
+        // and the grown page replaces the original texture when next validated
+        page.validate();
+        assertEquals(2, page.images.size());
+        assertEquals(0, page.getImage(0).getReferenceCount());
+        assertEquals(1, page.getImage(1).getReferenceCount());
+        assertEquals(height, page.getImage(1).getHeight());
+        first.wasRemoved();
+        assertEquals(0, page.getImage(1).getReferenceCount());
+    }
+
+    /**
+     * Asserts that the supplied updated rows cover the glyphs of the specified characters.
+     */
+    protected static void assertCovers (int[] rows, AtlasTextFactory factory, String chars)
+    {
+        for (int ii = 0; ii < chars.length(); ii++) {
+            AtlasTextFactory.Region region =
+                factory.getGlyph(chars.charAt(ii), BTextFactory.NORMAL, 0).foreground;
+            assertTrue(rows[0] <= region.y);
+            assertTrue(rows[0] + rows[1] >= region.y + region.height);
+        }
+    }
+
+    protected static int[] getPixels (AtlasTextFactory.Region region)
+    {
+        return region.page.image.getRGB(
+            region.x, region.y, region.width, region.height, null, 0, region.width);
+    }
+
+    /** A factory whose pages create counting images. */
+    protected static class TestFactory extends AtlasTextFactory
+    {
+        public ArrayList<TestPage> pages = new ArrayList<TestPage>();
+
+        public TestFactory (int size) {
+            super(new Font("Dialog", Font.PLAIN, size), true);
+        }
+
+        @Override // from AtlasTextFactory
+        protected Page createPage (int width, int height) {
+            TestPage page = new TestPage(width, height);
+            pages.add(page);
+            return page;
+        }
+    }
+
+    /** A page that records the images it creates. */
+    protected static class TestPage extends AtlasTextFactory.Page
+    {
+        public ArrayList<CountingImage> images = new ArrayList<CountingImage>();
+
+        public TestPage (int width, int height) {
+            super(width, height);
+        }
+
+        public CountingImage getImage (int index) {
+            return images.get(index);
+        }
+
+        @Override // from AtlasTextFactory.Page
+        protected BImage createImage () {
+            CountingImage image = new CountingImage(this.image.getWidth(), this.image.getHeight());
+            images.add(image);
+            return image;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+/**
+ * Compares the cost of typing into documents of various sizes using {@link Document} with the
+ * cost using the previous implementation, which rebuilt its text as a string on every edit.
+ */
+public class DocumentBenchmark
+{
+    public static void main (String[] args)
+    {
+        System.out.println("length  string (ns/edit)  gap buffer (ns/edit)");
+        for (int length = 256; length <= 262144; length *= 4) {
+            StringBuilder buf = new StringBuilder();
+            for (int ii = 0; ii < length; ii++) {
+                buf.append((char)('a' + ii % 26));
+            }
+            String text = buf.toString();
+
+            // warm up and then time each implementation
+            time(new StringDocument(), text);
+            time(new Document(), text);
+            long string = time(new StringDocument(), text);
+            long gap = time(new Document(), text);
+            System.out.println(length + "  " + string + "  " + gap);
+        }
+    }
+
+    /**
+     * Types and then backspaces over a run of characters in the middle of the supplied text,
+     * returning the average time per edit in nanoseconds.
+     */
+    protected static long time (Document doc, String text)
+    {
+        doc.setText(text);
+        int offset = text.length() / 2;
+        long start = System.nanoTime();
+        for (int ii = 0; ii < EDITS; ii++) {
+            doc.insert(offset + ii, "x");
+        }
+        for (int ii = EDITS-1; ii >= 0; ii--) {
+            doc.remove(offset + ii, 1);
+        }
+        return (System.nanoTime() - start) / (EDITS*2);
+    }
+
+    /** The previous string based document implementation. */
+    protected static class StringDocument extends Document
+    {
+        @Override // from Document
+        public String getText () {
+            return _text;
+        }
+
+        @Override // from Document
+        public int getLength () {
+            return _text.length();
+        }
+
+        @Override // from Document
+        public boolean replace (int offset, int length, String text) {
+            StringBuffer buf = new StringBuffer();
+            if (offset > 0) {
+                buf.append(_text.substring(0, offset));
+            }
+            buf.append(text);
+            if (_text.length() > 0) {
+                buf.append(_text.substring(offset+length, _text.length()));
+            }
+            String ntext = buf.toString();
+            if (!validateEdit(_text, ntext)) {
+                return false;
+            }
+            _text = ntext;
+            if (length > 0) {
+                notify(false, offset, length);
+            }
+            if (text.length() > 0) {
+                notify(true, offset, text.length());
+            }
+            return true;
+        }
+
+        protected String _text = "";
+    }
+
+    protected static final int EDITS = 200;
+}
@@ -5,8 +5,11 @@
 
 package com.jmex.bui.text;
 
+import java.util.Random;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
+import junit.framework.TestSuite;
 
 /**
  * A unit test for {@link Document}.
@@ -15,14 +18,19 @@ public class DocumentUTest extends TestCase
 {
     public static Test suite ()
     {
-        return new DocumentUTest("testEdit");
+        TestSuite suite = new TestSuite();
+        suite.addTest(new DocumentUTest("testEdit"));
+        suite.addTest(new DocumentUTest("testRandomEdits"));
+        suite.addTest(new DocumentUTest("testValidation"));
+        return suite;
     }
 
     public static void main (String[] args)
     {
         try {
-            DocumentUTest test = new DocumentUTest("testEdit");
-            test.runTest();
+            new DocumentUTest("testEdit").runTest();
+            new DocumentUTest("testRandomEdits").runTest();
+            new DocumentUTest("testValidation").runTest();
         } catch (Throwable t) {
             t.printStackTrace(System.err);
         }
@@ -57,6 +65,63 @@ public class DocumentUTest extends TestCase
                    doc.getText().equals(OUTPUT[lineidx++]));
     }
 
+    public void testRandomEdits ()
+    {
+        Document doc = new Document();
+        StringBuilder expect = new StringBuilder();
+        Random rand = new Random(42);
+        for (int ii = 0; ii < 5000; ii++) {
+            int offset = rand.nextInt(expect.length() + 1);
+            int length = rand.nextInt(Math.min(8, expect.length() - offset) + 1);
+            String text = "abcdefghij".substring(0, rand.nextInt(rand.nextInt(50) == 0 ? 10 : 4));
+            assertTrue(doc.replace(offset, length, text));
+            expect.replace(offset, offset + length, text);
+            assertEquals(expect.length(), doc.getLength());
+            if (ii % 100 == 0) {
+                assertEquals(expect.toString(), doc.getText());
+            }
+        }
+
+        // check the range getters and views
+        String text = expect.toString();
+        assertEquals(text, doc.getText());
+        assertEquals(text, doc.getCharSequence().toString());
+        for (int ii = 0; ii < 100; ii++) {
+            int offset = rand.nextInt(text.length()), length = rand.nextInt(text.length() - offset);
+            assertEquals(text.substring(offset, offset + length), doc.getText(offset, length));
+            assertEquals(text.charAt(offset), doc.charAt(offset));
+            assertEquals(text.charAt(offset), doc.getCharSequence().charAt(offset));
+        }
+    }
+
+    public void testValidation ()
+    {
+        LengthLimitedDocument ldoc = new LengthLimitedDocument(5);
+        assertTrue(ldoc.insert(0, "abc"));
+        assertTrue(ldoc.insert(3, "de"));
+        assertFalse(ldoc.insert(5, "f"));
+        assertTrue(ldoc.replace(1, 2, "xy"));
+        assertFalse(ldoc.replace(1, 2, "xyz"));
+        assertEquals("axyde", ldoc.getText());
+
+        IntegerDocument idoc = new IntegerDocument(true);
+        assertTrue(idoc.insert(0, "12"));
+        assertFalse(idoc.insert(1, "a"));
+        assertFalse(idoc.insert(0, "-"));
+        assertTrue(idoc.insert(2, "3"));
+        assertEquals("123", idoc.getText());
+
+        // documents that validate the old and new text still work
+        Document sdoc = new Document() {
+            protected boolean validateEdit (String oldText, String newText) {
+                return newText.indexOf("!") == -1;
+            }
+        };
+        assertTrue(sdoc.insert(0, "hello"));
+        assertFalse(sdoc.insert(5, "!"));
+        assertEquals("hello", sdoc.getText());
+    }
+
     protected static final String[] OUTPUT = {
         "The quick brown fox jumped over the lazy dog.",
         "I heard that The quick brown fox jumped over the lazy dog.",
@@ -0,0 +1,85 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import java.awt.image.BufferedImage;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+/**
+ * A unit test for {@link GlyphMaskCache}.
+ */
+public class GlyphMaskCacheUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new GlyphMaskCacheUTest("testBudget");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            GlyphMaskCacheUTest test = new GlyphMaskCacheUTest("testBudget");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public GlyphMaskCacheUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testBudget ()
+    {
+        // each mask occupies 10x10x4 bytes, so three fit in our budget
+        GlyphMaskCache cache = new GlyphMaskCache(1200);
+        for (char c = 'a'; c <= 'c'; c++) {
+            assertNull(cache.get(c, 10, 2, 0));
+            cache.put(c, 10, 2, 0, createMask());
+        }
+        assertEquals(3, cache.size());
+        assertEquals(1200, cache.getBytes());
+
+        // the same glyph with a different height, effect size or kind is a different mask
+        assertNull(cache.get('a', 12, 2, 0));
+        assertNull(cache.get('a', 10, 3, 0));
+        assertNull(cache.get('a', 10, 2, 1));
+
+        // adding a fourth evicts the least recently used
+        assertNotNull(cache.get('a', 10, 2, 0));
+        assertNull(cache.get('d', 10, 2, 0));
+        cache.put('d', 10, 2, 0, createMask());
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get('b', 10, 2, 0));
+        assertNotNull(cache.get('a', 10, 2, 0));
+
+        // masks are stored under the glyph supplied, regardless of what was last looked up
+        BufferedImage mask = createMask();
+        cache.put('e', 10, 2, 1, mask);
+        assertSame(mask, cache.get('e', 10, 2, 1));
+        assertNotNull(cache.get('a', 10, 2, 0));
+
+        // reducing the budget evicts as needed
+        cache.setBudget(500);
+        assertEquals(1, cache.size());
+        assertEquals(400, cache.getBytes());
+        assertNotNull(cache.get('a', 10, 2, 0));
+
+        assertEquals(5, cache.getHits());
+        assertEquals(8, cache.getMisses());
+        cache.resetStats();
+        assertEquals(0, cache.getHits() + cache.getMisses() + cache.getEvictions());
+    }
+
+    protected static BufferedImage createMask ()
+    {
+        return new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+    }
+}
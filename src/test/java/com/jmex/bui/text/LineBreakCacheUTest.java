@@ -0,0 +1,86 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jmex.bui.BConstants;
+
+/**
+ * A unit test for {@link LineBreakCache}.
+ */
+public class LineBreakCacheUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new LineBreakCacheUTest("testCache");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            LineBreakCacheUTest test = new LineBreakCacheUTest("testCache");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public LineBreakCacheUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testCache ()
+    {
+        LineBreakCache cache = new LineBreakCache(2);
+        String text = "the quick brown fox";
+        assertNull(cache.get(text, BConstants.PLAIN, 100));
+
+        // breaks are reused for any width at which the text would break the same way
+        LineBreakCache.Breaks breaks = createBreaks(60, 100, "the quick", "brown fox");
+        assertSame(breaks, cache.put(text, BConstants.PLAIN, 100, breaks));
+        assertSame(breaks, cache.get(text, BConstants.PLAIN, 60));
+        assertSame(breaks, cache.get(text, BConstants.PLAIN, 100));
+        assertNull(cache.get(text, BConstants.PLAIN, 59));
+        assertNull(cache.get(text, BConstants.PLAIN, 120));
+        assertNull(cache.get(text, BConstants.OUTLINE, 100));
+
+        // identical breaks at a wider width extend the range of the existing breaks
+        LineBreakCache.Breaks wider = createBreaks(60, 120, "the quick", "brown fox");
+        assertSame(breaks, cache.put(text, BConstants.PLAIN, 120, wider));
+        assertSame(breaks, cache.get(text, BConstants.PLAIN, 110));
+
+        // different breaks are cached separately
+        LineBreakCache.Breaks one = createBreaks(150, Integer.MAX_VALUE, text);
+        assertSame(one, cache.put(text, BConstants.PLAIN, 200, one));
+        assertSame(one, cache.get(text, BConstants.PLAIN, 1000));
+        assertSame(breaks, cache.get(text, BConstants.PLAIN, 80));
+        assertEquals(1, cache.size());
+
+        // the least recently used text is evicted
+        cache.put("a", BConstants.PLAIN, 100, createBreaks(10, Integer.MAX_VALUE, "a"));
+        cache.get(text, BConstants.PLAIN, 100);
+        cache.put("b", BConstants.PLAIN, 100, createBreaks(10, Integer.MAX_VALUE, "b"));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("a", BConstants.PLAIN, 100));
+        assertNotNull(cache.get(text, BConstants.PLAIN, 100));
+
+        cache.resetStats();
+        cache.get("b", BConstants.PLAIN, 50);
+        cache.get("c", BConstants.PLAIN, 50);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5f, cache.getHitRate());
+    }
+
+    protected static LineBreakCache.Breaks createBreaks (int minWidth, int maxWidth,
+                                                         String... lines)
+    {
+        return new LineBreakCache.Breaks(lines, null, minWidth, maxWidth);
+    }
+}
@@ -0,0 +1,61 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import com.jme.renderer.ColorRGBA;
+
+import com.jmex.bui.BConstants;
+
+/**
+ * Compares the cost of a keystroke in a text field of various lengths when the entire line is
+ * rendered as a single text with the cost when it is rendered as a {@link SegmentedText}. Texts
+ * are "rendered" by filling a buffer of the size their image would be.
+ */
+public class SegmentedTextBenchmark
+{
+    public static void main (String[] args)
+    {
+        StubTextFactory factory = new StubTextFactory(16);
+        factory.rasterize = true;
+        System.out.println("length  whole (us/key, chars/key)  segmented (us/key, chars/key)");
+        for (int length = 64; length <= 8192; length *= 2) {
+            StringBuilder buf = new StringBuilder();
+            for (int ii = 0; ii < length; ii++) {
+                buf.append((char)('a' + ii % 26));
+            }
+
+            // time keystrokes in the middle of the line, rendering the whole line each time
+            long start = System.nanoTime();
+            for (int ii = 0; ii < KEYSTROKES; ii++) {
+                buf.insert(length/2, 'x');
+                factory.createText(buf.toString(), ColorRGBA.white, BConstants.PLAIN,
+                                   BConstants.DEFAULT_SIZE, null, true);
+                buf.deleteCharAt(length/2);
+            }
+            long whole = System.nanoTime() - start;
+
+            // and again rendering only the affected segments
+            SegmentedText text = new SegmentedText(
+                factory, ColorRGBA.white, BConstants.PLAIN, 16);
+            text.setText(buf.toString());
+            text.resetStats();
+            start = System.nanoTime();
+            for (int ii = 0; ii < KEYSTROKES; ii++) {
+                buf.insert(length/2, 'x');
+                text.setText(buf.toString());
+                buf.deleteCharAt(length/2);
+                text.setText(buf.toString());
+            }
+            long segmented = System.nanoTime() - start;
+
+            System.out.println(length + "  " + (whole / 1000 / KEYSTROKES) + " " + (length+1) +
+                               "  " + (segmented / 1000 / (KEYSTROKES*2)) + " " +
+                               (text.getCharactersCreated() / (KEYSTROKES*2)));
+        }
+    }
+
+    protected static final int KEYSTROKES = 500;
+}
@@ -0,0 +1,115 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jme.renderer.ColorRGBA;
+
+import com.jmex.bui.BConstants;
+
+/**
+ * A unit test for {@link SegmentedText}.
+ */
+public class SegmentedTextUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new SegmentedTextUTest("testEdit");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            SegmentedTextUTest test = new SegmentedTextUTest("testEdit");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public SegmentedTextUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testEdit ()
+    {
+        SegmentedText text = new SegmentedText(
+            new StubTextFactory(16), ColorRGBA.white, BConstants.PLAIN, 16);
+        StringBuilder buf = new StringBuilder();
+        Random rand = new Random(42);
+        for (int ii = 0; ii < 2000; ii++) {
+            int pos = rand.nextInt(buf.length() + 1);
+            if (buf.length() > 0 && rand.nextInt(3) == 0) {
+                buf.delete(pos == buf.length() ? pos-1 : pos, Math.min(buf.length(), pos + 2));
+            } else {
+                buf.insert(pos, (char)('a' + rand.nextInt(3)));
+            }
+            text.setText(buf.toString());
+            checkText(text, buf.toString());
+        }
+
+        // typing at the end of a long line recreates only the last segment
+        buf.setLength(0);
+        for (int ii = 0; ii < 1000; ii++) {
+            buf.append((char)('a' + ii % 26));
+        }
+        text.setText(buf.toString());
+        text.resetStats();
+        for (int ii = 0; ii < 100; ii++) {
+            buf.append('x');
+            text.setText(buf.toString());
+        }
+        assertTrue("Segments created per keystroke", text.getSegmentsCreated() <= 100 * 2);
+        assertTrue("Characters created per keystroke", text.getCharactersCreated() <= 100 * 17);
+
+        // as does typing in the middle
+        text.resetStats();
+        buf.insert(500, 'y');
+        text.setText(buf.toString());
+        assertTrue(text.getSegmentsCreated() <= 2);
+        checkText(text, buf.toString());
+
+        // and continuing to type there does not fragment the line into ever shorter segments
+        for (int ii = 0; ii < 100; ii++) {
+            buf.insert(501 + ii, 'z');
+            text.setText(buf.toString());
+        }
+        checkText(text, buf.toString());
+        assertTrue("Segment count " + text.getSegmentCount(),
+                   text.getSegmentCount() <= (buf.length() + 15) / 16 + 2);
+
+        // deleting characters coalesces what remains with neighboring segments
+        for (int ii = 0; ii < 100; ii++) {
+            buf.delete(501, 502);
+            text.setText(buf.toString());
+        }
+        checkText(text, buf.toString());
+        assertTrue("Segment count " + text.getSegmentCount(),
+                   text.getSegmentCount() <= (buf.length() + 15) / 16 + 2);
+    }
+
+    protected void checkText (SegmentedText text, String expect)
+    {
+        assertEquals(expect, text.getText());
+        assertEquals(expect.length() * 10, text.getSize().width);
+        StringBuilder segs = new StringBuilder();
+        for (SegmentedText.Segment seg : text._segments) {
+            assertTrue(seg.text.length() > 0 && seg.text.length() <= 16);
+            assertEquals(seg.text, ((StubTextFactory.StubText)seg.glyphs).text);
+            segs.append(seg.text);
+        }
+        assertEquals(expect, segs.toString());
+        for (int ii = 0; ii <= expect.length(); ii++) {
+            assertEquals(ii * 10, text.getCursorPos(ii));
+            assertEquals(ii, text.getHitPos(ii * 10 + 2, 0));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+import com.jme.renderer.ColorRGBA;
+
+import com.jmex.bui.BConstants;
+
+/**
+ * A unit test for {@link SharedTextFactory}.
+ */
+public class SharedTextFactoryUTest extends TestCase
+{
+    public static Test suite ()
+    {
+        return new SharedTextFactoryUTest("testSharing");
+    }
+
+    public static void main (String[] args)
+    {
+        try {
+            SharedTextFactoryUTest test = new SharedTextFactoryUTest("testSharing");
+            test.runTest();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+        }
+    }
+
+    public SharedTextFactoryUTest (String method)
+    {
+        super(method);
+    }
+
+    public void testSharing ()
+    {
+        StubTextFactory delegate = new StubTextFactory(16);
+        SharedTextFactory factory = new SharedTextFactory(delegate, 2);
+
+        // identical requests share a single text which is added once
+        BText[] texts = new BText[100];
+        for (int ii = 0; ii < texts.length; ii++) {
+            texts[ii] = create(factory, "Equip", ColorRGBA.white);
+            texts[ii].wasAdded();
+        }
+        assertEquals(1, delegate.created);
+        assertEquals(1, delegate.live);
+        assertEquals(100f, factory.getDedupeRatio());
+        assertEquals(99 * 50 * 16 * 4, factory.getBytesSaved());
+
+        // as do requests in other colors, each of which is rendered in its own colors
+        BText red = create(factory, "Equip", ColorRGBA.red);
+        assertEquals(1, delegate.created);
+        StubTextFactory.StubText stext = (StubTextFactory.StubText)
+            ((SharedTextFactory.SharedText)red)._text;
+        red.render(null, 0, 0, 1f);
+        assertSame(ColorRGBA.red, stext.color);
+        texts[0].render(null, 0, 0, 1f);
+        assertSame(ColorRGBA.white, stext.color);
+
+        // but a different effect is a different text
+        factory.createText("Equip", ColorRGBA.white, BConstants.OUTLINE,
+                           BConstants.DEFAULT_SIZE, ColorRGBA.black, false);
+        assertEquals(2, delegate.created);
+
+        // the text remains added until its last user is removed, and is then retained (along
+        // with at most one other unused text) until it is the least recently used of three
+        for (int ii = 0; ii < texts.length - 1; ii++) {
+            texts[ii].wasRemoved();
+        }
+        assertEquals(1, delegate.live);
+        texts[texts.length-1].wasRemoved();
+        assertEquals(1, delegate.live);
+        assertEquals(2, factory.getIdleCount());
+        create(factory, "Equip", ColorRGBA.white);
+        assertEquals(2, delegate.created);
+        create(factory, "Drop", ColorRGBA.white);
+        assertEquals(2, factory.getIdleCount());
+        assertEquals(1, delegate.live);
+        create(factory, "Sell", ColorRGBA.white);
+        assertEquals(0, delegate.live);
+
+        // recoloring a shared text recolors only the handle of the user that recolors it
+        BText d1 = create(factory, "Drop", ColorRGBA.white);
+        BText d2 = create(factory, "Drop", ColorRGBA.white);
+        stext = (StubTextFactory.StubText)((SharedTextFactory.SharedText)d1)._text;
+        assertTrue(d1.setColors(ColorRGBA.red, ColorRGBA.black));
+        d1.render(null, 0, 0, 1f);
+        assertSame(ColorRGBA.red, stext.color);
+        assertSame(ColorRGBA.black, stext.effectColor);
+        d2.render(null, 0, 0, 1f);
+        assertSame(ColorRGBA.white, stext.color);
+        assertNull(stext.effectColor);
+
+        // texts that cannot be recolored are shared only among requests in the same colors
+        delegate.tintable = false;
+        int created = delegate.created;
+        create(factory, "Buy", ColorRGBA.white);
+        BText buy = create(factory, "Buy", ColorRGBA.white);
+        assertEquals(created + 1, delegate.created);
+        assertFalse(buy.setColors(ColorRGBA.red, null));
+        create(factory, "Buy", ColorRGBA.red);
+        assertEquals(created + 2, delegate.created);
+        delegate.tintable = true;
+
+        // wrapped text is shared as a unit
+        factory.resetStats();
+        BText[] lines = factory.wrapText("Equip", ColorRGBA.white, BConstants.PLAIN,
+                                         BConstants.DEFAULT_SIZE, null, 100);
+        factory.wrapText("Equip", ColorRGBA.white, BConstants.PLAIN,
+                         BConstants.DEFAULT_SIZE, null, 100);
+        assertEquals(1, factory.getCreated());
+        assertEquals(2, factory.getRequested());
+        lines[0].wasAdded();
+        assertEquals(1, delegate.live);
+    }
+
+    protected static BText create (BTextFactory factory, String text, ColorRGBA color)
+    {
+        return factory.createText(
+            text, color, BConstants.PLAIN, BConstants.DEFAULT_SIZE, null, false);
+    }
+}
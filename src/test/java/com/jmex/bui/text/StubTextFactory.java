@@ -0,0 +1,140 @@
+//
+// BUI - a user interface library for the JME 3D engine
+// Copyright (C) 2005-2006, Michael Bayne, All Rights Reserved
+// https://code.google.com/p/jme-bui/
+
+package com.jmex.bui.text;
+
+import java.util.Arrays;
+
+import com.jme.renderer.ColorRGBA;
+import com.jme.renderer.Renderer;
+
+import com.jmex.bui.util.Dimension;
+
+/**
+ * Creates texts in which every character is ten pixels wide and which render nothing, for use
+ * by unit tests and benchmarks. Counts the texts created, added and measured.
+ */
+public class StubTextFactory extends BTextFactory
+{
+    /** The width of every character. */
+    public static final int CHAR_WIDTH = 10;
+
+    /** The number of texts created, currently added and measured for wrapping. */
+    public int created, live, measured;
+
+    /** Whether created texts can be recolored. */
+    public boolean tintable = true;
+
+    /** Whether created texts "rasterize" themselves into a buffer (to simulate the cost). */
+    public boolean rasterize;
+
+    public StubTextFactory (int height)
+    {
+        _height = height;
+    }
+
+    // documentation inherited
+    public int getHeight ()
+    {
+        return _height;
+    }
+
+    // documentation inherited
+    public BText createText (String text, ColorRGBA color, int effect, int effectSize,
+                             ColorRGBA effectColor, boolean useAdvance)
+    {
+        created++;
+        StubText stext = new StubText(this, text);
+        stext.color = color;
+        stext.effectColor = effectColor;
+        return stext;
+    }
+
+    // documentation inherited
+    public BText[] wrapText (String text, ColorRGBA color, int effect, int effectSize,
+                             ColorRGBA effectColor, int maxWidth)
+    {
+        int chars = Math.max(1, maxWidth / CHAR_WIDTH), count = Math.max(1, text.length());
+        BText[] lines = new BText[(count + chars - 1) / chars];
+        for (int ii = 0; ii < lines.length; ii++) {
+            lines[ii] = createText(
+                text.substring(Math.min(text.length(), ii * chars),
+                               Math.min(text.length(), (ii + 1) * chars)),
+                color, effect, effectSize, effectColor, true);
+        }
+        return lines;
+    }
+
+    @Override // from BTextFactory
+    public WrappedLine[] measureWrapped (String text, int effect, int effectSize, int maxWidth)
+    {
+        measured++;
+        int chars = Math.max(1, maxWidth / CHAR_WIDTH), count = Math.max(1, text.length());
+        WrappedLine[] lines = new WrappedLine[(count + chars - 1) / chars];
+        for (int ii = 0; ii < lines.length; ii++) {
+            int length = Math.min(chars, count - ii * chars);
+            lines[ii] = new WrappedLine(length, new Dimension(length * CHAR_WIDTH, _height));
+        }
+        return lines;
+    }
+
+    /** A text created by a {@link StubTextFactory}. */
+    public static class StubText extends BText
+    {
+        public String text;
+        public ColorRGBA color, effectColor;
+        public int[] pixels;
+
+        public StubText (StubTextFactory factory, String text) {
+            _factory = factory;
+            _tintable = factory.tintable;
+            this.text = text;
+            if (factory.rasterize) {
+                pixels = new int[text.length() * CHAR_WIDTH * factory.getHeight()];
+                Arrays.fill(pixels, text.hashCode());
+            }
+        }
+
+        public int getLength () {
+            return text.length();
+        }
+
+        public Dimension getSize () {
+            return new Dimension(text.length() * CHAR_WIDTH, _factory.getHeight());
+        }
+
+        public int getHitPos (int x, int y) {
+            return Math.min(text.length(), (x + CHAR_WIDTH/2) / CHAR_WIDTH);
+        }
+
+        public int getCursorPos (int index) {
+            return index * CHAR_WIDTH;
+        }
+
+        public boolean setColors (ColorRGBA color, ColorRGBA effectColor) {
+            if (_tintable) {
+                this.color = color;
+                this.effectColor = effectColor;
+            }
+            return _tintable;
+        }
+
+        public void render (Renderer render, int x, int y, float alpha) {
+        }
+
+        public void wasAdded () {
+            _factory.live++;
+        }
+
+        public void wasRemoved () {
+            _factory.live--;
+        }
+
+        protected StubTextFactory _factory;
+        protected boolean _tintable;
+    }
+
+    protected int _height;
+}